@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.api;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.ListIterator;
+import java.util.RandomAccess;
+
+/**
+ * Read API shared by the columnar point stores: the values of the point at an index,
+ * flyweight views via {@link #get(int)} and a reusable {@link Cursor}.
+ *
+ * Implementations only provide {@link #size()} and the column getters.
+ * Writable implementations copy the values of an added point into their columns.
+ *
+ * The views of {@link #get(int)} and {@link #iterator()} are bound to an index.
+ * {@link #toArray()} and {@link #listIterator()} return detached {@link GeoPointDto} copies instead
+ * so that {@link java.util.Collections#sort(java.util.List, java.util.Comparator)},
+ * {@link java.util.Collections#reverse(java.util.List)} and friends that put the elements back
+ * into the list do not see values that they already overwrote.
+ */
+public abstract class AbstractGeoPointStore extends AbstractList<IGeoPointInfo> implements RandomAccess {
+    /** Returns a flyweight view of the point at index. */
+    @Override
+    public IGeoPointInfo get(int index) {
+        checkIndex(index);
+        return new View(index);
+    }
+
+    /** Copies all fields of point index into dest. */
+    public GeoPointDto get(int index, GeoPointDto dest) {
+        checkIndex(index);
+        return dest
+                .setLatitude(getLatitude(index))
+                .setLongitude(getLongitude(index))
+                .setZoomMin(getZoomMin(index))
+                .setZoomMax(getZoomMax(index))
+                .setTimeOfMeasurementMillis(getTime(index))
+                .setName(getName(index))
+                .setDescription(getDescription(index))
+                .setId(getId(index))
+                .setLink(getLink(index))
+                .setSymbol(getSymbol(index));
+    }
+
+    /** Returns detached {@link GeoPointDto} copies of all points. */
+    @Override
+    public Object[] toArray() {
+        Object[] result = new Object[size()];
+        for (int index = 0; index < result.length; index++) {
+            result[index] = get(index, new GeoPointDto());
+        }
+        return result;
+    }
+
+    /** Returns detached {@link GeoPointDto} copies of all points. */
+    @Override
+    @SuppressWarnings("unchecked") // same as ArrayList: Arrays.copyOf creates an array of a's runtime type
+    public <T> T[] toArray(T[] a) {
+        Object[] copies = toArray();
+        if (a.length < copies.length) return (T[]) Arrays.copyOf(copies, copies.length, a.getClass());
+        System.arraycopy(copies, 0, a, 0, copies.length);
+        if (a.length > copies.length) a[copies.length] = null;
+        return a;
+    }
+
+    /** Same as {@link AbstractList#listIterator(int)} but {@link ListIterator#next()} and
+     * {@link ListIterator#previous()} return detached {@link GeoPointDto} copies. */
+    @Override
+    public ListIterator<IGeoPointInfo> listIterator(int index) {
+        final ListIterator<IGeoPointInfo> views = super.listIterator(index);
+        return new ListIterator<IGeoPointInfo>() {
+            @Override
+            public boolean hasNext() {
+                return views.hasNext();
+            }
+
+            @Override
+            public IGeoPointInfo next() {
+                return detach(views.next());
+            }
+
+            @Override
+            public boolean hasPrevious() {
+                return views.hasPrevious();
+            }
+
+            @Override
+            public IGeoPointInfo previous() {
+                return detach(views.previous());
+            }
+
+            @Override
+            public int nextIndex() {
+                return views.nextIndex();
+            }
+
+            @Override
+            public int previousIndex() {
+                return views.previousIndex();
+            }
+
+            @Override
+            public void remove() {
+                views.remove();
+            }
+
+            @Override
+            public void set(IGeoPointInfo point) {
+                views.set(point);
+            }
+
+            @Override
+            public void add(IGeoPointInfo point) {
+                views.add(point);
+            }
+        };
+    }
+
+    /** Returns a {@link GeoPointDto} copy if point is a view of this store, else point itself.
+     *
+     * Writable implementations use it before they move values that point may show. */
+    protected IGeoPointInfo detach(IGeoPointInfo point) {
+        if ((point instanceof View) && (((View) point).getStore() == this)) return ((View) point).clone();
+        return point;
+    }
+
+    /** Returns a reusable view that is positioned before the first point. */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /** Latitude, in degrees north. {@link IGeoPointInfo#NO_LAT_LON} means "not set" */
+    public abstract double getLatitude(int index);
+
+    /** Longitude, in degrees east. {@link IGeoPointInfo#NO_LAT_LON} means "not set" */
+    public abstract double getLongitude(int index);
+
+    /** {@link IGeoPointInfo#NO_ZOOM} means "not set" */
+    public abstract int getZoomMin(int index);
+
+    /** {@link IGeoPointInfo#NO_ZOOM} means "not set" */
+    public abstract int getZoomMax(int index);
+
+    /** Time of measurement in millisecs since 1970. {@link IGeoPointInfo#NO_TIME} means "not set" */
+    public abstract long getTime(int index);
+
+    public abstract String getName(int index);
+
+    public abstract String getDescription(int index);
+
+    public abstract String getId(int index);
+
+    public abstract String getLink(int index);
+
+    public abstract String getSymbol(int index);
+
+    protected void checkIndex(int index) {
+        int size = size();
+        if ((index < 0) || (index >= size)) throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+    }
+
+    /** Read only view of the point at {@link #getIndex()}.
+     *
+     * {@link #equals(Object)} has the same meaning as in {@link GeoPointDto}. */
+    public class View implements IGeoPointInfo {
+        protected int index;
+
+        View(int index) {
+            this.index = index;
+        }
+
+        /** Position of the point in the store */
+        public int getIndex() {
+            return index;
+        }
+
+        private AbstractGeoPointStore getStore() {
+            return AbstractGeoPointStore.this;
+        }
+
+        @Override
+        public double getLatitude() {
+            return AbstractGeoPointStore.this.getLatitude(index);
+        }
+
+        @Override
+        public double getLongitude() {
+            return AbstractGeoPointStore.this.getLongitude(index);
+        }
+
+        @Override
+        public int getZoomMin() {
+            return AbstractGeoPointStore.this.getZoomMin(index);
+        }
+
+        @Override
+        public int getZoomMax() {
+            return AbstractGeoPointStore.this.getZoomMax(index);
+        }
+
+        /** Date when the measurement was taken. Null if unknown. Every call returns a new {@link Date}. */
+        @Override
+        public Date getTimeOfMeasurement() {
+            long millis = getTime(index);
+            return (millis == NO_TIME) ? null : new Date(millis);
+        }
+
+        @Override
+        public long getTimeOfMeasurementMillis() {
+            return getTime(index);
+        }
+
+        @Override
+        public String getName() {
+            return AbstractGeoPointStore.this.getName(index);
+        }
+
+        @Override
+        public String getDescription() {
+            return AbstractGeoPointStore.this.getDescription(index);
+        }
+
+        @Override
+        public String getId() {
+            return AbstractGeoPointStore.this.getId(index);
+        }
+
+        @Override
+        public String getLink() {
+            return AbstractGeoPointStore.this.getLink(index);
+        }
+
+        @Override
+        public String getSymbol() {
+            return AbstractGeoPointStore.this.getSymbol(index);
+        }
+
+        /** Returns a {@link GeoPointDto} with the current values that does not depend on the store. */
+        @Override
+        public GeoPointDto clone() {
+            return get(index, new GeoPointDto());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if ((other == null) || !(other instanceof IGeoPointInfo)) return false;
+            return GeoPointDto.equals(this, (IGeoPointInfo) other);
+        }
+
+        @Override
+        public int hashCode() {
+            String id = getId();
+            if (id != null) return id.hashCode();
+            long bits = Double.doubleToLongBits(getLatitude()) * 31 + Double.doubleToLongBits(getLongitude());
+            return (int) (bits ^ (bits >>> 32));
+        }
+
+        /** For display/debugging: Either the {@link #getName()} or #{@link #getId()}. */
+        @Override
+        public String toString() {
+            String name = getName();
+            if (name != null) return name;
+            String id = getId();
+            if (id != null) return "#" + id;
+            return "[" + index + "]";
+        }
+    }
+
+    /** A reusable {@link View} that can be moved through the store without creating objects. */
+    public class Cursor extends View {
+        Cursor() {
+            super(-1);
+        }
+
+        /** Moves to the next point. Returns false if there is none. */
+        public boolean next() {
+            if (index + 1 >= size()) return false;
+            index++;
+            return true;
+        }
+
+        /** Moves to the point at index. */
+        public Cursor moveTo(int index) {
+            checkIndex(index);
+            this.index = index;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.api;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A {@link GeoPointDto} that keeps long descriptions as deflate compressed utf-8 bytes.
+ *
+ * Wikimedia pages and kml placemarks often have kilobytes of html in the description that is
+ * only shown when a marker is long-clicked. Descriptions longer than the threshold are
+ * compressed in {@link #setDescription(String)} and decompressed in {@link #getDescription()}.
+ * The last decompressed values are kept in a small per-thread cache.
+ *
+ * Use it as factory/reuse instance of the loaders:
+ *
+ * ```java
+ * List<IGeoPointInfo> points = new GpxReader<IGeoPointInfo>(new CompressedGeoPointDto()).getTracks(in);
+ * GeoFileRepository<IGeoPointInfo> repository
+ *             = new GeoFileRepository<>(new File("/path/to/repository.poi"), new CompressedGeoPointDto());
+ * ```
+ */
+public class CompressedGeoPointDto extends GeoPointDto {
+    /** Descriptions with more chars are compressed by default */
+    public static final int DEFAULT_THRESHOLD = 256;
+
+    /** Number of decompressed descriptions that are cached per thread */
+    private static final int CACHE_SIZE = 8;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final ThreadLocal<Codec> codec = new ThreadLocal<Codec>() {
+        @Override
+        protected Codec initialValue() {
+            return new Codec();
+        }
+    };
+
+    /** Descriptions with more chars are compressed */
+    private final int threshold;
+
+    /** If not null: the deflate compressed description. Never modified so clones can share it. */
+    private byte[] compressedDescription = null;
+
+    /** Length of the uncompressed utf-8 bytes of {@link #compressedDescription} */
+    private int descriptionLength = 0;
+
+    public CompressedGeoPointDto() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    /** Create where descriptions with more than threshold chars are compressed. */
+    public CompressedGeoPointDto(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /** Create a copy of src where descriptions with more than threshold chars are compressed. */
+    public CompressedGeoPointDto(IGeoPointInfo src, int threshold) {
+        super(src);
+        this.threshold = threshold;
+        setDescription(src.getDescription());
+    }
+
+    /** Detailed description of the point displayed in popup on long-click . Null means "not set".
+     *
+     * Compressed if longer than the threshold and if compression saves space. */
+    @Override
+    public GeoPointDto setDescription(String description) {
+        this.compressedDescription = null;
+        if ((description != null) && (description.length() > threshold)) {
+            byte[] utf8 = description.getBytes(UTF_8);
+            byte[] compressed = codec.get().deflate(utf8);
+            if (compressed.length < 2 * description.length()) {
+                this.compressedDescription = compressed;
+                this.descriptionLength = utf8.length;
+                codec.get().put(compressed, description);
+                return super.setDescription(null);
+            }
+        }
+        return super.setDescription(description);
+    }
+
+    /** Detailed description of the point displayed in popup on long-click . Null means "not set".
+     *
+     * Decompressed on demand. */
+    @Override
+    public String getDescription() {
+        if (compressedDescription == null) return super.getDescription();
+        return codec.get().inflate(compressedDescription, descriptionLength);
+    }
+
+    /** True if the description is kept compressed. */
+    public boolean isDescriptionCompressed() {
+        return compressedDescription != null;
+    }
+
+    @Override
+    public GeoPointDto clear() {
+        this.compressedDescription = null;
+        return super.clear();
+    }
+
+    /** Implementation detail: per-thread deflater, inflater and cache of the last decompressed values. */
+    private static class Codec {
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        private final Inflater inflater = new Inflater(true);
+        private byte[] buffer = new byte[1024];
+
+        /** Round robin cache: compressed bytes (by identity) => description */
+        private final byte[][] keys = new byte[CACHE_SIZE][];
+        private final String[] values = new String[CACHE_SIZE];
+        private int next = 0;
+
+        byte[] deflate(byte[] utf8) {
+            deflater.reset();
+            deflater.setInput(utf8);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            return Arrays.copyOf(buffer, length);
+        }
+
+        String inflate(byte[] compressed, int utf8Length) {
+            for (int i = 0; i < CACHE_SIZE; i++) {
+                if (keys[i] == compressed) return values[i];
+            }
+
+            // nowrap inflater needs one extra byte behind the input
+            byte[] input = Arrays.copyOf(compressed, compressed.length + 1);
+            byte[] utf8 = new byte[utf8Length];
+            try {
+                inflater.reset();
+                inflater.setInput(input);
+                int length = 0;
+                while ((length < utf8Length) && !inflater.finished()) {
+                    int count = inflater.inflate(utf8, length, utf8Length - length);
+                    if ((count == 0) && inflater.needsInput()) break;
+                    length += count;
+                }
+            } catch (DataFormatException e) {
+                // cannot happen: the bytes were created by deflate()
+                throw new IllegalStateException("corrupt compressed description", e);
+            }
+            String result = new String(utf8, UTF_8);
+            put(compressed, result);
+            return result;
+        }
+
+        void put(byte[] compressed, String description) {
+            keys[next] = compressed;
+            values[next] = description;
+            next = (next + 1) % CACHE_SIZE;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.api;
+
+import java.util.Date;
+
+/**
+ * A compact immutable implementation of {@link IGeoPointInfo}.
+ *
+ * Latitude and longitude are stored as fixed-point ints with 7 decimals (E7, about 1cm),
+ * zoomMin/zoomMax as bytes and the time of measurement as millisecs.
+ * Other than {@link GeoPointDto} it can be used as key in hash based collections:
+ * {@link #equals(Object)} and {@link #hashCode()} compare all fields.
+ * This value equality only holds among {@link GeoPoint}-s of the same class: a {@link GeoPoint} never
+ * equals a {@link GeoPointDto}, while {@link GeoPointDto#equals(Object)} compares the id with any
+ * {@link IGeoPointInfo}. Do not mix both in one hash based collection.
+ *
+ * ```java
+ * GeoPoint point = new GeoPoint.Builder().setLatitude(52.1).setLongitude(9.2).setName("my test point").build();
+ * GeoPointDto dto = point.toDto();
+ * GeoPoint copy = GeoPoint.of(dto);
+ * ```
+ */
+public class GeoPoint implements IGeoPointInfo {
+    /** Value of {@link #getLatitudeE7()} and {@link #getLongitudeE7()} if not set */
+    public static final int NO_LAT_LON_E7 = Integer.MIN_VALUE;
+
+    /** Factor between degrees and E7 fixed-point values */
+    public static final double E7 = 1e7;
+
+    private final int latitudeE7;
+    private final int longitudeE7;
+    private final byte zoomMin;
+    private final byte zoomMax;
+    private final long timeOfMeasurementMillis;
+    private final String name;
+    private final String description;
+    private final String id;
+    private final String link;
+    private final String symbol;
+
+    private GeoPoint(Builder src) {
+        this.latitudeE7 = src.latitudeE7;
+        this.longitudeE7 = src.longitudeE7;
+        this.zoomMin = src.zoomMin;
+        this.zoomMax = src.zoomMax;
+        this.timeOfMeasurementMillis = src.timeOfMeasurementMillis;
+        this.name = src.name;
+        this.description = src.description;
+        this.id = src.id;
+        this.link = src.link;
+        this.symbol = src.symbol;
+    }
+
+    /** Returns src as {@link GeoPoint}: src itself if it already is one, else a copy. Null for null.
+     *
+     * @throws IllegalArgumentException if lat/lon or zoom of src cannot be represented. */
+    public static GeoPoint of(IGeoPointInfo src) {
+        if ((src == null) || (src instanceof GeoPoint)) return (GeoPoint) src;
+        return new Builder(src).build();
+    }
+
+    /** Create a new mutable {@link GeoPointDto} with the values of this. */
+    public GeoPointDto toDto() {
+        return toDto(new GeoPointDto());
+    }
+
+    /** Copies the values of this into dest. Used if dest is a custom subclass of {@link GeoPointDto}. */
+    public <TGeo extends GeoPointDto> TGeo toDto(TGeo dest) {
+        dest.setLatitude(getLatitude())
+                .setLongitude(getLongitude())
+                .setZoomMin(zoomMin)
+                .setZoomMax(zoomMax)
+                .setTimeOfMeasurementMillis(timeOfMeasurementMillis)
+                .setName(name)
+                .setDescription(description)
+                .setId(id)
+                .setLink(link)
+                .setSymbol(symbol);
+        return dest;
+    }
+
+    /** Create a {@link Builder} that is initialized with the values of this. */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /** Latitude, in degrees north. {@link #NO_LAT_LON} means "not set". */
+    @Override
+    public double getLatitude() {
+        return fromE7(latitudeE7);
+    }
+
+    /** Longitude, in degrees east. {@link #NO_LAT_LON} means "not set". */
+    @Override
+    public double getLongitude() {
+        return fromE7(longitudeE7);
+    }
+
+    /** Latitude, in 1/10^7 degrees north. {@link #NO_LAT_LON_E7} means "not set". */
+    public int getLatitudeE7() {
+        return latitudeE7;
+    }
+
+    /** Longitude, in 1/10^7 degrees east. {@link #NO_LAT_LON_E7} means "not set". */
+    public int getLongitudeE7() {
+        return longitudeE7;
+    }
+
+    @Override
+    public int getZoomMin() {
+        return zoomMin;
+    }
+
+    @Override
+    public int getZoomMax() {
+        return zoomMax;
+    }
+
+    /** Date when the measurement was taken. Null if unknown. Every call returns a new {@link Date}. */
+    @Override
+    public Date getTimeOfMeasurement() {
+        return (timeOfMeasurementMillis == NO_TIME) ? null : new Date(timeOfMeasurementMillis);
+    }
+
+    @Override
+    public long getTimeOfMeasurementMillis() {
+        return timeOfMeasurementMillis;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getLink() {
+        return link;
+    }
+
+    @Override
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /** Immutable: there is no need for a copy. */
+    @Override
+    public GeoPoint clone() {
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if ((other == null) || (other.getClass() != getClass())) return false;
+        GeoPoint o = (GeoPoint) other;
+        return (latitudeE7 == o.latitudeE7) && (longitudeE7 == o.longitudeE7)
+                && (zoomMin == o.zoomMin) && (zoomMax == o.zoomMax)
+                && (timeOfMeasurementMillis == o.timeOfMeasurementMillis)
+                && equals(name, o.name) && equals(description, o.description)
+                && equals(id, o.id) && equals(link, o.link) && equals(symbol, o.symbol);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = latitudeE7;
+        result = 31 * result + longitudeE7;
+        result = 31 * result + ((zoomMin << 8) | (zoomMax & 0xff));
+        result = 31 * result + (int) (timeOfMeasurementMillis ^ (timeOfMeasurementMillis >>> 32));
+        result = 31 * result + hashCode(name);
+        result = 31 * result + hashCode(description);
+        result = 31 * result + hashCode(id);
+        result = 31 * result + hashCode(link);
+        result = 31 * result + hashCode(symbol);
+        return result;
+    }
+
+    /** For display/debugging: Either the {@link #getName()} or #{@link #getId()}. */
+    @Override
+    public String toString() {
+        if (this.name != null) return this.name;
+        if (this.id != null) return "#" + this.id;
+        return super.toString();
+    }
+
+    /** Converts degrees to E7 fixed-point.
+     *
+     * @throws IllegalArgumentException if value is NaN or outside +/-214.7483647 degrees. */
+    public static int toE7(double value) {
+        if (value == NO_LAT_LON) return NO_LAT_LON_E7;
+        double e7 = Math.rint(value * E7);
+        if (!(e7 > Integer.MIN_VALUE) || (e7 > Integer.MAX_VALUE)) {
+            throw new IllegalArgumentException("lat/lon cannot be stored as E7: " + value);
+        }
+        return (int) e7;
+    }
+
+    /** Converts E7 fixed-point to degrees. */
+    public static double fromE7(int value) {
+        return (value == NO_LAT_LON_E7) ? NO_LAT_LON : value / E7;
+    }
+
+    private static byte toZoom(int zoom) {
+        if ((zoom < Byte.MIN_VALUE) || (zoom > Byte.MAX_VALUE)) {
+            throw new IllegalArgumentException("zoom cannot be stored as byte: " + zoom);
+        }
+        return (byte) zoom;
+    }
+
+    private static boolean equals(String lhs, String rhs) {
+        return (lhs == null) ? (rhs == null) : lhs.equals(rhs);
+    }
+
+    private static int hashCode(String value) {
+        return (value == null) ? 0 : value.hashCode();
+    }
+
+    /**
+     * Mutable builder for {@link GeoPoint}.
+     *
+     * The setters throw {@link IllegalArgumentException} for lat/lon or zoom that cannot be represented.
+     */
+    public static class Builder {
+        private int latitudeE7 = NO_LAT_LON_E7;
+        private int longitudeE7 = NO_LAT_LON_E7;
+        private byte zoomMin = NO_ZOOM;
+        private byte zoomMax = NO_ZOOM;
+        private long timeOfMeasurementMillis = NO_TIME;
+        private String name = null;
+        private String description = null;
+        private String id = null;
+        private String link = null;
+        private String symbol = null;
+
+        public Builder() {
+        }
+
+        /** Create a builder that is initialized with the values of src. */
+        public Builder(IGeoPointInfo src) {
+            if (src instanceof GeoPoint) {
+                GeoPoint point = (GeoPoint) src;
+                this.latitudeE7 = point.latitudeE7;
+                this.longitudeE7 = point.longitudeE7;
+            } else if (src != null) {
+                setLatitude(src.getLatitude());
+                setLongitude(src.getLongitude());
+            }
+            if (src != null) {
+                setZoomMin(src.getZoomMin());
+                setZoomMax(src.getZoomMax());
+                this.timeOfMeasurementMillis = src.getTimeOfMeasurementMillis();
+                this.name = src.getName();
+                this.description = src.getDescription();
+                this.id = src.getId();
+                this.link = src.getLink();
+                this.symbol = src.getSymbol();
+            }
+        }
+
+        /** Latitude, in degrees north. {@link #NO_LAT_LON} means "not set". */
+        public Builder setLatitude(double latitude) {
+            this.latitudeE7 = toE7(latitude);
+            return this;
+        }
+
+        /** Longitude, in degrees east. {@link #NO_LAT_LON} means "not set". */
+        public Builder setLongitude(double longitude) {
+            this.longitudeE7 = toE7(longitude);
+            return this;
+        }
+
+        /** Latitude, in 1/10^7 degrees north. {@link #NO_LAT_LON_E7} means "not set". */
+        public Builder setLatitudeE7(int latitudeE7) {
+            this.latitudeE7 = latitudeE7;
+            return this;
+        }
+
+        /** Longitude, in 1/10^7 degrees east. {@link #NO_LAT_LON_E7} means "not set". */
+        public Builder setLongitudeE7(int longitudeE7) {
+            this.longitudeE7 = longitudeE7;
+            return this;
+        }
+
+        /** Filter: This item is only shown if current zoom-level is >= this value. NO_ZOOM means no lower bound. */
+        public Builder setZoomMin(int zoomMin) {
+            this.zoomMin = toZoom(zoomMin);
+            return this;
+        }
+
+        /** Filter: This item is only shown if current zoom-level is <= this value. NO_ZOOM means no upper bound. */
+        public Builder setZoomMax(int zoomMax) {
+            this.zoomMax = toZoom(zoomMax);
+            return this;
+        }
+
+        /** Date when the measurement was taken. Null means unknown. */
+        public Builder setTimeOfMeasurement(Date timeOfMeasurement) {
+            this.timeOfMeasurementMillis = (timeOfMeasurement == null) ? NO_TIME : timeOfMeasurement.getTime();
+            return this;
+        }
+
+        /** Time when the measurement was taken in millisecs since 1970. {@link #NO_TIME} means unknown. */
+        public Builder setTimeOfMeasurementMillis(long timeOfMeasurementMillis) {
+            this.timeOfMeasurementMillis = timeOfMeasurementMillis;
+            return this;
+        }
+
+        /** Short non-unique text used as marker label. Null means "not set". */
+        public Builder setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /** Detailed description of the point displayed in popup on long-click. Null means "not set". */
+        public Builder setDescription(String description) {
+            this.description = description;
+            return this;
+        }
+
+        /** If not null: A unique id for this item. */
+        public Builder setId(String id) {
+            this.id = id;
+            return this;
+        }
+
+        /** If not null: Link-url belonging to this item. */
+        public Builder setLink(String link) {
+            this.link = link;
+            return this;
+        }
+
+        /** If not null: Icon-url belonging to this item. */
+        public Builder setSymbol(String symbol) {
+            this.symbol = symbol;
+            return this;
+        }
+
+        public GeoPoint build() {
+            return new GeoPoint(this);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.api;
+
+/**
+ * A fixed size columnar container for many geo points: lat, lon, zoom and time are stored in
+ * primitive arrays, the text fields in {@link String} arrays.
+ *
+ * Used as target of bulk parsing with {@link de.k3b.geo.io.GeoUri#parseAll(java.util.List, GeoPointBatch)}.
+ * Different threads may fill different indexes concurrently.
+ *
+ * ```java
+ * GeoPointBatch batch = new GeoPointBatch(uris.size());
+ * GeoUri.forOptions(GeoUri.OPT_DEFAULT).parseAll(uris, batch);
+ * double lat = batch.getLatitude(0);
+ * ```
+ */
+public class GeoPointBatch {
+    private final int size;
+
+    private final double[] latitude;
+    private final double[] longitude;
+    private final int[] zoomMin;
+    private final int[] zoomMax;
+    private final long[] time;
+
+    private final String[] name;
+    private final String[] description;
+    private final String[] id;
+    private final String[] link;
+    private final String[] symbol;
+
+    /** True if the item at index could not be parsed. */
+    private final boolean[] failed;
+
+    /** Creates a batch with size empty items */
+    public GeoPointBatch(int size) {
+        this.size = size;
+        latitude = new double[size];
+        longitude = new double[size];
+        zoomMin = new int[size];
+        zoomMax = new int[size];
+        time = new long[size];
+        name = new String[size];
+        description = new String[size];
+        id = new String[size];
+        link = new String[size];
+        symbol = new String[size];
+        failed = new boolean[size];
+        for (int index = 0; index < size; index++) {
+            clear(index);
+        }
+    }
+
+    /** Number of items */
+    public int size() {
+        return size;
+    }
+
+    /** Sets all fields of item index to "not set". */
+    public GeoPointBatch clear(int index) {
+        latitude[index] = IGeoPointInfo.NO_LAT_LON;
+        longitude[index] = IGeoPointInfo.NO_LAT_LON;
+        zoomMin[index] = IGeoPointInfo.NO_ZOOM;
+        zoomMax[index] = IGeoPointInfo.NO_ZOOM;
+        time[index] = ILocation.NO_TIME;
+        name[index] = null;
+        description[index] = null;
+        id[index] = null;
+        link[index] = null;
+        symbol[index] = null;
+        failed[index] = false;
+        return this;
+    }
+
+    /** Copies all fields of src into item index. */
+    public GeoPointBatch set(int index, IGeoPointInfo src) {
+        latitude[index] = src.getLatitude();
+        longitude[index] = src.getLongitude();
+        zoomMin[index] = src.getZoomMin();
+        zoomMax[index] = src.getZoomMax();
+        time[index] = src.getTimeOfMeasurementMillis();
+        name[index] = src.getName();
+        description[index] = src.getDescription();
+        id[index] = src.getId();
+        link[index] = src.getLink();
+        symbol[index] = src.getSymbol();
+        failed[index] = false;
+        return this;
+    }
+
+    /** Copies all fields of item index into dest. */
+    public GeoPointDto get(int index, GeoPointDto dest) {
+        return dest
+                .setLatitude(latitude[index])
+                .setLongitude(longitude[index])
+                .setZoomMin(zoomMin[index])
+                .setZoomMax(zoomMax[index])
+                .setTimeOfMeasurementMillis(time[index])
+                .setName(name[index])
+                .setDescription(description[index])
+                .setId(id[index])
+                .setLink(link[index])
+                .setSymbol(symbol[index]);
+    }
+
+    /** Marks item index as "could not be parsed" and clears its fields. */
+    public GeoPointBatch setFailed(int index) {
+        clear(index);
+        failed[index] = true;
+        return this;
+    }
+
+    /** True if item index could not be parsed. */
+    public boolean isFailed(int index) {
+        return failed[index];
+    }
+
+    /** Number of items that could not be parsed. */
+    public int getFailedCount() {
+        int result = 0;
+        for (boolean f : failed) {
+            if (f) result++;
+        }
+        return result;
+    }
+
+    /** Latitude, in degrees north. {@link IGeoPointInfo#NO_LAT_LON} means "not set" */
+    public double getLatitude(int index) {
+        return latitude[index];
+    }
+
+    /** Longitude, in degrees east. {@link IGeoPointInfo#NO_LAT_LON} means "not set" */
+    public double getLongitude(int index) {
+        return longitude[index];
+    }
+
+    /** {@link IGeoPointInfo#NO_ZOOM} means "not set" */
+    public int getZoomMin(int index) {
+        return zoomMin[index];
+    }
+
+    /** {@link IGeoPointInfo#NO_ZOOM} means "not set" */
+    public int getZoomMax(int index) {
+        return zoomMax[index];
+    }
+
+    /** Time of measurement in millisecs since 1970. {@link ILocation#NO_TIME} means "not set" */
+    public long getTime(int index) {
+        return time[index];
+    }
+
+    public String getName(int index) {
+        return name[index];
+    }
+
+    public String getDescription(int index) {
+        return description[index];
+    }
+
+    public String getId(int index) {
+        return id[index];
+    }
+
+    public String getLink(int index) {
+        return link[index];
+    }
+
+    public String getSymbol(int index) {
+        return symbol[index];
+    }
+}
@@ -32,7 +32,11 @@ public class GeoPointDto implements ILocation, IGeoPointInfo, Cloneable   {
     /** Longitude, in degrees east. {@link #NO_LAT_LON} means "not set" */
     private double longitude = NO_LAT_LON;
 
-    /** Date when the measurement was taken. Null if unknown. */
+    /** Time when the measurement was taken in millisecs since 1970. {@link #NO_TIME} if unknown. */
+    private long timeOfMeasurementMillis = NO_TIME;
+
+    /** Date when the measurement was taken. Created on demand from {@link #timeOfMeasurementMillis}.
+     * Null if unknown or not requested yet. */
     private Date timeOfMeasurement = null;
 
     /** Short non-unique text used as marker label. Null means "not set". */
@@ -88,7 +92,7 @@ public class GeoPointDto implements ILocation, IGeoPointInfo, Cloneable   {
         this.description = description;
         this.zoomMin = zoomMin;
         this.zoomMax = zoomMax;
-        this.timeOfMeasurement = timeOfMeasurement;
+        setTimeOfMeasurement(timeOfMeasurement);
     }
 
     public GeoPointDto(IGeoPointInfo src) {
@@ -102,7 +106,7 @@ public class GeoPointDto implements ILocation, IGeoPointInfo, Cloneable   {
             this.description = src.getDescription();
             this.zoomMin = src.getZoomMin();
             this.zoomMax = src.getZoomMax();
-            this.timeOfMeasurement = src.getTimeOfMeasurement();
+            this.timeOfMeasurementMillis = src.getTimeOfMeasurementMillis();
         }
     }
 
@@ -143,17 +147,41 @@ public class GeoPointDto implements ILocation, IGeoPointInfo, Cloneable   {
      * Null means unknown. */
     public GeoPointDto setTimeOfMeasurement(Date timeOfMeasurement) {
         this.timeOfMeasurement = timeOfMeasurement;
+        this.timeOfMeasurementMillis = (timeOfMeasurement == null) ? NO_TIME : timeOfMeasurement.getTime();
         return this;
     }
 
     /**
      * Date when the measurement was taken. Null if unknown.
+     *
+     * The {@link Date} is created on first access if the time was set via {@link #setTimeOfMeasurementMillis(long)}.
      */
     @Override
     public Date getTimeOfMeasurement() {
+        if ((timeOfMeasurement == null) && (timeOfMeasurementMillis != NO_TIME)) {
+            timeOfMeasurement = new Date(timeOfMeasurementMillis);
+        }
         return timeOfMeasurement;
     }
 
+    /** Time when the measurement was taken in millisecs since 1970.
+     *
+     * {@link #NO_TIME} means unknown. Other than {@link #setTimeOfMeasurement(Date)} no {@link Date} is created. */
+    public GeoPointDto setTimeOfMeasurementMillis(long timeOfMeasurementMillis) {
+        this.timeOfMeasurementMillis = timeOfMeasurementMillis;
+        this.timeOfMeasurement = null;
+        return this;
+    }
+
+    /**
+     * Time when the measurement was taken in millisecs since 1970. {@link #NO_TIME} if unknown.
+     */
+    @Override
+    public long getTimeOfMeasurementMillis() {
+        // the Date returned by getTimeOfMeasurement() is mutable
+        return (timeOfMeasurement != null) ? timeOfMeasurement.getTime() : timeOfMeasurementMillis;
+    }
+
     /**
      * Short non-unique text used as marker label. Null means "not set".
      */
@@ -286,6 +314,7 @@ public class GeoPointDto implements ILocation, IGeoPointInfo, Cloneable   {
         this.description = null;
         this.zoomMin = NO_ZOOM;
         this.zoomMax = NO_ZOOM;
+        this.timeOfMeasurementMillis = NO_TIME;
         this.timeOfMeasurement = null;
         return this;
     }
@@ -297,6 +326,9 @@ public class GeoPointDto implements ILocation, IGeoPointInfo, Cloneable   {
     public GeoPointDto clone() {
         try {
             GeoPointDto result = (GeoPointDto) super.clone();
+            // the copy gets its own Date on demand
+            result.timeOfMeasurementMillis = getTimeOfMeasurementMillis();
+            result.timeOfMeasurement = null;
             return result;
         } catch (CloneNotSupportedException e) {
             e.printStackTrace();
@@ -332,6 +364,9 @@ public class GeoPointDto implements ILocation, IGeoPointInfo, Cloneable   {
         return ((latitude == 0.0f) && (longitude == 0.0f));
     }
 
+    /** True if other is an {@link IGeoPointInfo} with the same id or, without id, the same lat/lon.
+     *
+     * This is not symmetric for every {@link IGeoPointInfo}: a {@link GeoPoint} only equals other {@link GeoPoint}-s. */
     @Override
     public boolean equals(Object other) {
         if ((other == null) || !(other instanceof IGeoPointInfo)) return false;
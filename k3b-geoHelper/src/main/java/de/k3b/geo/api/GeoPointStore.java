@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.api;
+
+import java.util.Arrays;
+
+/**
+ * A growable columnar list of geo points: lat, lon, time and zoom are stored in primitive
+ * arrays, the text fields in {@link String} arrays that are only allocated when the first
+ * value is set. A point does not cost an object of its own.
+ *
+ * {@link #get(int)} returns a flyweight view of the point at an index. {@link #cursor()}
+ * returns one reusable view for allocation-free iteration:
+ *
+ * ```java
+ * GeoPointStore store = new GeoPointStore();
+ * new GpxReader<IGeoPointInfo>().getTracks(in, store);
+ * for (GeoPointStore.Cursor point = store.cursor(); point.next();) {
+ *     double lat = point.getLatitude();
+ * }
+ * ```
+ *
+ * {@link #add(IGeoPointInfo)} and {@link #set(int, IGeoPointInfo)} copy the values of the point.
+ * Views are bound to an index: after {@link #remove(int)} they show the point that moved there.
+ * Views of this store that are added or set are copied before any value moves.
+ * Instances are not thread safe.
+ */
+public class GeoPointStore extends AbstractGeoPointStore {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int size = 0;
+
+    private double[] latitude;
+    private double[] longitude;
+    private long[] time;
+    private int[] zoomMin;
+    private int[] zoomMax;
+
+    /* Created when the first value is set */
+    private String[] name = null;
+    private String[] description = null;
+    private String[] id = null;
+    private String[] link = null;
+    private String[] symbol = null;
+
+    public GeoPointStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** Create an empty store that can hold capacity points before it has to grow. */
+    public GeoPointStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        latitude = new double[capacity];
+        longitude = new double[capacity];
+        time = new long[capacity];
+        zoomMin = new int[capacity];
+        zoomMax = new int[capacity];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** Appends a copy of point. */
+    @Override
+    public boolean add(IGeoPointInfo point) {
+        ensureCapacity(size + 1);
+        setValues(size++, point);
+        modCount++;
+        return true;
+    }
+
+    /** Inserts a copy of point at index. */
+    @Override
+    public void add(int index, IGeoPointInfo point) {
+        if ((index < 0) || (index > size)) throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        point = detach(point);
+        ensureCapacity(size + 1);
+        move(index, index + 1, size - index);
+        size++;
+        setValues(index, point);
+        modCount++;
+    }
+
+    /** Replaces the point at index with a copy of point.
+     *
+     * @return a {@link GeoPointDto} with the previous values. */
+    @Override
+    public IGeoPointInfo set(int index, IGeoPointInfo point) {
+        checkIndex(index);
+        point = detach(point);
+        GeoPointDto previous = get(index, new GeoPointDto());
+        setValues(index, point);
+        return previous;
+    }
+
+    /** Removes the point at index.
+     *
+     * @return a {@link GeoPointDto} with the values of the removed point. */
+    @Override
+    public IGeoPointInfo remove(int index) {
+        checkIndex(index);
+        GeoPointDto previous = get(index, new GeoPointDto());
+        move(index + 1, index, size - index - 1);
+        size--;
+        clearStrings(size);
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        for (int index = 0; index < size; index++) {
+            clearStrings(index);
+        }
+        size = 0;
+        modCount++;
+    }
+
+    /** Makes sure that capacity points fit without growing. */
+    public void ensureCapacity(int capacity) {
+        int current = latitude.length;
+        if (capacity > current) {
+            resize(Math.max(capacity, current + (current >> 1)));
+        }
+    }
+
+    /** Frees the unused capacity. */
+    public void trimToSize() {
+        if (size < latitude.length) resize(Math.max(size, 1));
+    }
+
+    @Override
+    public double getLatitude(int index) {
+        return latitude[index];
+    }
+
+    @Override
+    public double getLongitude(int index) {
+        return longitude[index];
+    }
+
+    @Override
+    public int getZoomMin(int index) {
+        return zoomMin[index];
+    }
+
+    @Override
+    public int getZoomMax(int index) {
+        return zoomMax[index];
+    }
+
+    @Override
+    public long getTime(int index) {
+        return time[index];
+    }
+
+    @Override
+    public String getName(int index) {
+        return (name == null) ? null : name[index];
+    }
+
+    @Override
+    public String getDescription(int index) {
+        return (description == null) ? null : description[index];
+    }
+
+    @Override
+    public String getId(int index) {
+        return (id == null) ? null : id[index];
+    }
+
+    @Override
+    public String getLink(int index) {
+        return (link == null) ? null : link[index];
+    }
+
+    @Override
+    public String getSymbol(int index) {
+        return (symbol == null) ? null : symbol[index];
+    }
+
+    private void setValues(int index, IGeoPointInfo src) {
+        latitude[index] = src.getLatitude();
+        longitude[index] = src.getLongitude();
+        zoomMin[index] = src.getZoomMin();
+        zoomMax[index] = src.getZoomMax();
+        time[index] = src.getTimeOfMeasurementMillis();
+        name = set(name, index, src.getName());
+        description = set(description, index, src.getDescription());
+        id = set(id, index, src.getId());
+        link = set(link, index, src.getLink());
+        symbol = set(symbol, index, src.getSymbol());
+    }
+
+    /** Sets column[index] to value. Returns the column that is created on demand. */
+    private String[] set(String[] column, int index, String value) {
+        if (column == null) {
+            if (value == null) return null;
+            column = new String[latitude.length];
+        }
+        column[index] = value;
+        return column;
+    }
+
+    private void clearStrings(int index) {
+        if (name != null) name[index] = null;
+        if (description != null) description[index] = null;
+        if (id != null) id[index] = null;
+        if (link != null) link[index] = null;
+        if (symbol != null) symbol[index] = null;
+    }
+
+    /** Moves count points from index from to index to. */
+    private void move(int from, int to, int count) {
+        System.arraycopy(latitude, from, latitude, to, count);
+        System.arraycopy(longitude, from, longitude, to, count);
+        System.arraycopy(time, from, time, to, count);
+        System.arraycopy(zoomMin, from, zoomMin, to, count);
+        System.arraycopy(zoomMax, from, zoomMax, to, count);
+        if (name != null) System.arraycopy(name, from, name, to, count);
+        if (description != null) System.arraycopy(description, from, description, to, count);
+        if (id != null) System.arraycopy(id, from, id, to, count);
+        if (link != null) System.arraycopy(link, from, link, to, count);
+        if (symbol != null) System.arraycopy(symbol, from, symbol, to, count);
+    }
+
+    private void resize(int capacity) {
+        latitude = Arrays.copyOf(latitude, capacity);
+        longitude = Arrays.copyOf(longitude, capacity);
+        time = Arrays.copyOf(time, capacity);
+        zoomMin = Arrays.copyOf(zoomMin, capacity);
+        zoomMax = Arrays.copyOf(zoomMax, capacity);
+        if (name != null) name = Arrays.copyOf(name, capacity);
+        if (description != null) description = Arrays.copyOf(description, capacity);
+        if (id != null) id = Arrays.copyOf(id, capacity);
+        if (link != null) link = Arrays.copyOf(link, capacity);
+        if (symbol != null) symbol = Arrays.copyOf(symbol, capacity);
+    }
+
+}
@@ -66,6 +66,11 @@ public interface IGeoPointInfo extends ILocation, Cloneable  {
      * persistet in geo-uri as geo:...&t=2015-03-24T15:39:52z  */
     Date getTimeOfMeasurement();
 
+    /** Optional: Same as {@link #getTimeOfMeasurement()} in millisecs since 1970.
+     * {@link #NO_TIME} if unknown.<br/>
+     * Sorting or filtering by date range does not need a {@link Date} per point.  */
+    long getTimeOfMeasurementMillis();
+
     /** Optional: Short non-unique text used as marker label. <br/>
      * Null if not set.<br/>
      * In show view after clicking on a marker: Caption/Title in the bubble.<br/>
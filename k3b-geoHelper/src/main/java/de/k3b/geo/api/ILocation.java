@@ -28,10 +28,16 @@ import java.util.Date;
  * Created by k3b on 11.05.2014.
  */
 public interface ILocation {
+    /** Value of {@link #getTimeOfMeasurementMillis()} if the time of measurement is unknown */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
     /** Get the latitude, in degrees north. */
     double getLatitude();
     /** Get the longitude, in degrees east. */
     double getLongitude();
     /** Get the date when the measurement was taken. Null if unknown. */
     Date getTimeOfMeasurement();
+    /** Get the time when the measurement was taken in millisecs since 1970. {@link #NO_TIME} if unknown.
+     * Same as {@link #getTimeOfMeasurement()} without creating a {@link Date}. */
+    long getTimeOfMeasurementMillis();
 }
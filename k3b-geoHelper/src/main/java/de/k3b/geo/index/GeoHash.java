@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.index;
+
+import java.util.Arrays;
+
+import de.k3b.geo.api.ILocation;
+
+/**
+ * Encodes lat/lon as [geohash](https://en.wikipedia.org/wiki/Geohash).
+ *
+ * The binary form is a long that holds 5 bits per geohash character in its lowest bits.
+ * Encoding and decoding the long does not allocate. Points close to each other usually share a
+ * long common prefix so geohashes are cheap keys for sorting, sharding and caching.
+ *
+ * ```java
+ * long hash = GeoHash.encode(57.64911, 10.40744, 11);
+ * String text = GeoHash.toString(hash, 11); // "u4pruydqqvj"
+ * ```
+ */
+public final class GeoHash {
+    /** Maximum number of geohash characters that fit into a long */
+    public static final int MAX_PRECISION = 12;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    /** Value of a base32 char - '0' or -1 if not valid */
+    private static final byte[] BASE32_VALUE = new byte['z' - '0' + 1];
+
+    static {
+        Arrays.fill(BASE32_VALUE, (byte) -1);
+        for (int i = 0; i < BASE32.length; i++) {
+            BASE32_VALUE[BASE32[i] - '0'] = (byte) i;
+        }
+    }
+
+    private GeoHash() {
+    }
+
+    /** Geohash of location with precision characters (1..{@link #MAX_PRECISION}). */
+    public static long encode(ILocation location, int precision) {
+        return encode(location.getLatitude(), location.getLongitude(), precision);
+    }
+
+    /** Geohash of latitude/longitude with precision characters (1..{@link #MAX_PRECISION}). */
+    public static long encode(double latitude, double longitude, int precision) {
+        checkPrecision(precision);
+        int bits = 5 * precision;
+
+        // longitude gets the odd bit if bits is odd. it is dropped at the end.
+        int bitsPerCoordinate = (bits + 1) / 2;
+        long latitudeBits = quantize(latitude, -90, 180, bitsPerCoordinate);
+        long longitudeBits = quantize(longitude, -180, 360, bitsPerCoordinate);
+        long hash = (MortonCode.spread(longitudeBits) << 1) | MortonCode.spread(latitudeBits);
+        return hash >>> (2 * bitsPerCoordinate - bits);
+    }
+
+    /** Latitude of the center of the geohash cell. */
+    public static double decodeLatitude(long hash, int precision) {
+        checkPrecision(precision);
+        int bits = 5 * precision;
+        int latitudeBits = bits / 2;
+        long latitude = MortonCode.compact(hash << (bits % 2)) >>> (bits % 2);
+        return -90 + (latitude + 0.5) * 180 / (1L << latitudeBits);
+    }
+
+    /** Longitude of the center of the geohash cell. */
+    public static double decodeLongitude(long hash, int precision) {
+        checkPrecision(precision);
+        int bits = 5 * precision;
+        int longitudeBits = (bits + 1) / 2;
+        long longitude = MortonCode.compact((hash << (bits % 2)) >>> 1);
+        return -180 + (longitude + 0.5) * 360 / (1L << longitudeBits);
+    }
+
+    /** Returns the geohash of the cell that contains the cell hash and has precision characters. */
+    public static long getParent(long hash, int hashPrecision, int precision) {
+        return hash >>> (5 * (hashPrecision - precision));
+    }
+
+    /** Base32 text of hash with precision characters. */
+    public static String toString(long hash, int precision) {
+        return append(new StringBuilder(precision), hash, precision).toString();
+    }
+
+    /** Appends the base32 text of hash with precision characters to result. */
+    public static StringBuilder append(StringBuilder result, long hash, int precision) {
+        checkPrecision(precision);
+        for (int shift = 5 * (precision - 1); shift >= 0; shift -= 5) {
+            result.append(BASE32[(int) ((hash >>> shift) & 31)]);
+        }
+        return result;
+    }
+
+    /** Parses the base32 text of a geohash. The precision is text.length().
+     *
+     * @throws IllegalArgumentException if text is not a valid geohash. */
+    public static long fromString(CharSequence text) {
+        int precision = text.length();
+        checkPrecision(precision);
+        long hash = 0;
+        for (int i = 0; i < precision; i++) {
+            char c = text.charAt(i);
+            int value = ((c >= '0') && (c <= 'z')) ? BASE32_VALUE[c - '0'] : -1;
+            if (value < 0) throw new IllegalArgumentException("not a geohash: " + text);
+            hash = (hash << 5) | value;
+        }
+        return hash;
+    }
+
+    /** Maps value from [min, min + range] to [0, 2^bits - 1] */
+    private static long quantize(double value, double min, double range, int bits) {
+        long max = (1L << bits) - 1;
+        long result = (long) Math.floor((value - min) / range * (1L << bits));
+        return (result < 0) ? 0 : Math.min(result, max);
+    }
+
+    private static void checkPrecision(int precision) {
+        if ((precision < 1) || (precision > MAX_PRECISION)) {
+            throw new IllegalArgumentException("geohash precision must be 1.." + MAX_PRECISION + ": " + precision);
+        }
+    }
+}
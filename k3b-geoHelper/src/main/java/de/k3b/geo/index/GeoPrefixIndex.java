@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import de.k3b.geo.api.IGeoPointInfo;
+
+/**
+ * Points sorted by their {@link QuadKey} of level {@link QuadKey#MAX_LEVEL}.
+ *
+ * All points of a tile (of any level) form one range that is found by binary search.
+ * A viewport query at zoom level z scans the few ranges of the tiles of quadkey level z that
+ * cover the viewport and keeps the points that are inside and visible at z
+ * according to {@link IGeoPointInfo#getZoomMin()} and {@link IGeoPointInfo#getZoomMax()}.
+ * A viewport with minLongitude > maxLongitude crosses the antimeridian and is scanned as two parts.
+ *
+ * The zoom of a query chooses the quadkey level of the scanned tiles. zoomMin and zoomMax of the
+ * points are not part of the key: all points are keyed at {@link #LEVEL} and the zoom limits are
+ * checked per point of the scanned ranges. Keying each point at the level of its zoomMin would
+ * need one range scan per level and would not help zoomMax.
+ *
+ * ```java
+ * GeoPrefixIndex<GeoPointDto> index = new GeoPrefixIndex<>(repository.load());
+ * List<GeoPointDto> visible = index.query(52.0, 9.1, 52.2, 9.3, 14, new ArrayList<GeoPointDto>());
+ * ```
+ *
+ * The index is a snapshot: points without lat/lon are not indexed and later changes
+ * of the points or the collection require a new index.
+ */
+public class GeoPrefixIndex<T extends IGeoPointInfo> {
+    /** Quadkey level of the sort keys */
+    public static final int LEVEL = QuadKey.MAX_LEVEL;
+
+    /** A viewport query uses a lower quadkey level if it would need more tiles than this. */
+    public static final int MAX_QUERY_TILES = 64;
+
+    /** Sorted quadkeys of level {@link #LEVEL} */
+    private final long[] keys;
+
+    /** points.get(i) belongs to keys[i] */
+    private final List<T> points;
+
+    /** Create an index of points. */
+    public GeoPrefixIndex(Collection<? extends T> points) {
+        List<Entry<T>> entries = new ArrayList<>(points.size());
+        for (T point : points) {
+            if ((point != null) && (point.getLatitude() != IGeoPointInfo.NO_LAT_LON)
+                    && (point.getLongitude() != IGeoPointInfo.NO_LAT_LON)) {
+                entries.add(new Entry<T>(QuadKey.encode(point, LEVEL), point));
+            }
+        }
+        Collections.sort(entries, BY_KEY);
+
+        this.keys = new long[entries.size()];
+        this.points = new ArrayList<>(entries.size());
+        for (int i = 0; i < keys.length; i++) {
+            Entry<T> entry = entries.get(i);
+            this.keys[i] = entry.key;
+            this.points.add(entry.point);
+        }
+    }
+
+    /** Number of indexed points */
+    public int size() {
+        return keys.length;
+    }
+
+    /** The point at position index in quadkey order. */
+    public T get(int index) {
+        return points.get(index);
+    }
+
+    /** The quadkey of level {@link #LEVEL} of the point at position index. */
+    public long getKey(int index) {
+        return keys[index];
+    }
+
+    /** Position of the first point inside the tile quadKey of level or behind it. */
+    public int indexOf(long quadKey, int level) {
+        return lowerBound(quadKey << (2 * (LEVEL - level)));
+    }
+
+    /** Adds all points inside the tile quadKey of level to result.
+     *
+     * @return result */
+    public List<T> getTile(long quadKey, int level, List<T> result) {
+        return getTiles(quadKey, quadKey, level, result);
+    }
+
+    /** Adds all points of the tiles fromQuadKey..toQuadKey (inclusive) of level to result.
+     *
+     * @return result */
+    public List<T> getTiles(long fromQuadKey, long toQuadKey, int level, List<T> result) {
+        int end = indexOf(toQuadKey + 1, level);
+        for (int i = indexOf(fromQuadKey, level); i < end; i++) {
+            result.add(points.get(i));
+        }
+        return result;
+    }
+
+    /** Adds all points inside the viewport that are visible at zoom to result.
+     *
+     * The order of the latitudes does not matter. minLongitude > maxLongitude means that the
+     * viewport crosses the antimeridian.
+     *
+     * @return result
+     * @throws IllegalArgumentException if a coordinate is not a number. */
+    public List<T> query(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                         int zoom, List<T> result) {
+        if (Double.isNaN(minLatitude) || Double.isNaN(minLongitude)
+                || Double.isNaN(maxLatitude) || Double.isNaN(maxLongitude)) {
+            throw new IllegalArgumentException("viewport " + minLatitude + "," + minLongitude
+                    + " .. " + maxLatitude + "," + maxLongitude + " is not a number");
+        }
+        double south = Math.min(minLatitude, maxLatitude);
+        double north = Math.max(minLatitude, maxLatitude);
+        if (minLongitude > maxLongitude) {
+            // east and west of the antimeridian
+            queryRanges(south, minLongitude, north, 180, zoom, result);
+            return queryRanges(south, -180, north, maxLongitude, zoom, result);
+        }
+        return queryRanges(south, minLongitude, north, maxLongitude, zoom, result);
+    }
+
+    /** Implementation detail: {@link #query(double, double, double, double, int, List)}
+     * for a viewport with min <= max. */
+    private List<T> queryRanges(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                                int zoom, List<T> result) {
+        // tiles of the viewport. tile rows count from north to south.
+        int level = Math.max(0, Math.min(zoom, LEVEL));
+        int minX = QuadKey.getTileX(minLongitude, level);
+        int maxX = QuadKey.getTileX(maxLongitude, level);
+        int minY = QuadKey.getTileY(maxLatitude, level);
+        int maxY = QuadKey.getTileY(minLatitude, level);
+        while ((level > 0) && ((long) (maxX - minX + 1) * (maxY - minY + 1) > MAX_QUERY_TILES)) {
+            level--;
+            minX >>= 1;
+            maxX >>= 1;
+            minY >>= 1;
+            maxY >>= 1;
+        }
+
+        long[] tiles = new long[(maxX - minX + 1) * (maxY - minY + 1)];
+        int count = 0;
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                tiles[count++] = QuadKey.fromTile(x, y, level);
+            }
+        }
+        Arrays.sort(tiles);
+
+        // neighbour tiles in z-order are scanned as one range
+        int rangeStart = 0;
+        for (int i = 1; i <= count; i++) {
+            if ((i == count) || (tiles[i] != tiles[i - 1] + 1)) {
+                int end = indexOf(tiles[i - 1] + 1, level);
+                for (int p = indexOf(tiles[rangeStart], level); p < end; p++) {
+                    T point = points.get(p);
+                    if (isInside(point, minLatitude, minLongitude, maxLatitude, maxLongitude) && isVisible(point, zoom)) {
+                        result.add(point);
+                    }
+                }
+                rangeStart = i;
+            }
+        }
+        return result;
+    }
+
+    /** True if point is shown at zoom: {@link IGeoPointInfo#NO_ZOOM} means no limit. */
+    public static boolean isVisible(IGeoPointInfo point, int zoom) {
+        return isVisible(point.getZoomMin(), point.getZoomMax(), zoom);
+    }
+
+    /** True if zoom is inside zoomMin..zoomMax: {@link IGeoPointInfo#NO_ZOOM} means no limit. */
+    public static boolean isVisible(int zoomMin, int zoomMax, int zoom) {
+        return ((zoomMin == IGeoPointInfo.NO_ZOOM) || (zoomMin <= zoom))
+                && ((zoomMax == IGeoPointInfo.NO_ZOOM) || (zoom <= zoomMax));
+    }
+
+    private static boolean isInside(IGeoPointInfo point, double minLatitude, double minLongitude,
+                                    double maxLatitude, double maxLongitude) {
+        double latitude = point.getLatitude();
+        double longitude = point.getLongitude();
+        return (minLatitude <= latitude) && (latitude <= maxLatitude)
+                && (minLongitude <= longitude) && (longitude <= maxLongitude);
+    }
+
+    /** Position of the first key >= key */
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static final Comparator<Entry<?>> BY_KEY = new Comparator<Entry<?>>() {
+        @Override
+        public int compare(Entry<?> lhs, Entry<?> rhs) {
+            return (lhs.key < rhs.key) ? -1 : ((lhs.key == rhs.key) ? 0 : 1);
+        }
+    };
+
+    private static final class Entry<T> {
+        final long key;
+        final T point;
+
+        Entry(long key, T point) {
+            this.key = key;
+            this.point = point;
+        }
+    }
+}
@@ -0,0 +1,436 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import de.k3b.geo.api.GeoPointDto;
+import de.k3b.geo.api.IGeoPointInfo;
+import de.k3b.geo.io.GeoUri;
+
+/**
+ * An R-tree over {@link IGeoPointInfo}-s that answers "which points are inside this area"
+ * without scanning all points.
+ *
+ * {@link #GeoRTree(Collection, int)} packs the tree with Sort-Tile-Recursive bulk loading.
+ * {@link #insert(IGeoPointInfo)} and {@link #remove(IGeoPointInfo)} keep it up to date afterwards.
+ *
+ * ```java
+ * GeoRTree<GeoPointDto> index = new GeoRTree<>(repository.load(), GeoRTree.DEFAULT_MAX_ENTRIES);
+ * List<GeoPointDto> visible = index.query("geoarea:52.2,9.3,52.0,9.1", new ArrayList<GeoPointDto>());
+ * ```
+ *
+ * Points without lat/lon are not indexed. The index keeps the coordinates a point had when it was added:
+ * a point that is moved must be removed before and inserted after the change.
+ * Instances are not thread safe.
+ */
+public class GeoRTree<T extends IGeoPointInfo> {
+    /** Default maximum number of children of a tree node */
+    public static final int DEFAULT_MAX_ENTRIES = 16;
+
+    private final int maxEntries;
+    private final int minEntries;
+
+    private Node root;
+    private int size = 0;
+
+    /** Create an empty tree. */
+    public GeoRTree() {
+        this(null, DEFAULT_MAX_ENTRIES);
+    }
+
+    /** Create a tree that is bulk loaded with points.
+     *
+     * @param maxEntries maximum number of children of a tree node. At least 4. */
+    public GeoRTree(Collection<? extends T> points, int maxEntries) {
+        if (maxEntries < 4) throw new IllegalArgumentException("maxEntries must be at least 4: " + maxEntries);
+        this.maxEntries = maxEntries;
+        this.minEntries = Math.max(2, maxEntries * 2 / 5);
+        this.root = new Node(true, maxEntries);
+
+        if (points != null) {
+            List<Box> entries = new ArrayList<>(points.size());
+            for (T point : points) {
+                if (hasLatLon(point)) entries.add(new Entry(point));
+            }
+            size = entries.size();
+            if (size > 0) root = pack(entries, true);
+        }
+    }
+
+    /** Number of indexed points */
+    public int size() {
+        return size;
+    }
+
+    /** Removes all points. */
+    public void clear() {
+        root = new Node(true, maxEntries);
+        size = 0;
+    }
+
+    /** Adds point to the index.
+     *
+     * @return false if point has no lat/lon. */
+    public boolean insert(T point) {
+        if (!hasLatLon(point)) return false;
+        Node sibling = insert(root, new Entry(point));
+        if (sibling != null) {
+            // root was split
+            Node newRoot = new Node(false, maxEntries);
+            newRoot.add(root);
+            newRoot.add(sibling);
+            root = newRoot;
+        }
+        size++;
+        return true;
+    }
+
+    /** Removes point (the same instance that was added) from the index.
+     *
+     * @return false if point is not in the index. */
+    public boolean remove(T point) {
+        if (!hasLatLon(point)) return false;
+        List<Box> orphans = new ArrayList<>();
+        if (!remove(root, point, point.getLatitude(), point.getLongitude(), orphans)) return false;
+        size--;
+
+        // shrink the tree if the root has only one child left
+        while (!root.leaf && (root.count == 1)) {
+            root = (Node) root.children[0];
+        }
+        if (root.count == 0) root = new Node(true, maxEntries);
+
+        // points of underfull nodes that were dissolved
+        for (Box orphan : orphans) {
+            size--;
+            insert(pointOf(orphan));
+        }
+        return true;
+    }
+
+    /** Adds all points inside the area between the two corners to result.
+     *
+     * The order of the latitudes does not matter. The area reaches east from the longitude of
+     * southWest to the longitude of northEast: if that is smaller the area crosses the antimeridian.
+     *
+     * @return result */
+    public List<T> query(IGeoPointInfo northEast, IGeoPointInfo southWest, List<T> result) {
+        return query(southWest.getLatitude(), southWest.getLongitude(),
+                northEast.getLatitude(), northEast.getLongitude(), result);
+    }
+
+    /** Adds all points inside the area of a {@link GeoUri#AREA_SCHEME} uri to result.
+     *
+     * @return result
+     * @throws IllegalArgumentException if areaUri is not a valid geoarea: uri. */
+    public List<T> query(String areaUri, List<T> result) {
+        GeoPointDto[] corners = GeoUri.forOptions(GeoUri.OPT_DEFAULT).fromUri(areaUri,
+                new GeoPointDto[] {new GeoPointDto(), new GeoPointDto()});
+        if (corners == null) throw new IllegalArgumentException("not a geoarea uri: " + areaUri);
+        return query(corners[0], corners[1], result);
+    }
+
+    /** Adds all points with minLatitude <= latitude <= maxLatitude and
+     * minLongitude <= longitude <= maxLongitude to result.
+     *
+     * The order of the latitudes does not matter. minLongitude > maxLongitude means that the
+     * area crosses the antimeridian.
+     *
+     * @return result
+     * @throws IllegalArgumentException if a coordinate is not a number. */
+    public List<T> query(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude, List<T> result) {
+        if (Double.isNaN(minLatitude) || Double.isNaN(minLongitude)
+                || Double.isNaN(maxLatitude) || Double.isNaN(maxLongitude)) {
+            throw new IllegalArgumentException("area " + minLatitude + "," + minLongitude
+                    + " .. " + maxLatitude + "," + maxLongitude + " is not a number");
+        }
+        double south = Math.min(minLatitude, maxLatitude);
+        double north = Math.max(minLatitude, maxLatitude);
+        if (minLongitude > maxLongitude) {
+            // east and west of the antimeridian
+            queryBox(south, minLongitude, north, 180, result);
+            return queryBox(south, -180, north, maxLongitude, result);
+        }
+        return queryBox(south, minLongitude, north, maxLongitude, result);
+    }
+
+    /** Implementation detail: {@link #query(double, double, double, double, List)} for an area with min <= max. */
+    private List<T> queryBox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude, List<T> result) {
+        if ((root.count > 0) && root.intersects(minLatitude, minLongitude, maxLatitude, maxLongitude)) {
+            query(root, minLatitude, minLongitude, maxLatitude, maxLongitude, result);
+        }
+        return result;
+    }
+
+    private void query(Node node, double minLatitude, double minLongitude, double maxLatitude, double maxLongitude, List<T> result) {
+        for (int i = 0; i < node.count; i++) {
+            Box child = node.children[i];
+            if (child.within(minLatitude, minLongitude, maxLatitude, maxLongitude)) {
+                // no need to check the points of a node that is completely inside
+                addAll(child, result);
+            } else if (!node.leaf && child.intersects(minLatitude, minLongitude, maxLatitude, maxLongitude)) {
+                query((Node) child, minLatitude, minLongitude, maxLatitude, maxLongitude, result);
+            }
+        }
+    }
+
+    private void addAll(Box box, List<T> result) {
+        if (box instanceof Entry) {
+            result.add(pointOf(box));
+        } else {
+            Node node = (Node) box;
+            for (int i = 0; i < node.count; i++) {
+                addAll(node.children[i], result);
+            }
+        }
+    }
+
+    /** Sort-Tile-Recursive: packs boxes into nodes level by level until one root is left. */
+    private Node pack(List<Box> boxes, boolean leaf) {
+        int nodeCount = (boxes.size() + maxEntries - 1) / maxEntries;
+        int sliceCount = (int) Math.ceil(Math.sqrt(nodeCount));
+        int sliceSize = sliceCount * maxEntries;
+
+        Box[] sorted = boxes.toArray(new Box[boxes.size()]);
+        Arrays.sort(sorted, BY_LONGITUDE);
+
+        List<Box> nodes = new ArrayList<>(nodeCount);
+        for (int sliceStart = 0; sliceStart < sorted.length; sliceStart += sliceSize) {
+            int sliceEnd = Math.min(sliceStart + sliceSize, sorted.length);
+            Arrays.sort(sorted, sliceStart, sliceEnd, BY_LATITUDE);
+            for (int nodeStart = sliceStart; nodeStart < sliceEnd; nodeStart += maxEntries) {
+                Node node = new Node(leaf, maxEntries);
+                for (int i = nodeStart; i < Math.min(nodeStart + maxEntries, sliceEnd); i++) {
+                    node.add(sorted[i]);
+                }
+                nodes.add(node);
+            }
+        }
+        return (nodes.size() == 1) ? (Node) nodes.get(0) : pack(nodes, false);
+    }
+
+    /** Adds entry below node.
+     *
+     * @return the new sibling if node had to be split or null. */
+    private Node insert(Node node, Entry entry) {
+        Box child = entry;
+        if (!node.leaf) {
+            Node best = chooseSubtree(node, entry);
+            child = insert(best, entry);
+            if (child == null) {
+                node.include(entry);
+                return null;
+            }
+            node.recalculate();
+        }
+
+        node.add(child);
+        return (node.count > maxEntries) ? split(node) : null;
+    }
+
+    /** The child that needs the least enlargement to include entry. Ties are resolved by the smaller area. */
+    private static Node chooseSubtree(Node node, Box entry) {
+        Node best = null;
+        double bestEnlargement = Double.POSITIVE_INFINITY;
+        double bestArea = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < node.count; i++) {
+            Node candidate = (Node) node.children[i];
+            double area = candidate.area();
+            double enlargement = candidate.enlargedArea(entry) - area;
+            if ((enlargement < bestEnlargement) || ((enlargement == bestEnlargement) && (area < bestArea))) {
+                best = candidate;
+                bestEnlargement = enlargement;
+                bestArea = area;
+            }
+        }
+        return best;
+    }
+
+    /** Splits an overfull node along its longer side.
+     *
+     * @return the new sibling that holds the upper half. */
+    private Node split(Node node) {
+        Comparator<Box> order = ((node.maxLatitude - node.minLatitude) > (node.maxLongitude - node.minLongitude))
+                ? BY_LATITUDE : BY_LONGITUDE;
+        Box[] children = Arrays.copyOf(node.children, node.count);
+        Arrays.sort(children, order);
+
+        int half = children.length / 2;
+        Node sibling = new Node(node.leaf, maxEntries);
+        node.count = 0;
+        for (int i = 0; i < children.length; i++) {
+            node.children[i] = null;
+            if (i < half) {
+                node.add(children[i]);
+            } else {
+                sibling.add(children[i]);
+            }
+        }
+        return sibling;
+    }
+
+    /** Removes point below node. Underfull nodes on the path are dissolved and their points collected in orphans.
+     *
+     * @return true if found. */
+    private boolean remove(Node node, Object point, double latitude, double longitude, List<Box> orphans) {
+        for (int i = 0; i < node.count; i++) {
+            Box child = node.children[i];
+            if (!child.contains(latitude, longitude)) continue;
+
+            if (node.leaf) {
+                if (((Entry) child).point != point) continue;
+                node.removeAt(i);
+            } else {
+                Node childNode = (Node) child;
+                if (!remove(childNode, point, latitude, longitude, orphans)) continue;
+                if (childNode.count < minEntries) {
+                    addAllEntries(childNode, orphans);
+                    node.removeAt(i);
+                }
+            }
+            node.recalculate();
+            return true;
+        }
+        return false;
+    }
+
+    /** Implementation detail: The point of entry. */
+    @SuppressWarnings("unchecked") // Entry-s are only created for points of type T
+    private T pointOf(Box entry) {
+        return (T) ((Entry) entry).point;
+    }
+
+    private static void addAllEntries(Box box, List<Box> result) {
+        if (box instanceof Entry) {
+            result.add(box);
+        } else {
+            Node node = (Node) box;
+            for (int i = 0; i < node.count; i++) {
+                addAllEntries(node.children[i], result);
+            }
+        }
+    }
+
+    private static boolean hasLatLon(IGeoPointInfo point) {
+        return (point != null)
+                && (point.getLatitude() != IGeoPointInfo.NO_LAT_LON)
+                && (point.getLongitude() != IGeoPointInfo.NO_LAT_LON);
+    }
+
+    private static final Comparator<Box> BY_LATITUDE = new Comparator<Box>() {
+        @Override
+        public int compare(Box lhs, Box rhs) {
+            return Double.compare(lhs.minLatitude + lhs.maxLatitude, rhs.minLatitude + rhs.maxLatitude);
+        }
+    };
+
+    private static final Comparator<Box> BY_LONGITUDE = new Comparator<Box>() {
+        @Override
+        public int compare(Box lhs, Box rhs) {
+            return Double.compare(lhs.minLongitude + lhs.maxLongitude, rhs.minLongitude + rhs.maxLongitude);
+        }
+    };
+
+    /** Bounding box of a point or a tree node */
+    private static class Box {
+        double minLatitude = Double.POSITIVE_INFINITY;
+        double minLongitude = Double.POSITIVE_INFINITY;
+        double maxLatitude = Double.NEGATIVE_INFINITY;
+        double maxLongitude = Double.NEGATIVE_INFINITY;
+
+        void include(Box other) {
+            if (other.minLatitude < minLatitude) minLatitude = other.minLatitude;
+            if (other.minLongitude < minLongitude) minLongitude = other.minLongitude;
+            if (other.maxLatitude > maxLatitude) maxLatitude = other.maxLatitude;
+            if (other.maxLongitude > maxLongitude) maxLongitude = other.maxLongitude;
+        }
+
+        double area() {
+            return (maxLatitude - minLatitude) * (maxLongitude - minLongitude);
+        }
+
+        double enlargedArea(Box other) {
+            return (Math.max(maxLatitude, other.maxLatitude) - Math.min(minLatitude, other.minLatitude))
+                    * (Math.max(maxLongitude, other.maxLongitude) - Math.min(minLongitude, other.minLongitude));
+        }
+
+        boolean contains(double latitude, double longitude) {
+            return (minLatitude <= latitude) && (latitude <= maxLatitude)
+                    && (minLongitude <= longitude) && (longitude <= maxLongitude);
+        }
+
+        boolean intersects(double minLat, double minLon, double maxLat, double maxLon) {
+            return (minLatitude <= maxLat) && (minLat <= maxLatitude)
+                    && (minLongitude <= maxLon) && (minLon <= maxLongitude);
+        }
+
+        boolean within(double minLat, double minLon, double maxLat, double maxLon) {
+            return (minLat <= minLatitude) && (maxLatitude <= maxLat)
+                    && (minLon <= minLongitude) && (maxLongitude <= maxLon);
+        }
+    }
+
+    /** A point in a leaf */
+    private static final class Entry extends Box {
+        final IGeoPointInfo point;
+
+        Entry(IGeoPointInfo point) {
+            this.point = point;
+            minLatitude = maxLatitude = point.getLatitude();
+            minLongitude = maxLongitude = point.getLongitude();
+        }
+    }
+
+    /** Tree node. The children of a leaf are {@link Entry}-s, else {@link Node}-s. */
+    private static final class Node extends Box {
+        final boolean leaf;
+        /** One more than maxEntries so that a node can overflow before it is split. */
+        final Box[] children;
+        int count = 0;
+
+        Node(boolean leaf, int maxEntries) {
+            this.leaf = leaf;
+            this.children = new Box[maxEntries + 1];
+        }
+
+        void add(Box child) {
+            children[count++] = child;
+            include(child);
+        }
+
+        void removeAt(int index) {
+            count--;
+            System.arraycopy(children, index + 1, children, index, count - index);
+            children[count] = null;
+        }
+
+        void recalculate() {
+            minLatitude = minLongitude = Double.POSITIVE_INFINITY;
+            maxLatitude = maxLongitude = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < count; i++) {
+                include(children[i]);
+            }
+        }
+    }
+}
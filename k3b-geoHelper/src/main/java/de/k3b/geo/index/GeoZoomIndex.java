@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.k3b.geo.api.IGeoPointInfo;
+
+/**
+ * Answers "all points visible at zoom z inside this box" without touching invisible points.
+ *
+ * The points are bucketed by their visibility interval
+ * {@link IGeoPointInfo#getZoomMin()}..{@link IGeoPointInfo#getZoomMax()}.
+ * Every bucket has its own {@link GeoRTree}. A query only searches the buckets whose interval
+ * contains z, so the filter is applied once per bucket instead of once per point.
+ *
+ * ```java
+ * GeoZoomIndex<GeoPointDto> index = new GeoZoomIndex<>(repository.load());
+ * List<GeoPointDto> visible = index.query(52.0, 9.1, 52.2, 9.3, 14, new ArrayList<GeoPointDto>());
+ *
+ * items.add(newPoint);
+ * index.add(newPoint);
+ * ```
+ *
+ * Points without lat/lon are not indexed. The index keeps the zoom interval and coordinates a point
+ * had when it was added: a point that changes them must be removed before and added after the change.
+ * Instances are not thread safe.
+ */
+public class GeoZoomIndex<T extends IGeoPointInfo> {
+    /** zoomMin/zoomMax packed into one long -> the points with this visibility interval */
+    private final Map<Long, GeoRTree<T>> buckets = new HashMap<>();
+
+    private final int maxEntries;
+    private int size = 0;
+
+    /** Create an empty index. */
+    public GeoZoomIndex() {
+        this(null, GeoRTree.DEFAULT_MAX_ENTRIES);
+    }
+
+    /** Create an index that is bulk loaded with points. */
+    public GeoZoomIndex(Collection<? extends T> points) {
+        this(points, GeoRTree.DEFAULT_MAX_ENTRIES);
+    }
+
+    /** Create an index that is bulk loaded with points.
+     *
+     * @param maxEntries maximum number of children of a node of the {@link GeoRTree} of a bucket. */
+    public GeoZoomIndex(Collection<? extends T> points, int maxEntries) {
+        this.maxEntries = maxEntries;
+        if (points != null) {
+            Map<Long, List<T>> grouped = new HashMap<>();
+            for (T point : points) {
+                if (point == null) continue;
+                Long key = getKey(point);
+                List<T> group = grouped.get(key);
+                if (group == null) {
+                    group = new ArrayList<>();
+                    grouped.put(key, group);
+                }
+                group.add(point);
+            }
+            for (Map.Entry<Long, List<T>> group : grouped.entrySet()) {
+                GeoRTree<T> bucket = new GeoRTree<>(group.getValue(), maxEntries);
+                if (bucket.size() > 0) {
+                    buckets.put(group.getKey(), bucket);
+                    size += bucket.size();
+                }
+            }
+        }
+    }
+
+    /** Number of indexed points */
+    public int size() {
+        return size;
+    }
+
+    /** Number of different visibility intervals */
+    public int getBucketCount() {
+        return buckets.size();
+    }
+
+    /** Removes all points. */
+    public void clear() {
+        buckets.clear();
+        size = 0;
+    }
+
+    /** Adds point to the index.
+     *
+     * @return false if point has no lat/lon. */
+    public boolean add(T point) {
+        if (point == null) return false;
+        Long key = getKey(point);
+        GeoRTree<T> bucket = buckets.get(key);
+        boolean isNewBucket = (bucket == null);
+        if (isNewBucket) bucket = new GeoRTree<>(null, maxEntries);
+        if (!bucket.insert(point)) return false;
+
+        if (isNewBucket) buckets.put(key, bucket);
+        size++;
+        return true;
+    }
+
+    /** Removes point (the same instance that was added) from the index.
+     *
+     * @return false if point is not in the index. */
+    public boolean remove(T point) {
+        if (point == null) return false;
+        Long key = getKey(point);
+        GeoRTree<T> bucket = buckets.get(key);
+        if ((bucket == null) || !bucket.remove(point)) return false;
+
+        if (bucket.size() == 0) buckets.remove(key);
+        size--;
+        return true;
+    }
+
+    /** Adds all points inside the box that are visible at zoom to result.
+     *
+     * Same box as {@link GeoPrefixIndex#query(double, double, double, double, int, List)}:
+     * the order of the latitudes does not matter and minLongitude > maxLongitude means that the
+     * box crosses the antimeridian. Each bucket splits such a box in {@link GeoRTree#query(double, double, double, double, List)}.
+     *
+     * @return result
+     * @throws IllegalArgumentException if a coordinate is not a number. */
+    public List<T> query(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                         int zoom, List<T> result) {
+        for (Map.Entry<Long, GeoRTree<T>> bucket : buckets.entrySet()) {
+            long key = bucket.getKey();
+            if (GeoPrefixIndex.isVisible(getZoomMin(key), getZoomMax(key), zoom)) {
+                bucket.getValue().query(minLatitude, minLongitude, maxLatitude, maxLongitude, result);
+            }
+        }
+        return result;
+    }
+
+    /** Adds all points that are visible at zoom to result.
+     *
+     * @return result */
+    public List<T> query(int zoom, List<T> result) {
+        return query(-90, -180, 90, 180, zoom, result);
+    }
+
+    private static Long getKey(IGeoPointInfo point) {
+        return (((long) point.getZoomMin()) << 32) | (point.getZoomMax() & 0xFFFFFFFFL);
+    }
+
+    private static int getZoomMin(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int getZoomMax(long key) {
+        return (int) key;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.index;
+
+import de.k3b.geo.api.ILocation;
+
+/**
+ * Encodes lat/lon as [Bing Maps quadkey](https://msdn.microsoft.com/en-us/library/bb259689.aspx)
+ * of the web mercator map tile that contains it.
+ *
+ * The level of a quadkey is the map zoom level of its tile: a point with
+ * {@link de.k3b.geo.api.IGeoPointInfo#getZoomMin()} n is first drawn on the tiles of quadkey level n.
+ *
+ * The binary form is a long that holds 2 bits per quadkey digit in its lowest bits.
+ * Encoding and decoding the long does not allocate. The key of a tile is a prefix of the keys
+ * of all its sub tiles so all points in a tile form one range of a list sorted by quadkey.
+ *
+ * ```java
+ * long key = QuadKey.encode(47.6, -122.3, 2);
+ * String text = QuadKey.toString(key, 2); // "02"
+ * ```
+ */
+public final class QuadKey {
+    /** Maximum number of quadkey digits that fit into a long */
+    public static final int MAX_LEVEL = 30;
+
+    /** Web mercator cannot show the poles. Latitudes beyond are clipped. */
+    public static final double MAX_LATITUDE = 85.05112878;
+
+    private QuadKey() {
+    }
+
+    /** Quadkey of the tile with level (0..{@link #MAX_LEVEL}) that contains location. */
+    public static long encode(ILocation location, int level) {
+        return encode(location.getLatitude(), location.getLongitude(), level);
+    }
+
+    /** Quadkey of the tile with level (0..{@link #MAX_LEVEL}) that contains latitude/longitude. */
+    public static long encode(double latitude, double longitude, int level) {
+        return fromTile(getTileX(longitude, level), getTileY(latitude, level), level);
+    }
+
+    /** Quadkey of the tile x/y of level. */
+    public static long fromTile(int tileX, int tileY, int level) {
+        checkLevel(level);
+        return MortonCode.spread(tileX) | (MortonCode.spread(tileY) << 1);
+    }
+
+    /** Column of the tile of level that contains longitude. 0 is the west most. */
+    public static int getTileX(double longitude, int level) {
+        checkLevel(level);
+        double x = (clip(longitude, -180, 180) + 180) / 360;
+        return toTile(x, level);
+    }
+
+    /** Row of the tile of level that contains latitude. 0 is the north most. */
+    public static int getTileY(double latitude, int level) {
+        checkLevel(level);
+        double sinLatitude = Math.sin(Math.toRadians(clip(latitude, -MAX_LATITUDE, MAX_LATITUDE)));
+        double y = 0.5 - Math.log((1 + sinLatitude) / (1 - sinLatitude)) / (4 * Math.PI);
+        return toTile(y, level);
+    }
+
+    /** Column of the tile of quadkey. */
+    public static int getTileX(long quadKey) {
+        return (int) MortonCode.compact(quadKey);
+    }
+
+    /** Row of the tile of quadkey. */
+    public static int getTileY(long quadKey) {
+        return (int) MortonCode.compact(quadKey >>> 1);
+    }
+
+    /** Latitude of the center of the tile. */
+    public static double decodeLatitude(long quadKey, int level) {
+        return tileToLatitude(getTileY(quadKey) + 0.5, level);
+    }
+
+    /** Longitude of the center of the tile. */
+    public static double decodeLongitude(long quadKey, int level) {
+        return tileToLongitude(getTileX(quadKey) + 0.5, level);
+    }
+
+    /** Latitude of the north edge of tile row tileY. tileY + 1 gives the south edge. */
+    public static double tileToLatitude(double tileY, int level) {
+        checkLevel(level);
+        double n = Math.PI - 2 * Math.PI * tileY / (1L << level);
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+
+    /** Longitude of the west edge of tile column tileX. tileX + 1 gives the east edge. */
+    public static double tileToLongitude(double tileX, int level) {
+        checkLevel(level);
+        return tileX * 360 / (1L << level) - 180;
+    }
+
+    /** Returns the quadkey of the tile at level that contains the tile quadKey of quadKeyLevel. */
+    public static long getParent(long quadKey, int quadKeyLevel, int level) {
+        return quadKey >>> (2 * (quadKeyLevel - level));
+    }
+
+    /** Text of quadKey with level digits '0'..'3'. */
+    public static String toString(long quadKey, int level) {
+        return append(new StringBuilder(level), quadKey, level).toString();
+    }
+
+    /** Appends the text of quadKey with level digits '0'..'3' to result. */
+    public static StringBuilder append(StringBuilder result, long quadKey, int level) {
+        checkLevel(level);
+        for (int shift = 2 * (level - 1); shift >= 0; shift -= 2) {
+            result.append((char) ('0' + ((quadKey >>> shift) & 3)));
+        }
+        return result;
+    }
+
+    /** Parses the text of a quadkey. The level is text.length().
+     *
+     * @throws IllegalArgumentException if text is not a valid quadkey. */
+    public static long fromString(CharSequence text) {
+        int level = text.length();
+        checkLevel(level);
+        long quadKey = 0;
+        for (int i = 0; i < level; i++) {
+            char c = text.charAt(i);
+            if ((c < '0') || (c > '3')) throw new IllegalArgumentException("not a quadkey: " + text);
+            quadKey = (quadKey << 2) | (c - '0');
+        }
+        return quadKey;
+    }
+
+    /** Maps [0, 1] to the tile number of level. */
+    private static int toTile(double value, int level) {
+        long max = (1L << level) - 1;
+        long result = (long) Math.floor(value * (1L << level));
+        return (int) ((result < 0) ? 0 : Math.min(result, max));
+    }
+
+    private static double clip(double value, double min, double max) {
+        return Math.min(Math.max(value, min), max);
+    }
+
+    private static void checkLevel(int level) {
+        if ((level < 0) || (level > MAX_LEVEL)) {
+            throw new IllegalArgumentException("quadkey level must be 0.." + MAX_LEVEL + ": " + level);
+        }
+    }
+}
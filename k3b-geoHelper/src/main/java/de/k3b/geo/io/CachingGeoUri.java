@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.io;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.k3b.geo.api.GeoPointDto;
+
+/**
+ * A {@link GeoUri} that remembers the results of the most recently parsed uris.
+ *
+ * Useful if the same uris occur again and again (i.e. favourites or the same
+ * &lt;poi geoUri='...'&gt; in several files). The cache is bounded: if it is full the least
+ * recently used uri is removed. {@link #parse(CharSequence, int, int, GeoPointDto)} copies the cached
+ * result and its status into parseResult so the caller can modify it. Uris that could not be
+ * parsed ({@link #STATUS_ERROR}) are not cached.
+ *
+ * The cache is only used if parseResult is empty ({@link GeoPointDto#clear()}) because
+ * parsing does not overwrite fields that are already set.
+ *
+ * Plug it in via the existing factory methods:
+ *
+ * ```java
+ * GpxReader<IGeoPointInfo> reader = new GpxReader<IGeoPointInfo>(null) {
+ *     protected GeoUri createGeoUriParser(int modes) {
+ *         return new CachingGeoUri(modes, 1000);
+ *     }
+ * };
+ * ```
+ *
+ * Instances are thread safe.
+ */
+public class CachingGeoUri extends GeoUri {
+    /** uri-key => parse result. Values are never given to the caller. */
+    private final LinkedHashMap<UriKey, CachedResult> cache;
+
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    /** Create with options from OPT_xxx that caches up to maxSize parse results. */
+    public CachingGeoUri(int options, final int maxSize) {
+        super(options);
+        this.cache = new LinkedHashMap<UriKey, CachedResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UriKey, CachedResult> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /** Load {@link de.k3b.geo.api.IGeoPointInfo} from src[start,end) into parseResult using the cache.
+     *
+     * Used by all fromUri(...) methods. A cache hit does not create a {@link String} for the uri.
+     * A cache hit shares the text fields with the cached result so pools are only used on a miss. */
+    @Override
+    public int parse(CharSequence src, int start, int end, GeoPointDto parseResult, GeoStringPools pools) {
+        if ((src == null) || !isEmpty(parseResult)) return super.parse(src, start, end, parseResult, pools);
+
+        boolean bytes = (src instanceof Utf8CharSequence);
+        CachedResult cached = getCached(new UriKey(src, start, end, bytes));
+        if (cached != null) {
+            copy(cached.value, parseResult);
+            return cached.status;
+        }
+
+        int status = super.parse(src, start, end, parseResult, pools);
+        if ((status & STATUS_ERROR) == 0) {
+            CharSequence keySrc = (src instanceof String) ? ((String) src).substring(start, end) : copyOf(src, start, end);
+            put(new UriKey(keySrc, 0, end - start, bytes), new CachedResult(copy(parseResult, new GeoPointDto()), status));
+        }
+        return status;
+    }
+
+    /** Number of parse requests that were answered from the cache. */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /** Number of parse requests that had to be parsed. */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /** Number of cached parse results. */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /** Removes all cached results and resets the counters. */
+    public synchronized void clear() {
+        cache.clear();
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    /** Returns the cached result for key or null if not cached. */
+    private synchronized CachedResult getCached(UriKey key) {
+        CachedResult cached = cache.get(key);
+        if (cached != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return cached;
+    }
+
+    private synchronized void put(UriKey key, CachedResult value) {
+        cache.put(key, value);
+    }
+
+    /** Copies all fields. The mutable {@link java.util.Date} is not shared. */
+    private static GeoPointDto copy(GeoPointDto src, GeoPointDto dest) {
+        return dest
+                .setLatitude(src.getLatitude())
+                .setLongitude(src.getLongitude())
+                .setZoomMin(src.getZoomMin())
+                .setZoomMax(src.getZoomMax())
+                .setTimeOfMeasurementMillis(src.getTimeOfMeasurementMillis())
+                .setName(src.getName())
+                .setDescription(src.getDescription())
+                .setId(src.getId())
+                .setLink(src.getLink())
+                .setSymbol(src.getSymbol());
+    }
+
+    /** True if all fields of geo have their default value. */
+    private static boolean isEmpty(GeoPointDto geo) {
+        return (geo.getLatitude() == GeoPointDto.NO_LAT_LON) && (geo.getLongitude() == GeoPointDto.NO_LAT_LON)
+                && (geo.getZoomMin() == GeoPointDto.NO_ZOOM) && (geo.getZoomMax() == GeoPointDto.NO_ZOOM)
+                && (geo.getTimeOfMeasurementMillis() == GeoPointDto.NO_TIME) && (geo.getName() == null)
+                && (geo.getDescription() == null) && (geo.getId() == null)
+                && (geo.getLink() == null) && (geo.getSymbol() == null);
+    }
+
+    /** Returns src[start,end) as String with one char per {@link CharSequence#charAt(int)}. */
+    private static String copyOf(CharSequence src, int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = src.charAt(i);
+        }
+        return new String(chars);
+    }
+
+    /** Implementation detail: Cached parse result with its GeoUri.STATUS_xxx */
+    private static class CachedResult {
+        private final GeoPointDto value;
+        private final int status;
+
+        CachedResult(GeoPointDto value, int status) {
+            this.value = value;
+            this.status = status;
+        }
+    }
+
+    /** Implementation detail: Cache key for the chars in src[start,end).
+     *
+     * Used as lookup probe directly on the caller's buffer and with an own copy as map key.
+     * bytes: the chars are utf-8 bytes of a {@link Utf8CharSequence} and never equal to a char-key. */
+    private static class UriKey {
+        private final CharSequence src;
+        private final int start;
+        private final int length;
+        private final boolean bytes;
+        private final int hash;
+
+        UriKey(CharSequence src, int start, int end, boolean bytes) {
+            this.src = src;
+            this.start = start;
+            this.length = end - start;
+            this.bytes = bytes;
+
+            int h = bytes ? 1 : 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + src.charAt(i);
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof UriKey)) return false;
+            UriKey other = (UriKey) o;
+            if ((hash != other.hash) || (length != other.length) || (bytes != other.bytes)) return false;
+            for (int i = 0; i < length; i++) {
+                if (src.charAt(start + i) != other.src.charAt(other.start + i)) return false;
+            }
+            return true;
+        }
+    }
+}
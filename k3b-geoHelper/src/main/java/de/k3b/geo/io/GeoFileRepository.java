@@ -21,18 +21,26 @@ package de.k3b.geo.io;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
+import de.k3b.geo.api.AbstractGeoPointStore;
 import de.k3b.geo.api.GeoPointDto;
+import de.k3b.geo.api.GeoPointStore;
 import de.k3b.geo.api.IGeoPointInfo;
 import de.k3b.geo.api.IGeoRepository;
 
@@ -60,9 +68,36 @@ public class GeoFileRepository<T extends IGeoPointInfo> implements IGeoRepositor
 
     /** Lines starting with char are comments. These lines are not interpreted */
     public static final java.lang.String COMMENT = "#";
+    private static final char COMMENT_CHAR = '#';
+
+    /** Initial size of the char buffer used by {@link #load(List, Reader)} */
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    /** Option for {@link #GeoFileRepository(File, GeoPointDto, int)}:
+     * {@link #load()} reads the file through a {@link java.io.Reader} with platform encoding. */
+    public static final int OPT_DEFAULT = 0;
+
+    /** Option for {@link #GeoFileRepository(File, GeoPointDto, int)}:
+     * {@link #load()} memory-maps the utf-8 encoded file and parses the bytes directly
+     * via {@link #load(List, ByteBuffer)}. Recommended for files of several hundred MB. */
+    public static final int OPT_LOAD_MAPPED = 1;
+
+    /** Option for {@link #GeoFileRepository(File, GeoPointDto, int)}:
+     * {@link #load()} parses only lat/lon, zoom, time and id. The points are {@link LazyGeoPointDto}-s
+     * that decode name, description, link and symbol on first access.
+     *
+     * The file is read as utf-8 into one heap buffer that is shared by all points
+     * (also with {@link #OPT_LOAD_MAPPED}, so that the file can be saved while points are still lazy).
+     * The factory must be a {@link GeoPointDto} or a {@link LazyGeoPointDto}: other custom point types
+     * are loaded completely. {@link #load(List, Reader)} always loads completely because the
+     * chars of a reader are not kept. */
+    public static final int OPT_LOAD_LAZY = 2;
+
+    /** Option for {@link #GeoFileRepository(File, GeoPointDto, int)}:
+     * {@link #load()} returns a columnar {@link GeoPointStore} instead of a list of point objects.
+     * Only for repositories of {@link IGeoPointInfo}. Can be combined with {@link #OPT_LOAD_MAPPED}. */
+    public static final int OPT_LOAD_STORE = 4;
 
-    /** Used to translate between {@link de.k3b.geo.api.IGeoPointInfo} and geo-uri string */
-    private static final GeoUri converter = new GeoUri(GeoUri.OPT_DEFAULT);
 
 
     /** Where data is loaded from/saved to */
@@ -71,9 +106,28 @@ public class GeoFileRepository<T extends IGeoPointInfo> implements IGeoRepositor
     /** Used to granslate geo uri-s */
     private final GeoPointDto mFactory;
 
+    /** Options OPT_xxx for loading */
+    private final int mOptions;
+
+    /** Used to translate between {@link de.k3b.geo.api.IGeoPointInfo} and geo-uri string.
+     * Created on demand by {@link #createGeoUriParser()} */
+    private GeoUri mConverter = null;
+
     /** The {@link de.k3b.geo.api.IGeoPointInfo} points contained in this repository */
     protected List<T> mGeoPointList = null;
 
+    /** If not null: receives the parse problems while loading */
+    private GeoParseDiagnostics mDiagnostics = null;
+
+    /** If not null: repeated name, link and symbol values share one {@link String} */
+    private GeoStringPools mStringPools = null;
+
+    /** 1-based number of the line that is currently loaded. Used for {@link #mDiagnostics} */
+    private long mLineNumber = 0;
+
+    /** Shared by the {@link LazyGeoPointDto}-s of the buffer that is currently loaded */
+    private LazyGeoPointDto.Source mLazySource = null;
+
     /** Connect repository to a {@link File}. */
     public GeoFileRepository(File file) {
         this(file, new GeoPointDto());
@@ -82,8 +136,32 @@ public class GeoFileRepository<T extends IGeoPointInfo> implements IGeoRepositor
     /** Connect repository to a {@link File}.
      * @param factory get-s cloned for every new point read from file. Workaround since java generics do not support construction of generic parameters. */
     public GeoFileRepository(File file, GeoPointDto factory) {
+        this(file, factory, OPT_DEFAULT);
+    }
+
+    /** Connect repository to a {@link File}.
+     * @param factory get-s cloned for every new point read from file. Workaround since java generics do not support construction of generic parameters.
+     * @param options OPT_xxx that define how the file is loaded. */
+    public GeoFileRepository(File file, GeoPointDto factory, int options) {
         this.mFile = file;
         this.mFactory = factory;
+        this.mOptions = options;
+    }
+
+    /** Collect parse problems with line numbers in diagnostics while loading.
+     *
+     * Without diagnostics lines that cannot be parsed are silently ignored. */
+    public GeoFileRepository<T> setDiagnostics(GeoParseDiagnostics diagnostics) {
+        this.mDiagnostics = diagnostics;
+        return this;
+    }
+
+    /** Take name, link and symbol of loaded points from pools so that repeated values share one {@link String}.
+     *
+     * Null (default) means no pooling. */
+    public GeoFileRepository<T> setStringPools(GeoStringPools pools) {
+        this.mStringPools = pools;
+        return this;
     }
 
     /** Load from repository-file to memory.
@@ -92,12 +170,16 @@ public class GeoFileRepository<T extends IGeoPointInfo> implements IGeoRepositor
      */
     public List<T> load() {
         if (mGeoPointList == null) {
-            mGeoPointList = new ArrayList<>();
+            mGeoPointList = createList();
             if (this.mFile.exists()) {
                 try {
-                    load(mGeoPointList, new FileReader(this.mFile));
+                    if ((mOptions & (OPT_LOAD_MAPPED | OPT_LOAD_LAZY)) != 0) {
+                        loadMapped(mGeoPointList, this.mFile, (mOptions & OPT_LOAD_LAZY) != 0);
+                    } else {
+                        load(mGeoPointList, new FileReader(this.mFile));
+                    }
                 } catch (IOException e) {
-                    e.printStackTrace();
+                    logger.error("load(): cannot read " + this.mFile, e);
                 }
             }
             if (logger.isDebugEnabled()) {
@@ -154,10 +236,10 @@ public class GeoFileRepository<T extends IGeoPointInfo> implements IGeoRepositor
                 if (logger.isDebugEnabled()) {
                     logger.debug("save(): " + mGeoPointList.size() + " items to " + this.mFile);
                 }
-                save(mGeoPointList, new FileWriter(this.mFile, false));
+                save(mGeoPointList, new BufferedWriter(new FileWriter(this.mFile, false)));
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            logger.error("save(): cannot write " + this.mFile, e);
         }
         if (logger.isDebugEnabled()) {
             logger.debug("save(): no items for " + this.mFile);
@@ -166,28 +248,204 @@ public class GeoFileRepository<T extends IGeoPointInfo> implements IGeoRepositor
     }
 
     // Load(new InputStreamReader(inputStream, "UTF-8"))
-    /** Load points from reader */
+    /** Load points from reader.
+     *
+     * The lines are not copied into {@link String}-s: every line is parsed straight out of the
+     * read buffer via {@link #loadItem(CharSequence, int, int)}. */
     public void load(List<T> result, Reader reader) throws IOException {
-        String line;
-        BufferedReader br = new BufferedReader(reader);
-        while ((line = br.readLine()) != null) {
-            line = line.trim();
-            if ((line.length() > 0) && (!line.startsWith(COMMENT))) {
-                GeoPointDto geo = loadItem(line);
-                final boolean valid = isValid(geo);
-                if (logger.isDebugEnabled()) {
-                    logger.debug("load(" + line + "): " + ((valid) ? "loaded" : "ignored"));
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        CharBuffer chars = CharBuffer.wrap(buffer);
+        int length = 0;
+        int read;
+        long lineNumber = 1;
+        char lastDelimiter = 0;
+        // buffer[0,scanned) contains no line-delimiter behind lineStart
+        int lineStart = 0;
+        int scanned = 0;
+        do {
+            read = reader.read(buffer, length, buffer.length - length);
+            if (read > 0) length += read;
+
+            for (int pos = scanned; pos < length; pos++) {
+                char c = buffer[pos];
+                if ((c == '\n') || (c == '\r')) {
+                    // cr+lf is one line-delimiter
+                    if ((c != '\n') || (lastDelimiter != '\r') || (pos != lineStart)) {
+                        loadLine(result, chars, lineStart, pos, lineNumber++);
+                    }
+                    lineStart = pos + 1;
+                    lastDelimiter = c;
                 }
+            }
+            scanned = length;
+
+            if (read < 0) {
+                // last line without line-delimiter
+                loadLine(result, chars, lineStart, length, lineNumber);
+            } else if (lineStart > 0) {
+                // move incomplete last line to the beginning of the buffer
+                length -= lineStart;
+                System.arraycopy(buffer, lineStart, buffer, 0, length);
+                scanned = length;
+                lineStart = 0;
+            } else if (length == buffer.length) {
+                // line longer than buffer
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                chars = CharBuffer.wrap(buffer);
+            }
+        } while (read >= 0);
+        reader.close();
+    }
 
-                if (valid) result.add((T) geo);
+    /** Load points from the utf-8 encoded lines in buffer[position,limit).
+     *
+     * The buffer can be heap, direct or memory-mapped. Numbers are parsed directly from the
+     * bytes. Only the text fields that are kept are decoded to {@link String}-s.
+     *
+     * With {@link #OPT_LOAD_LAZY} the points keep a reference to buffer: its content must not
+     * change until all text fields are decoded. */
+    public void load(List<T> result, ByteBuffer buffer) {
+        load(result, buffer, 1);
+    }
+
+    /** Implementation detail: Load points from buffer where the first line has number firstLineNumber.
+     *
+     * @return the number of the line behind the last line-delimiter. */
+    private long load(List<T> result, ByteBuffer buffer, long firstLineNumber) {
+        CharSequence chars = new Utf8CharSequence(buffer, 0, buffer.limit());
+        int lineStart = buffer.position();
+        int end = buffer.limit();
+        long lineNumber = firstLineNumber;
+        byte lastDelimiter = 0;
+        for (int pos = lineStart; pos < end; pos++) {
+            byte c = buffer.get(pos);
+            if ((c == '\n') || (c == '\r')) {
+                // cr+lf is one line-delimiter
+                if ((c != '\n') || (lastDelimiter != '\r') || (pos != lineStart)) {
+                    loadLine(result, chars, lineStart, pos, lineNumber++);
+                }
+                lineStart = pos + 1;
+                lastDelimiter = c;
             }
         }
-        br.close();
+        loadLine(result, chars, lineStart, end, lineNumber);
+        return lineNumber;
     }
 
-    /** Implementation detail: Load point from file line. */
-    protected GeoPointDto loadItem(String line) {
-        return converter.fromUri(line, create());
+    /** Implementation detail: Load points from memory-mapped file.
+     *
+     * Files larger than 2GB are mapped in several windows that end on a line-delimiter.
+     *
+     * @param copyToHeap true: every window is copied into a heap buffer so that the buffer does not
+     *                   depend on the file any more (used by {@link #OPT_LOAD_LAZY}). */
+    private void loadMapped(List<T> result, File file, boolean copyToHeap) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long size = channel.size();
+            long windowStart = 0;
+            long lineNumber = 1;
+            while (windowStart < size) {
+                long windowSize = Math.min(size - windowStart, Integer.MAX_VALUE);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+                int used = (int) windowSize;
+                if (windowStart + windowSize < size) {
+                    // more windows to come: process complete lines only
+                    while ((used > 0) && (buffer.get(used - 1) != '\n') && (buffer.get(used - 1) != '\r')) used--;
+                    if (used == 0) throw new IOException("line too long in " + file);
+                    buffer.limit(used);
+                }
+                lineNumber = load(result, (copyToHeap) ? copyToHeap(buffer) : buffer, lineNumber);
+                windowStart += used;
+            }
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /** Implementation detail: Empty list for {@link #load()}. */
+    @SuppressWarnings("unchecked") // OPT_LOAD_STORE is only allowed for repositories of IGeoPointInfo
+    private List<T> createList() {
+        if ((mOptions & OPT_LOAD_STORE) != 0) {
+            List<? extends IGeoPointInfo> store = new GeoPointStore();
+            return (List<T>) store;
+        }
+        return new ArrayList<T>();
+    }
+
+    /** Implementation detail: Copy of buffer[0,limit) on the heap. */
+    private static ByteBuffer copyToHeap(ByteBuffer buffer) {
+        ByteBuffer result = ByteBuffer.allocate(buffer.limit());
+        result.put(buffer);
+        result.flip();
+        return result;
+    }
+
+    /** Implementation detail: Load point from line src[start,end) if it is not empty and not a comment. */
+    private void loadLine(List<T> result, CharSequence src, int start, int end, long lineNumber) {
+        int lineStart = start;
+        int lineEnd = end;
+        while ((lineStart < lineEnd) && (src.charAt(lineStart) <= ' ')) lineStart++;
+        while ((lineStart < lineEnd) && (src.charAt(lineEnd - 1) <= ' ')) lineEnd--;
+
+        if ((lineStart < lineEnd) && (src.charAt(lineStart) != COMMENT_CHAR)) {
+            mLineNumber = lineNumber;
+            GeoPointDto geo = loadItem(src, lineStart, lineEnd);
+            final boolean valid = isValid(geo);
+            if (logger.isDebugEnabled()) {
+                logger.debug("load(" + src.subSequence(lineStart, lineEnd) + "): " + ((valid) ? "loaded" : "ignored"));
+            }
+
+            if (valid) {
+                if (result instanceof AbstractGeoPointStore) {
+                    // the store copies the values
+                    ((AbstractGeoPointStore) result).add(geo);
+                } else {
+                    result.add(createItem(geo));
+                }
+            }
+        }
+    }
+
+    /** Implementation detail: Load point from file line src[start,end).
+     *
+     * Problems are reported to the diagnostics (if any) instead of throwing exceptions.
+     *
+     * @return null if the line cannot be parsed. */
+    protected GeoPointDto loadItem(CharSequence src, int start, int end) {
+        GeoPointDto result = create();
+        int status;
+        if (((mOptions & OPT_LOAD_LAZY) != 0) && (src instanceof Utf8CharSequence)
+                && ((result instanceof LazyGeoPointDto) || (result.getClass() == GeoPointDto.class))) {
+            // only the bytes of a buffer are kept: the chars of a reader are reused for the next lines
+            LazyGeoPointDto lazy = (result instanceof LazyGeoPointDto) ? (LazyGeoPointDto) result : new LazyGeoPointDto();
+            status = getConverter().parseLazy(getLazySource(src), start, end, lazy);
+            result = lazy;
+        } else {
+            status = getConverter().parse(src, start, end, result, mStringPools);
+        }
+        if (mDiagnostics != null) mDiagnostics.add(mLineNumber, status, src, start, end);
+        return ((status & GeoUri.STATUS_ERROR) == 0) ? result : null;
+    }
+
+    /** Implementation detail: The {@link LazyGeoPointDto.Source} shared by all lazy points of src. */
+    private LazyGeoPointDto.Source getLazySource(CharSequence src) {
+        if ((mLazySource == null) || (mLazySource.getText() != src)) {
+            mLazySource = new LazyGeoPointDto.Source(src, getConverter(), mStringPools);
+        }
+        return mLazySource;
+    }
+
+    /** Factory method for the translator between {@link IGeoPointInfo} and geo-uri string.
+     *
+     * Can be overwritten i.e. to return a {@link CachingGeoUri} if the file contains many identical lines. */
+    protected GeoUri createGeoUriParser() {
+        return GeoUri.forOptions(GeoUri.OPT_DEFAULT);
+    }
+
+    private GeoUri getConverter() {
+        if (mConverter == null) mConverter = createGeoUriParser();
+        return mConverter;
     }
 
     /** Factory method to generate a new empy point while reading a {@link IGeoPointInfo}.
@@ -199,6 +457,14 @@ public class GeoFileRepository<T extends IGeoPointInfo> implements IGeoRepositor
         return (GeoPointDto) mFactory.clone().clear();
     }
 
+    /** Factory method to convert a point that was read from file into the item type of this repository.
+     *
+     * The default implementation returns geo itself. Can be overwritten i.e. to return
+     * an immutable {@link de.k3b.geo.api.GeoPoint} via {@link de.k3b.geo.api.GeoPoint#of(IGeoPointInfo)}. */
+    protected T createItem(GeoPointDto geo) {
+        return (T) geo;
+    }
+
     /** Save source-points to writer */
    protected void save(List<T> source, Writer writer) throws IOException {
         for (T geo : source) {
@@ -207,17 +473,18 @@ public class GeoFileRepository<T extends IGeoPointInfo> implements IGeoRepositor
         writer.close();
     }
 
-    /** Saves one point to writer */
+    /** Saves one point to writer.
+     *
+     * The uri is written straight to writer. The line is only created as {@link String} for debug logging. */
     protected boolean saveItem(Writer writer, T geo) throws IOException {
         final boolean valid = isValid(geo);
 
-        final String line = converter.toUriString(geo);
         if (valid) {
-            writer.write(line);
-            writer.write("\n");
+            getConverter().appendUri(writer, geo);
+            writer.write('\n');
         }
         if (logger.isDebugEnabled()) {
-            logger.debug("save(" + line + "): " + ((valid) ? "saved" : "ignored" ));
+            logger.debug("save(" + getConverter().toUriString(geo) + "): " + ((valid) ? "saved" : "ignored" ));
         }
         return valid;
     }
@@ -18,16 +18,18 @@
 
 package de.k3b.geo.io;
 
-import java.text.DateFormat;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.text.ParsePosition;
 import java.util.Date;
 import java.util.Locale;
-import java.util.TimeZone;
 
 import de.k3b.geo.api.IGeoPointInfo;
+import de.k3b.util.IsoDateTimeFormatter;
 
 /**
  * Converts between uri-{@link String} and geo-component-type {@link double}, {@link Date},
@@ -36,43 +38,311 @@ import de.k3b.geo.api.IGeoPointInfo;
  * Created by k3b on 25.03.2015.
  */
 public class GeoFormatter {
-    /* Converter for Datatypes */
-    private static final DecimalFormat latLonFormatter
-            = new DecimalFormat("#.#######", new DecimalFormatSymbols(Locale.ENGLISH));
-    private static final DateFormat timeFormatter
-            = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+    /* Converter for Datatypes. One per thread because java.text formats are not thread safe. */
+    private static final ThreadLocal<DecimalFormat> latLonFormatter = new ThreadLocal<DecimalFormat>() {
+        @Override
+        protected DecimalFormat initialValue() {
+            return new DecimalFormat("#.#######", new DecimalFormatSymbols(Locale.ENGLISH));
+        }
+    };
     public static final String LatLonNegativPrefix = "sSwW";
     public static final String LatLonPrefix = "nNeE" + LatLonNegativPrefix;
 
-    static {
-        timeFormatter.setTimeZone(TimeZone.getTimeZone("UTC"));
-    }
+    /** Up to 15 digits fit into the 53 bit mantissa of a {@link double} */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    /** Number of decimals used for lat/lon in geo-uri-s and gpx. 7 decimals are about 1 cm. */
+    public static final int LAT_LON_DECIMALS = 7;
+
+    /** Maximum for decimals in {@link #appendLatLon(StringBuilder, double, int)} */
+    public static final int MAX_LAT_LON_DECIMALS = 15;
+
+    /** Maximum length of a formatted value with -1e8 &lt; value &lt; 1e8 (i.e. lat or lon) */
+    public static final int MAX_LAT_LON_LENGTH = 26;
+
+    /** Larger scaled values are formatted via {@link DecimalFormat} */
+    private static final double MAX_EXACT_SCALED = 4503599627370496.0; // 2^52
+
+    /** Powers of ten as long for {@link #appendLatLon(StringBuilder, double, int)} */
+    private static final long[] POWERS_OF_TEN_LONG = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L,
+            10000000000L, 100000000000L, 1000000000000L, 10000000000000L, 100000000000000L,
+            1000000000000000L, 10000000000000000L, 100000000000000000L, 1000000000000000000L};
+
+    /** Powers of ten that are exact {@link double} values */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
 
     /** Parsing helper: Converts a lat or lon value from {@link String} to {@link double}. */
     public static double parseLatOrLon(String oldVal) throws ParseException {
-        String newVal = oldVal;
-        if ((newVal == null) || (newVal.length() < 1)) return IGeoPointInfo.NO_LAT_LON;
-        char latLonPrefix = newVal.charAt(0);
-        if (LatLonPrefix.indexOf(latLonPrefix) >= 0) {
-            newVal = newVal.substring(1,newVal.length());
-        }
-        double doubleValue = latLonFormatter.parse(newVal).doubleValue();
-        if (LatLonNegativPrefix.indexOf(latLonPrefix) >= 0) doubleValue *= -1;
+        double doubleValue = tryParseLatOrLon(oldVal);
+        if (Double.isNaN(doubleValue)) throw new ParseException("Unparseable lat or lon: \"" + oldVal + "\"", 0);
         return doubleValue;
     }
 
+    /** Parsing helper: Same as {@link #parseLatOrLon(String)} but returns {@link Double#NaN}
+     * instead of throwing an exception if oldVal is not a number. */
+    public static double tryParseLatOrLon(String oldVal) {
+        if (oldVal == null) return IGeoPointInfo.NO_LAT_LON;
+        return tryParseLatOrLon(oldVal, 0, oldVal.length());
+    }
+
+    /** Parsing helper: Converts the lat or lon value in s[start,end) to {@link double}.
+     *
+     * Other than {@link #parseLatOrLon(String)} the whole range must be a number:
+     * optional hemisphere prefix (N, E, S, W), optional sign, digits with optional
+     * decimal point and optional exponent, i.e. "S52.12345678" or "-1.5e-3".
+     * Works on any {@link CharSequence} without creating a {@link String}.
+     *
+     * @return {@link IGeoPointInfo#NO_LAT_LON} for an empty range or
+     * {@link Double#NaN} if s[start,end) is not a number. */
+    public static double parseLatOrLon(CharSequence s, int start, int end) {
+        if (start >= end) return IGeoPointInfo.NO_LAT_LON;
+        return parseDecimalDegree(s, start, end, true);
+    }
+
+    /** Parsing helper: Same as {@link #tryParseLatOrLon(String)} for s[start,end).
+     *
+     * Like {@link DecimalFormat#parse(String, ParsePosition)} trailing non-number chars are ignored.
+     * Uncommon notations (exponent, non-ascii digits) are delegated to {@link DecimalFormat}. */
+    static double tryParseLatOrLon(CharSequence s, int start, int end) {
+        if (start >= end) return IGeoPointInfo.NO_LAT_LON;
+        return parseDecimalDegree(s, start, end, false);
+    }
+
+    /** Implementation detail: parses [hemisphere][sign]digits[.digits][exponent] in s[start,end).
+     *
+     * The result is exact (correctly rounded like {@link Double#parseDouble(String)}):
+     * values with up to 15 significant digits are calculated as long/power-of-ten,
+     * others are delegated to {@link Double#parseDouble(String)}.
+     *
+     * @param strict true: s[start,end) must be a number (a "+" sign and exponent are allowed).
+     *               false: {@link DecimalFormat} compatible with trailing garbage. */
+    private static double parseDecimalDegree(CharSequence s, int start, int end, boolean strict) {
+        int pos = start;
+        char latLonPrefix = s.charAt(pos);
+        if (LatLonPrefix.indexOf(latLonPrefix) >= 0) pos++;
+        boolean hemisphereNegative = (LatLonNegativPrefix.indexOf(latLonPrefix) >= 0);
+
+        int numberStart = pos;
+        boolean negative = false;
+        if ((pos < end) && ((s.charAt(pos) == '-') || (strict && (s.charAt(pos) == '+')))) {
+            negative = (s.charAt(pos) == '-');
+            pos++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int fractionDigits = 0;
+        boolean sawDigit = false;
+        boolean sawDot = false;
+        for (; pos < end; pos++) {
+            char c = s.charAt(pos);
+            if ((c >= '0') && (c <= '9')) {
+                sawDigit = true;
+                if (sawDot) fractionDigits++;
+                if ((significantDigits > 0) || (c != '0')) {
+                    significantDigits++;
+                    if (significantDigits <= MAX_EXACT_DIGITS) mantissa = mantissa * 10 + (c - '0');
+                }
+            } else if ((c == '.') && !sawDot) {
+                sawDot = true;
+            } else {
+                break;
+            }
+        }
+
+        double result;
+        if (pos < end) {
+            char c = s.charAt(pos);
+            if (!strict) {
+                if ((c == 'E') || (c >= 0x80) || !sawDigit) {
+                    // uncommon notation: same result as DecimalFormat
+                    return parseWithDecimalFormat(s, numberStart, end, hemisphereNegative);
+                }
+            } else if (!sawDigit || ((c != 'e') && (c != 'E')) || !isExponent(s, pos + 1, end)) {
+                return Double.NaN;
+            } else {
+                // exponents are rare in coordinates
+                result = Double.parseDouble(s.subSequence(numberStart, end).toString());
+                return hemisphereNegative ? -result : result;
+            }
+        }
+        if (!sawDigit) return Double.NaN;
+
+        if ((significantDigits <= MAX_EXACT_DIGITS) && (fractionDigits < POWERS_OF_TEN.length)) {
+            // both values are exact doubles so the division is correctly rounded
+            result = mantissa / POWERS_OF_TEN[fractionDigits];
+            if (negative) result = -result;
+        } else {
+            result = Double.parseDouble(s.subSequence(numberStart, pos).toString());
+        }
+        return hemisphereNegative ? -result : result;
+    }
+
+    /** Implementation detail: true if s[start,end) is [sign]digits */
+    private static boolean isExponent(CharSequence s, int start, int end) {
+        int pos = start;
+        if ((pos < end) && ((s.charAt(pos) == '-') || (s.charAt(pos) == '+'))) pos++;
+        if (pos >= end) return false;
+        for (; pos < end; pos++) {
+            char c = s.charAt(pos);
+            if ((c < '0') || (c > '9')) return false;
+        }
+        return true;
+    }
+
+    private static double parseWithDecimalFormat(CharSequence s, int start, int end, boolean hemisphereNegative) {
+        Number number = latLonFormatter.get().parse(s.subSequence(start, end).toString(), new ParsePosition(0));
+        if (number == null) return Double.NaN;
+        double doubleValue = number.doubleValue();
+        return hemisphereNegative ? -doubleValue : doubleValue;
+    }
+
     /** Parsing helper: Converts  a {@link double} lat or lon value to {@link String}. */
     public static String formatLatLon(double latitude) {
         if (latitude != IGeoPointInfo.NO_LAT_LON) {
-            return latLonFormatter.format(latitude);
+            return appendLatLon(new StringBuilder(MAX_LAT_LON_LENGTH), latitude, LAT_LON_DECIMALS).toString();
         }
         return "";
     }
 
+    /** Formatting helper: Appends value with at most decimals digits behind the decimal point
+     * and without trailing zeros to result, i.e. "52.1", "-0.0000001" or "9".
+     *
+     * Same result as {@link DecimalFormat} "#.#######" (rounding {@link RoundingMode#HALF_EVEN})
+     * but thread safe and without creating intermediate objects.
+     *
+     * @param decimals 0 .. {@link #MAX_LAT_LON_DECIMALS}. {@link #LAT_LON_DECIMALS} is about 1 cm. */
+    public static StringBuilder appendLatLon(StringBuilder result, double value, int decimals) {
+        try {
+            appendLatLon((Appendable) result, value, decimals);
+        } catch (IOException ignore) {
+            // StringBuilder does not throw
+        }
+        return result;
+    }
+
+    /** Formatting helper: Same as {@link #appendLatLon(StringBuilder, double, int)} for any
+     * {@link Appendable} i.e. a {@link java.io.Writer}. */
+    public static <A extends Appendable> A appendLatLon(A result, double value, int decimals) throws IOException {
+        long scaled = scaleLatLon(value, decimals);
+        if (scaled < 0) {
+            // NaN, infinite or too big for long arithmetic
+            result.append(formatWithDecimalFormat(value, decimals));
+            return result;
+        }
+
+        if (Double.doubleToRawLongBits(value) < 0) result.append('-');
+        long power = POWERS_OF_TEN_LONG[decimals];
+        appendDigits(result, scaled / power, 1);
+        long fraction = scaled % power;
+        if (fraction != 0) {
+            int fractionDigits = decimals;
+            while ((fraction % 10) == 0) {
+                fraction /= 10;
+                fractionDigits--;
+            }
+            result.append('.');
+            appendDigits(result, fraction, fractionDigits);
+        }
+        return result;
+    }
+
+    /** Formatting helper: Same as {@link #appendLatLon(StringBuilder, double, int)} into buffer[offset...].
+     *
+     * buffer must have room for {@link #MAX_LAT_LON_LENGTH} chars if value is a lat or lon.
+     *
+     * @return offset behind the last char written */
+    public static int appendLatLon(char[] buffer, int offset, double value, int decimals) {
+        long scaled = scaleLatLon(value, decimals);
+        int pos = offset;
+        if (scaled < 0) {
+            String formatted = formatWithDecimalFormat(value, decimals);
+            formatted.getChars(0, formatted.length(), buffer, pos);
+            return pos + formatted.length();
+        }
+
+        if (Double.doubleToRawLongBits(value) < 0) buffer[pos++] = '-';
+        long power = POWERS_OF_TEN_LONG[decimals];
+        pos = putDigits(buffer, pos, scaled / power, 1);
+        long fraction = scaled % power;
+        if (fraction != 0) {
+            int fractionDigits = decimals;
+            while ((fraction % 10) == 0) {
+                fraction /= 10;
+                fractionDigits--;
+            }
+            buffer[pos++] = '.';
+            pos = putDigits(buffer, pos, fraction, fractionDigits);
+        }
+        return pos;
+    }
+
+    /** Implementation detail: |value| * 10^decimals rounded {@link RoundingMode#HALF_EVEN}
+     * or -1 if not possible with long arithmetic. */
+    private static long scaleLatLon(double value, int decimals) {
+        if ((decimals < 0) || (decimals > MAX_LAT_LON_DECIMALS)) {
+            throw new IllegalArgumentException("decimals must be 0.." + MAX_LAT_LON_DECIMALS + " but is " + decimals);
+        }
+        double magnitude = Math.abs(value);
+        double scaled = magnitude * POWERS_OF_TEN[decimals];
+
+        // also false for NaN
+        if (!(scaled < MAX_EXACT_SCALED)) return -1;
+
+        double floor = Math.floor(scaled);
+        double fraction = scaled - floor;
+        if (Math.abs(fraction - 0.5) <= Math.ulp(scaled)) {
+            // (nearly) a tie: scaled may be rounded. Decide on the exact binary value.
+            return new BigDecimal(magnitude).setScale(decimals, RoundingMode.HALF_EVEN).unscaledValue().longValue();
+        }
+        return (long) ((fraction < 0.5) ? floor : floor + 1);
+    }
+
+    private static String formatWithDecimalFormat(double value, int decimals) {
+        DecimalFormat format = (decimals == LAT_LON_DECIMALS)
+                ? latLonFormatter.get()
+                : createLatLonFormat(decimals);
+        return format.format(value);
+    }
+
+    private static DecimalFormat createLatLonFormat(int decimals) {
+        StringBuilder pattern = new StringBuilder((decimals > 0) ? "#." : "#");
+        for (int i = 0; i < decimals; i++) {
+            pattern.append('#');
+        }
+        return new DecimalFormat(pattern.toString(), new DecimalFormatSymbols(Locale.ENGLISH));
+    }
+
+    /** Implementation detail: appends the decimal digits of value >= 0 with leading zeros up to minDigits. */
+    private static void appendDigits(Appendable result, long value, int minDigits) throws IOException {
+        int digits = countDigits(value, minDigits);
+        for (int i = digits - 1; i >= 0; i--) {
+            result.append((char) ('0' + ((value / POWERS_OF_TEN_LONG[i]) % 10)));
+        }
+    }
+
+    /** Implementation detail: same as {@link #appendDigits(Appendable, long, int)} into buffer[pos...] */
+    private static int putDigits(char[] buffer, int pos, long value, int minDigits) {
+        int digits = countDigits(value, minDigits);
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[pos++] = (char) ('0' + ((value / POWERS_OF_TEN_LONG[i]) % 10));
+        }
+        return pos;
+    }
+
+    private static int countDigits(long value, int minDigits) {
+        int digits = minDigits;
+        while ((digits < POWERS_OF_TEN_LONG.length) && (value >= POWERS_OF_TEN_LONG[digits])) digits++;
+        return digits;
+    }
+
     /** Parsing helper: Converts a {@link Date} value to {@link String}. */
     public static String formatDate(Date date) {
         if (date != null) {
-            return timeFormatter.format(date);
+            return IsoDateTimeFormatter.format(date.getTime());
         }
         return "";
     }
@@ -87,13 +357,21 @@ public class GeoFormatter {
 
     /** Parsing helper: Converts zoom {@link String} value to zoom compatible int. */
     public static int parseZoom(String value) {
+        // same as Integer.parseInt(value) in range 0..63 but without NumberFormatException
         if (value != null) {
-            try {
-                int result = Integer.parseInt(value);
-                if ((result >= 0) && (result < 64)) {
+            int length = value.length();
+            int pos = ((length > 0) && ((value.charAt(0) == '+') || (value.charAt(0) == '-'))) ? 1 : 0;
+            boolean negative = (pos == 1) && (value.charAt(0) == '-');
+            if (pos < length) {
+                int result = 0;
+                for (; pos < length; pos++) {
+                    int digit = Character.digit(value.charAt(pos), 10);
+                    if (digit < 0) return IGeoPointInfo.NO_ZOOM;
+                    if (result < 64) result = result * 10 + digit;
+                }
+                if ((result < 64) && (!negative || (result == 0))) {
                     return result;
                 }
-            } catch (Exception ignore) {
             }
         }
         return IGeoPointInfo.NO_ZOOM;
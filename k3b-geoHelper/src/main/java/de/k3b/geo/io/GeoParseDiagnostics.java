@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the problems found while parsing many geo-uri-s (i.e. while loading a
+ * {@link GeoFileRepository}) without exceptions and without stack traces.
+ *
+ * Every line that is not {@link GeoUri#STATUS_OK} is counted per GeoUri.STATUS_xxx bit.
+ * Details (line number, status and text) are kept for the first maxEntries lines only so that
+ * a dirty file with millions of bad lines does not fill up the memory.
+ *
+ * **Example**
+ *
+ * ```java
+ * GeoParseDiagnostics diagnostics = new GeoParseDiagnostics(100);
+ * GeoFileRepository<GeoPointDto> repository
+ *             = new GeoFileRepository<>(new File("/path/to/repository.txt"));
+ * repository.setDiagnostics(diagnostics).load();
+ * if (diagnostics.getErrorCount() > 0) System.out.println(diagnostics.getEntries());
+ * ```
+ *
+ * Instances are thread safe.
+ */
+public class GeoParseDiagnostics {
+    /** Longer texts are truncated in {@link Entry#getText()} */
+    public static final int MAX_TEXT_LENGTH = 200;
+
+    /** Number of different GeoUri.STATUS_xxx bits */
+    private static final int STATUS_BITS = 5;
+
+    private final int maxEntries;
+    private final List<Entry> entries = new ArrayList<>();
+
+    private long lineCount = 0;
+    private long problemCount = 0;
+    private long errorCount = 0;
+    private long droppedCount = 0;
+    private final long[] statusCounts = new long[STATUS_BITS];
+
+    /** Create a sink that keeps details for up to maxEntries lines with problems. */
+    public GeoParseDiagnostics(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /** Record the parse status of line lineNumber with the content src[start,end). */
+    public synchronized void add(long lineNumber, int status, CharSequence src, int start, int end) {
+        lineCount++;
+        if (status == GeoUri.STATUS_OK) return;
+
+        problemCount++;
+        if ((status & GeoUri.STATUS_ERROR) != 0) errorCount++;
+        for (int bit = 0; bit < STATUS_BITS; bit++) {
+            if ((status & (1 << bit)) != 0) statusCounts[bit]++;
+        }
+
+        if (entries.size() < maxEntries) {
+            int textEnd = Math.min(end, start + MAX_TEXT_LENGTH);
+            entries.add(new Entry(lineNumber, status, src.subSequence(start, textEnd).toString()));
+        } else {
+            droppedCount++;
+        }
+    }
+
+    /** Details of the first lines with problems in the order they were added. */
+    public synchronized List<Entry> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    /** Number of lines that were parsed. */
+    public synchronized long getLineCount() {
+        return lineCount;
+    }
+
+    /** Number of lines that were not {@link GeoUri#STATUS_OK}. */
+    public synchronized long getProblemCount() {
+        return problemCount;
+    }
+
+    /** Number of lines that could not be parsed at all ({@link GeoUri#STATUS_ERROR}). */
+    public synchronized long getErrorCount() {
+        return errorCount;
+    }
+
+    /** Number of lines with problems whose details were not kept because maxEntries was reached. */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /** Number of lines with GeoUri.STATUS_xxx statusBit set. */
+    public synchronized long getCount(int statusBit) {
+        for (int bit = 0; bit < STATUS_BITS; bit++) {
+            if (statusBit == (1 << bit)) return statusCounts[bit];
+        }
+        throw new IllegalArgumentException("Not a single GeoUri.STATUS_xxx bit: " + statusBit);
+    }
+
+    /** Removes all entries and resets the counters. */
+    public synchronized void clear() {
+        entries.clear();
+        lineCount = 0;
+        problemCount = 0;
+        errorCount = 0;
+        droppedCount = 0;
+        for (int bit = 0; bit < STATUS_BITS; bit++) {
+            statusCounts[bit] = 0;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "GeoParseDiagnostics[lines=" + lineCount + ", problems=" + problemCount
+                + ", errors=" + errorCount + ", dropped=" + droppedCount + "]";
+    }
+
+    /** Details of one line with problems. */
+    public static class Entry {
+        private final long lineNumber;
+        private final int status;
+        private final String text;
+
+        Entry(long lineNumber, int status, String text) {
+            this.lineNumber = lineNumber;
+            this.status = status;
+            this.text = text;
+        }
+
+        /** 1-based line number in the source. */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        /** Combination of GeoUri.STATUS_xxx. */
+        public int getStatus() {
+            return status;
+        }
+
+        /** The line content. Truncated to {@link #MAX_TEXT_LENGTH} chars. */
+        public String getText() {
+            return text;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + " (status " + status + "): " + text;
+        }
+    }
+}
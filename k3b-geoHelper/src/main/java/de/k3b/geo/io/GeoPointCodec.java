@@ -0,0 +1,384 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.k3b.geo.api.GeoPointDto;
+import de.k3b.geo.api.IGeoPointInfo;
+
+/**
+ * Compact versioned binary format for lists of {@link IGeoPointInfo}.
+ *
+ * Much faster to write and read than geo-uri text. Use it to cache point lists or to pass them
+ * between processes. It is not meant as a long-term file format.
+ *
+ * Layout (all numbers big endian):
+ *
+ * * list: version byte, varint count, count records
+ * * record: varint payload length, 2 byte presence bitmap of the FIELD_xxx that are set,
+ *   then for every set field in bit order: lat/lon as raw double, zoom as zigzag varint,
+ *   time as raw long millisecs, texts as varint utf-8 length and utf-8 bytes.
+ *
+ * ```java
+ * ByteBuffer bytes = GeoPointCodec.encode(points);
+ * List<GeoPointDto> copy = GeoPointCodec.readAll(bytes, new GeoPointDto());
+ * ```
+ *
+ * All methods are thread safe.
+ */
+public class GeoPointCodec {
+    /** Format version written in front of every list */
+    public static final int VERSION = 1;
+
+    /* Bits of the presence bitmap in record order */
+    private static final int FIELD_LATITUDE = 1;
+    private static final int FIELD_LONGITUDE = 1 << 1;
+    private static final int FIELD_ZOOM_MIN = 1 << 2;
+    private static final int FIELD_ZOOM_MAX = 1 << 3;
+    private static final int FIELD_TIME = 1 << 4;
+    private static final int FIELD_NAME = 1 << 5;
+    private static final int FIELD_DESCRIPTION = 1 << 6;
+    private static final int FIELD_ID = 1 << 7;
+    private static final int FIELD_LINK = 1 << 8;
+    private static final int FIELD_SYMBOL = 1 << 9;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** Smallest possible record: 1 byte payload length and the 2 byte presence bitmap */
+    private static final int MIN_RECORD_SIZE = 3;
+
+    /** Upper limit of the initial list capacity if the count cannot be checked against the input size */
+    private static final int MAX_INITIAL_CAPACITY = 4096;
+
+    /** Initial size of buffers that grow on demand */
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    private GeoPointCodec() {
+    }
+
+    /** Encode points into a new heap buffer that is ready to be read (position 0, limit = size). */
+    public static ByteBuffer encode(List<? extends IGeoPointInfo> points) {
+        int size = 1 + varIntSize(points.size());
+        for (IGeoPointInfo point : points) {
+            int payload = payloadSize(point);
+            size += varIntSize(payload) + payload;
+        }
+        ByteBuffer result = ByteBuffer.allocate(size);
+        writeAll(result, points);
+        result.flip();
+        return result;
+    }
+
+    /** Write points to out starting at its position.
+     *
+     * @throws java.nio.BufferOverflowException if out is too small. */
+    public static void writeAll(ByteBuffer out, List<? extends IGeoPointInfo> points) {
+        out.put((byte) VERSION);
+        putVarInt(out, points.size());
+        for (IGeoPointInfo point : points) {
+            write(out, point);
+        }
+    }
+
+    /** Write points to out. */
+    public static void writeAll(DataOutput out, List<? extends IGeoPointInfo> points) throws IOException {
+        out.writeByte(VERSION);
+        ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        putVarInt(buffer, points.size());
+        for (IGeoPointInfo point : points) {
+            int payload = payloadSize(point);
+            int size = varIntSize(payload) + payload;
+            if (buffer.remaining() < size) {
+                out.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+                if (buffer.capacity() < size) buffer = ByteBuffer.allocate(Math.max(size, 2 * buffer.capacity()));
+            }
+            write(buffer, point, payload);
+        }
+        out.write(buffer.array(), 0, buffer.position());
+    }
+
+    /** Write one record for point to out. */
+    public static void write(ByteBuffer out, IGeoPointInfo point) {
+        write(out, point, payloadSize(point));
+    }
+
+    /** Read a list that was written by writeAll(...) or encode(...) from in.
+     *
+     * @param factory get-s cloned for every point read. Allows reading custom {@link GeoPointDto} subclasses.
+     * @throws IOException if the version is not supported, the count is corrupt or in ends too early. */
+    public static <T extends IGeoPointInfo> List<T> readAll(ByteBuffer in, GeoPointDto factory) throws IOException {
+        try {
+            int count = readHeader(in.get(), getVarInt(in));
+            if (count > in.remaining() / MIN_RECORD_SIZE) throw new EOFException("incomplete geo point list of " + count + " points");
+            List<T> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int payload = getVarInt(in);
+                if ((payload < 0) || (payload > in.remaining())) throw new BufferUnderflowException();
+                int end = in.position() + payload;
+                int limit = in.limit();
+                // a corrupt record must not read into the next one
+                in.limit(end);
+                try {
+                    result.add(GeoPointCodec.<T>readItem(in, factory));
+                } finally {
+                    in.limit(limit);
+                }
+                in.position(end);
+            }
+            return result;
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("incomplete geo point list");
+        }
+    }
+
+    /** Read a list that was written by writeAll(...) or encode(...) from in.
+     *
+     * @param factory get-s cloned for every point read. Allows reading custom {@link GeoPointDto} subclasses.
+     * @throws IOException if the version is not supported, the count is corrupt or in ends too early. */
+    public static <T extends IGeoPointInfo> List<T> readAll(DataInput in, GeoPointDto factory) throws IOException {
+        int count = readHeader(in.readByte(), readVarInt(in));
+
+        // the size of in is unknown: a corrupt count must not allocate a huge list
+        List<T> result = new ArrayList<>(Math.min(count, MAX_INITIAL_CAPACITY));
+        ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        for (int i = 0; i < count; i++) {
+            int payload = readVarInt(in);
+            if (payload < 0) throw new IOException("malformed geo point record " + i);
+            if (buffer.capacity() < payload) buffer = ByteBuffer.allocate(Math.max(payload, 2 * buffer.capacity()));
+            buffer.clear();
+            in.readFully(buffer.array(), 0, payload);
+            buffer.limit(payload);
+            try {
+                result.add(GeoPointCodec.<T>readItem(buffer, factory));
+            } catch (BufferUnderflowException e) {
+                throw new EOFException("incomplete geo point record " + i);
+            }
+        }
+        return result;
+    }
+
+    /** Read the payload of one record from in into a cleared clone of factory. */
+    @SuppressWarnings("unchecked") // like GeoFileRepository the caller chooses T to match the class of factory
+    private static <T extends IGeoPointInfo> T readItem(ByteBuffer in, GeoPointDto factory) {
+        return (T) read(in, factory.clone().clear());
+    }
+
+    /** Read the payload of one record from in into dest. */
+    private static GeoPointDto read(ByteBuffer in, GeoPointDto dest) {
+        int fields = in.getShort() & 0xffff;
+        if ((fields & FIELD_LATITUDE) != 0) dest.setLatitude(in.getDouble());
+        if ((fields & FIELD_LONGITUDE) != 0) dest.setLongitude(in.getDouble());
+        if ((fields & FIELD_ZOOM_MIN) != 0) dest.setZoomMin(getZigZag(in));
+        if ((fields & FIELD_ZOOM_MAX) != 0) dest.setZoomMax(getZigZag(in));
+        if ((fields & FIELD_TIME) != 0) dest.setTimeOfMeasurementMillis(in.getLong());
+        if ((fields & FIELD_NAME) != 0) dest.setName(getString(in));
+        if ((fields & FIELD_DESCRIPTION) != 0) dest.setDescription(getString(in));
+        if ((fields & FIELD_ID) != 0) dest.setId(getString(in));
+        if ((fields & FIELD_LINK) != 0) dest.setLink(getString(in));
+        if ((fields & FIELD_SYMBOL) != 0) dest.setSymbol(getString(in));
+        return dest;
+    }
+
+    private static int readHeader(int version, int count) throws IOException {
+        if (version != VERSION) throw new IOException("unsupported geo point list version " + version);
+        if (count < 0) throw new IOException("malformed geo point count " + count);
+        return count;
+    }
+
+    private static void write(ByteBuffer out, IGeoPointInfo point, int payload) {
+        putVarInt(out, payload);
+        out.putShort((short) getFields(point));
+        if (point.getLatitude() != IGeoPointInfo.NO_LAT_LON) out.putDouble(point.getLatitude());
+        if (point.getLongitude() != IGeoPointInfo.NO_LAT_LON) out.putDouble(point.getLongitude());
+        if (point.getZoomMin() != IGeoPointInfo.NO_ZOOM) putZigZag(out, point.getZoomMin());
+        if (point.getZoomMax() != IGeoPointInfo.NO_ZOOM) putZigZag(out, point.getZoomMax());
+        if (point.getTimeOfMeasurementMillis() != IGeoPointInfo.NO_TIME) out.putLong(point.getTimeOfMeasurementMillis());
+        putString(out, point.getName());
+        putString(out, point.getDescription());
+        putString(out, point.getId());
+        putString(out, point.getLink());
+        putString(out, point.getSymbol());
+    }
+
+    private static int getFields(IGeoPointInfo point) {
+        int fields = 0;
+        if (point.getLatitude() != IGeoPointInfo.NO_LAT_LON) fields |= FIELD_LATITUDE;
+        if (point.getLongitude() != IGeoPointInfo.NO_LAT_LON) fields |= FIELD_LONGITUDE;
+        if (point.getZoomMin() != IGeoPointInfo.NO_ZOOM) fields |= FIELD_ZOOM_MIN;
+        if (point.getZoomMax() != IGeoPointInfo.NO_ZOOM) fields |= FIELD_ZOOM_MAX;
+        if (point.getTimeOfMeasurementMillis() != IGeoPointInfo.NO_TIME) fields |= FIELD_TIME;
+        if (point.getName() != null) fields |= FIELD_NAME;
+        if (point.getDescription() != null) fields |= FIELD_DESCRIPTION;
+        if (point.getId() != null) fields |= FIELD_ID;
+        if (point.getLink() != null) fields |= FIELD_LINK;
+        if (point.getSymbol() != null) fields |= FIELD_SYMBOL;
+        return fields;
+    }
+
+    /** Number of bytes of a record for point without the length prefix */
+    private static int payloadSize(IGeoPointInfo point) {
+        int size = 2;
+        if (point.getLatitude() != IGeoPointInfo.NO_LAT_LON) size += 8;
+        if (point.getLongitude() != IGeoPointInfo.NO_LAT_LON) size += 8;
+        if (point.getZoomMin() != IGeoPointInfo.NO_ZOOM) size += varIntSize(zigZag(point.getZoomMin()));
+        if (point.getZoomMax() != IGeoPointInfo.NO_ZOOM) size += varIntSize(zigZag(point.getZoomMax()));
+        if (point.getTimeOfMeasurementMillis() != IGeoPointInfo.NO_TIME) size += 8;
+        size += stringSize(point.getName());
+        size += stringSize(point.getDescription());
+        size += stringSize(point.getId());
+        size += stringSize(point.getLink());
+        size += stringSize(point.getSymbol());
+        return size;
+    }
+
+    /* ---------- strings as varint length + utf-8 ---------- */
+
+    private static int stringSize(String value) {
+        if (value == null) return 0;
+        int length = utf8Length(value);
+        return varIntSize(length) + length;
+    }
+
+    /** Same length as {@link String#getBytes(Charset)} with utf-8 */
+    private static int utf8Length(String value) {
+        int length = value.length();
+        int result = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    result++;
+                } else if (Character.isHighSurrogate(c) && (i + 1 < length) && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    result += 2; // 2 chars => 4 bytes
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    // unpaired surrogate is encoded as '?'
+                } else {
+                    result += 2;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Same bytes as {@link String#getBytes(Charset)} with utf-8 without creating a byte[] */
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) return;
+        putVarInt(out, utf8Length(value));
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xc0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3f)));
+            } else if (Character.isHighSurrogate(c) && (i + 1 < length) && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out.put((byte) (0xf0 | (codePoint >> 18)));
+                out.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+                out.put((byte) (0x80 | (codePoint & 0x3f)));
+            } else if (Character.isSurrogate(c)) {
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xe0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+                out.put((byte) (0x80 | (c & 0x3f)));
+            }
+        }
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = getVarInt(in);
+        if ((length < 0) || (length > in.remaining())) throw new BufferUnderflowException();
+        String result;
+        if (in.hasArray()) {
+            result = new String(in.array(), in.arrayOffset() + in.position(), length, UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            in.duplicate().get(bytes);
+            result = new String(bytes, UTF_8);
+        }
+        in.position(in.position() + length);
+        return result;
+    }
+
+    /* ---------- varint ---------- */
+
+    private static int varIntSize(int value) {
+        int result = 1;
+        while ((value & ~0x7f) != 0) {
+            value >>>= 7;
+            result++;
+        }
+        return result;
+    }
+
+    private static void putVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int getVarInt(ByteBuffer in) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            result |= (b & 0x7f) << shift;
+            if (b >= 0) return result;
+        }
+        throw new BufferUnderflowException();
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            result |= (b & 0x7f) << shift;
+            if (b >= 0) return result;
+        }
+        throw new IOException("malformed varint");
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static void putZigZag(ByteBuffer out, int value) {
+        putVarInt(out, zigZag(value));
+    }
+
+    private static int getZigZag(ByteBuffer in) {
+        int value = getVarInt(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.io;
+
+import de.k3b.geo.api.GeoPointDto;
+import de.k3b.util.StringPool;
+
+/**
+ * One bounded {@link StringPool} per text field that is often repeated in poi collections:
+ * name, link and symbol. Description and id are usually unique and are not pooled.
+ *
+ * Loaders take the field values from the pools so that i.e. the same symbol icon url is kept
+ * only once in memory. On a pool hit no temporary {@link String} is created.
+ *
+ * ```java
+ * GeoStringPools pools = new GeoStringPools();
+ * GeoFileRepository<GeoPointDto> repository
+ *             = new GeoFileRepository<>(new File("/path/to/repository.poi"));
+ * repository.setStringPools(pools).load();
+ * logger.info("saved " + pools.getSavedBytes() + " bytes");
+ * ```
+ *
+ * Instances are not thread safe. Use one instance per loader.
+ */
+public class GeoStringPools {
+    /** Default for the maximum number of different values per field */
+    public static final int DEFAULT_MAX_SIZE = 4096;
+
+    private final StringPool name;
+    private final StringPool link;
+    private final StringPool symbol;
+
+    public GeoStringPools() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /** Create pools that hold up to maxSize different values per field. */
+    public GeoStringPools(int maxSize) {
+        this.name = new StringPool(maxSize);
+        this.link = new StringPool(maxSize);
+        this.symbol = new StringPool(maxSize);
+    }
+
+    /** Pool for {@link GeoPointDto#getName()} */
+    public StringPool getName() {
+        return name;
+    }
+
+    /** Pool for {@link GeoPointDto#getLink()} */
+    public StringPool getLink() {
+        return link;
+    }
+
+    /** Pool for {@link GeoPointDto#getSymbol()} */
+    public StringPool getSymbol() {
+        return symbol;
+    }
+
+    /** Replaces name, link and symbol of geo with the pooled instances. Used where the values
+     * already exist as {@link String} (i.e. xml attributes). */
+    public GeoPointDto apply(GeoPointDto geo) {
+        if (geo != null) {
+            geo.setName(name.get(geo.getName()))
+                    .setLink(link.get(geo.getLink()))
+                    .setSymbol(symbol.get(geo.getSymbol()));
+        }
+        return geo;
+    }
+
+    /** Estimated number of heap bytes that are saved in all fields. */
+    public long getSavedBytes() {
+        return name.getSavedBytes() + link.getSavedBytes() + symbol.getSavedBytes();
+    }
+
+    /** Removes all values and resets the counters. */
+    public void clear() {
+        name.clear();
+        link.clear();
+        symbol.clear();
+    }
+}
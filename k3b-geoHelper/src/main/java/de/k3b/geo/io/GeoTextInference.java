@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.io;
+
+import java.util.List;
+
+import de.k3b.geo.api.GeoPointDto;
+import de.k3b.util.IsoDateTimeParser;
+
+/**
+ * Implementation detail of {@link GeoUri}: Finds name "(name)", iso date time, "lat,lon",
+ * href='link' and src='symbol' in free text (i.e. a html description) in one linear pass.
+ *
+ * Gives the same result as running the corresponding regular expressions one after another
+ * over every candidate: for every field the first candidate that contains it wins and
+ * within a candidate the leftmost finding wins.
+ * Scanning stops as soon as every wanted field is found.
+ *
+ * ```java
+ * GeoTextInference inference = new GeoTextInference(GeoTextInference.NAME | GeoTextInference.TIME);
+ * inference.scan(whereToSearch);
+ * String name = inference.getText(GeoTextInference.NAME);
+ * ```
+ */
+class GeoTextInference {
+    /* Fields that can be inferred. Can be combined with "|" */
+    static final int NAME = 1;
+    static final int TIME = 2;
+    static final int LAT_LON = 4;
+    static final int LINK = 8;
+    static final int SYMBOL = 16;
+
+    private static final int FIELD_COUNT = 5;
+
+    /** Result of {@link #matchAttribute(CharSequence, int, int, String)}: there is no closing quote. */
+    private static final long UNTERMINATED = -2;
+
+    /** Fields that are wanted but not found yet */
+    private int missing;
+
+    /** Where a field was found: candidate and range within candidate */
+    private final CharSequence[] foundIn = new CharSequence[FIELD_COUNT];
+    private final long[] foundRange = new long[FIELD_COUNT];
+
+    /** Create for wanted fields NAME, TIME, LAT_LON, LINK, SYMBOL */
+    GeoTextInference(int wanted) {
+        this.missing = wanted;
+    }
+
+    /** Scans the candidates in order until every wanted field is found. null candidates are ignored. */
+    GeoTextInference scan(List<? extends CharSequence> candidates) {
+        if (candidates != null) {
+            for (CharSequence candidate : candidates) {
+                if (missing == 0) break;
+                scan(candidate);
+            }
+        }
+        return this;
+    }
+
+    /** Finds the leftmost occurence of every missing field in candidate in one pass. */
+    GeoTextInference scan(CharSequence candidate) {
+        if (candidate == null) return this;
+
+        int end = candidate.length();
+        int todo = missing;     // fields that still can be found in the rest of candidate
+        int latLonNext = 0;     // lat/lon is not retried inside a number that did not match
+        for (int pos = 0; (todo != 0) && (pos < end); pos++) {
+            char c = candidate.charAt(pos);
+
+            if (((todo & NAME) != 0) && (c == '(')) {
+                // same as regular expression "\s*\(([^\(\)]+)\)"
+                int nameEnd = pos + 1;
+                while ((nameEnd < end) && (candidate.charAt(nameEnd) != '(') && (candidate.charAt(nameEnd) != ')')) nameEnd++;
+                if (nameEnd >= end) {
+                    todo &= ~NAME;
+                } else if ((candidate.charAt(nameEnd) == ')') && (nameEnd > pos + 1)) {
+                    todo &= ~found(NAME, candidate, pos + 1, nameEnd);
+                }
+            }
+
+            if (((todo & TIME) != 0) && (c >= '0') && (c <= '9')) {
+                int timeEnd = GeoUriScanner.matchIsoDateTime(candidate, pos, end);
+                if (timeEnd >= 0) todo &= ~found(TIME, candidate, pos, timeEnd);
+            }
+
+            if (((todo & LAT_LON) != 0) && (pos >= latLonNext)) {
+                // same as regular expression "lat , lon {, alt}"
+                int latEnd = GeoUriScanner.matchNumber(candidate, pos, end);
+                if (latEnd >= 0) {
+                    int comma = GeoUriScanner.skipWhitespace(candidate, latEnd, end);
+                    if ((comma < end) && (candidate.charAt(comma) == ',')
+                            && (GeoUriScanner.matchNumber(candidate, GeoUriScanner.skipWhitespace(candidate, comma + 1, end), end) >= 0)) {
+                        todo &= ~found(LAT_LON, candidate, pos, latEnd);
+                    } else {
+                        latLonNext = latEnd;
+                    }
+                }
+            }
+
+            if (((todo & LINK) != 0) && (c == 'h')) {
+                todo &= ~matchAttribute(LINK, candidate, pos, end, "href");
+            }
+
+            if (((todo & SYMBOL) != 0) && (c == 's')) {
+                todo &= ~matchAttribute(SYMBOL, candidate, pos, end, "src");
+            }
+        }
+        return this;
+    }
+
+    /** True if field was found */
+    boolean isFound(int field) {
+        return foundIn[index(field)] != null;
+    }
+
+    /** Returns the text of field or null if not found. */
+    String getText(int field) {
+        int index = index(field);
+        CharSequence candidate = foundIn[index];
+        if (candidate == null) return null;
+        long range = foundRange[index];
+        return candidate.subSequence(GeoUriScanner.rangeStart(range), GeoUriScanner.rangeEnd(range)).toString();
+    }
+
+    /** Sets name if found and empty in parseResult. */
+    void applyName(GeoPointDto parseResult) {
+        String currentValue = parseResult.getName();
+        if (((currentValue == null) || (currentValue.length() == 0)) && isFound(NAME)) {
+            parseResult.setName(getText(NAME));
+        }
+    }
+
+    /** Sets time if found. Other than the text fields an existing time is overwritten. */
+    void applyTime(GeoPointDto parseResult) {
+        int index = index(TIME);
+        CharSequence candidate = foundIn[index];
+        if (candidate != null) {
+            long range = foundRange[index];
+            parseResult.setTimeOfMeasurementMillis(IsoDateTimeParser.parseMillis(candidate, GeoUriScanner.rangeStart(range), GeoUriScanner.rangeEnd(range)));
+        }
+    }
+
+    /** Sets lat and lon if found and not set in parseResult yet.
+     *
+     * @return {@link GeoUri#STATUS_OK} or {@link GeoUri#STATUS_MALFORMED_LAT_LON} */
+    int applyLatLon(GeoPointDto parseResult) {
+        int index = index(LAT_LON);
+        CharSequence candidate = foundIn[index];
+        if (candidate != null) {
+            return GeoUriScanner.setLatLon(parseResult, candidate, GeoUriScanner.rangeStart(foundRange[index]), candidate.length());
+        }
+        return GeoUri.STATUS_OK;
+    }
+
+    /** Sets link and symbol if found and empty in parseResult. */
+    void applyLinkAndSymbol(GeoPointDto parseResult) {
+        String currentValue = parseResult.getLink();
+        if (((currentValue == null) || (currentValue.length() == 0)) && isFound(LINK)) {
+            parseResult.setLink(getText(LINK));
+        }
+        currentValue = parseResult.getSymbol();
+        if (((currentValue == null) || (currentValue.length() == 0)) && isFound(SYMBOL)) {
+            parseResult.setSymbol(getText(SYMBOL));
+        }
+    }
+
+    /** Remembers the finding and returns field. */
+    private int found(int field, CharSequence candidate, int start, int end) {
+        int index = index(field);
+        foundIn[index] = candidate;
+        foundRange[index] = GeoUriScanner.range(start, end);
+        missing &= ~field;
+        return field;
+    }
+
+    /** Same as regular expression "\s*name\s?\=\s?['\"]([^'\"]*)['\"]" at pos.
+     *
+     * @return field if found or if there cannot be a finding in the rest of candidate. Else 0. */
+    private int matchAttribute(int field, CharSequence candidate, int pos, int end, String name) {
+        long value = matchAttribute(candidate, pos, end, name);
+        if (value == UNTERMINATED) return field;
+        if (value == GeoUriScanner.NONE) return 0;
+        return found(field, candidate, GeoUriScanner.rangeStart(value), GeoUriScanner.rangeEnd(value));
+    }
+
+    /** @return range of the attribute value, {@link GeoUriScanner#NONE} or {@link #UNTERMINATED}. */
+    private static long matchAttribute(CharSequence s, int pos, int end, String name) {
+        int length = name.length();
+        if (pos + length > end) return GeoUriScanner.NONE;
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(pos + i) != name.charAt(i)) return GeoUriScanner.NONE;
+        }
+
+        int p = pos + length;
+        if ((p < end) && GeoUriScanner.isWhitespace(s.charAt(p))) p++;
+        if ((p >= end) || (s.charAt(p) != '=')) return GeoUriScanner.NONE;
+        p++;
+        if ((p < end) && GeoUriScanner.isWhitespace(s.charAt(p))) p++;
+        if ((p >= end) || !isQuote(s.charAt(p))) return GeoUriScanner.NONE;
+
+        int valueStart = ++p;
+        while ((p < end) && !isQuote(s.charAt(p))) p++;
+
+        // without a closing quote there cannot be a later finding either
+        if (p >= end) return UNTERMINATED;
+        return GeoUriScanner.range(valueStart, p);
+    }
+
+    private static boolean isQuote(char c) {
+        return (c == '\'') || (c == '"');
+    }
+
+    private static int index(int field) {
+        return Integer.numberOfTrailingZeros(field);
+    }
+}
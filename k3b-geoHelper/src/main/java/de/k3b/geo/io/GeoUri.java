@@ -18,20 +18,28 @@
 
 package de.k3b.geo.io;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
-import java.net.URLEncoder;
-import java.text.ParseException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import de.k3b.geo.api.GeoPointBatch;
 import de.k3b.geo.api.GeoPointDto;
 import de.k3b.geo.api.IGeoPointInfo;
+import de.k3b.util.IsoDateTimeFormatter;
 import de.k3b.util.IsoDateTimeParser;
 
 /**
@@ -116,10 +124,37 @@ public class GeoUri {
      */
     public static final int OPT_PARSE_INFER_MISSING = 0x100;
 
+    /* Results of {@link #parse(CharSequence, int, int, GeoPointDto)}. Can be combined with "|" */
+
+    /** Parse status: everything was understood */
+    public static final int STATUS_OK = 0;
+
+    /** Parse status: not a geo-uri or http(s)-url. Nothing was parsed. */
+    public static final int STATUS_UNKNOWN_FORMAT = 1;
+
+    /** Parse status: the uri contains a malformed %-escape. Nothing was parsed. */
+    public static final int STATUS_MALFORMED_ESCAPE = 2;
+
+    /** Parse status: a lat or lon value is not a number and was ignored. */
+    public static final int STATUS_MALFORMED_LAT_LON = 4;
+
+    /** Parse status: a zoom value is not a number in 0..63 and was ignored. */
+    public static final int STATUS_MALFORMED_ZOOM = 8;
+
+    /** Parse status: the t= value is not an iso date and was ignored. */
+    public static final int STATUS_MALFORMED_TIME = 0x10;
+
+    /** Parse status bits that mean that nothing was parsed */
+    public static final int STATUS_ERROR = STATUS_UNKNOWN_FORMAT | STATUS_MALFORMED_ESCAPE;
+
     /**
      * Default for url-encoding.
      */
     private static final String DEFAULT_ENCODING = "UTF-8";
+    private static final String HEX_DIGITS = "0123456789ABCDEF";
+
+    /** Max number of uri chars in the message of a malformed escape exception */
+    private static final int MAX_MESSAGE_URI_LENGTH = 200;
     public static final String GEO_SCHEME = "geo:";
     public static final String AREA_SCHEME = "geoarea:";
     public static final java.lang.String HTTPS_SCHEME = "https:";
@@ -127,38 +162,51 @@ public class GeoUri {
 
     /* Regular expressions used by the parser.<br/>
        '(?:"+something+")"' is a non capturing group; "\s" white space */
-    private final static String regexpName = "(?:\\s*\\(([^\\(\\)]+)\\))"; // i.e. " (hallo world)"
-    private final static Pattern patternName = Pattern.compile(regexpName);
     private final static String regexpDouble = "([+\\-" + GeoFormatter.LatLonPrefix +
             "]?[0-9\\.]+)"; // i.e. "-123.456" or "S123.456"
     // private final static String regexpDoubleOptional = regexpDouble + "?";
     private final static String regexpCommaDouble = "(?:\\s*,\\s*" + regexpDouble + ")"; // i.e. " , +123.456"
-    private final static String regexpCommaDoubleOptional = regexpCommaDouble + "?";
-    private final static String regexpLatLonAlt = regexpDouble + regexpCommaDouble + regexpCommaDoubleOptional;
     private final static String regexpLatLonLatLon = regexpDouble + regexpCommaDouble + regexpCommaDouble + regexpCommaDouble;
-    private final static Pattern patternLatLonAlt = Pattern.compile(regexpLatLonAlt);
     private final static Pattern patternLatLonLatLon = Pattern.compile(regexpLatLonLatLon);
     // private final static Pattern patternTime = Pattern.compile("([12]\\d\\d\\d-\\d\\d-\\d\\dT\\d\\d:\\d\\d:\\d\\dZ)");
 
-    private final static String regexpHref = "(?:\\s*href\\s?\\=\\s?['\"]([^'\"]*)['\"])"; // i.e. href='hallo'
-    private final static Pattern patternHref = Pattern.compile(regexpHref);
+    private static final Logger logger = LoggerFactory.getLogger(GeoUri.class);
 
-    private final static String regexpSrc = "(?:\\s*src\\s?\\=\\s?['\"]([^'\"]*)['\"])"; // i.e. src='hallo'
-    private final static Pattern patternSrc = Pattern.compile(regexpSrc);
+    /** Created on demand by {@link #getParsePool()} */
+    private static ForkJoinPool parsePool = null;
+
+    /** Shared instances of {@link #forOptions(int)} */
+    private static final ConcurrentHashMap<Integer, GeoUri> instances = new ConcurrentHashMap<Integer, GeoUri>();
 
     /* Current state */
 
     /** Formating/parsing options */
     private final int options;
 
-    /** For uri-formatter: Next delimiter for a parameter. can be "?" or "&"  */
-    private String delim;
-
-    /** Create with options from OPT_xxx */
+    /** Create with options from OPT_xxx.
+     *
+     * Instances are immutable and can be shared between threads. See also {@link #forOptions(int)}. */
     public GeoUri(int options) {
         this.options = options;
     }
 
+    /** Returns a shared thread safe instance for options from OPT_xxx */
+    public static GeoUri forOptions(int options) {
+        Integer key = options;
+        GeoUri result = instances.get(key);
+        if (result == null) {
+            result = new GeoUri(options);
+            GeoUri existing = instances.putIfAbsent(key, result);
+            if (existing != null) result = existing;
+        }
+        return result;
+    }
+
+    /** Formating/parsing options OPT_xxx */
+    public int getOptions() {
+        return options;
+    }
+
     /**
      * Load {@link IGeoPointInfo} from uri-{@link String}.<br/>
      *
@@ -192,111 +240,255 @@ public class GeoUri {
 	 */
     public <TGeo extends GeoPointDto>  TGeo fromUri(String uri, TGeo parseResult) {
         if (uri == null) return null;
+        return toResult(uri, 0, uri.length(), parse(uri, 0, uri.length(), parseResult), parseResult);
+    }
 
-        if (uri.startsWith(HTTP_SCHEME) || uri.startsWith(HTTPS_SCHEME)) {
-            String uriLowercase = uri.toLowerCase();
-            if (uriLowercase.indexOf("yandex.") >= 0) return getYandexUri(uri, parseResult);
-            if (uriLowercase.indexOf("openstreetmap.") >= 0) return getOpenstreetmapUri(uri, parseResult);
-            if (uriLowercase.indexOf(".here.") >= 0) return getHereUri(uri, parseResult);
-            if (uriLowercase.indexOf(".google.") >= 0) return getGoogleUri(uri, parseResult);
+    /** Load {@link IGeoPointInfo} from the uri in src[start,end) into parseResult.
+     *
+     * Same as {@link #fromUri(String, GeoPointDto)} but parses straight out of a shared buffer
+     * (i.e. a {@link java.nio.CharBuffer} or {@link StringBuilder}) without copying the uri
+     * into its own {@link String} first.
+     *
+     * For details see [supported geo uri formats](https://github.com/k3b/k3b-geoHelper/wiki/data#geo)
+     */
+    public <TGeo extends GeoPointDto> TGeo fromUri(CharSequence src, int start, int end, TGeo parseResult) {
+        if (src == null) return null;
+        return toResult(src, start, end, parse(src, start, end, parseResult), parseResult);
+    }
 
-            // unknown. try default
-            return uriParamParse(uri, parseResult);
+    /** Load {@link IGeoPointInfo} from the uri in src[start,end) into parseResult without exceptions.
+     *
+     * Malformed values are ignored and reported in the result.
+     *
+     * @return {@link #STATUS_OK} or a combination of STATUS_xxx.
+     * If {@link #STATUS_ERROR} bits are set parseResult is unchanged.
+     */
+    public int parse(CharSequence src, int start, int end, GeoPointDto parseResult) {
+        return parse(src, start, end, parseResult, null);
+    }
 
-        }
-        if (uri.startsWith(HTTP_SCHEME) || uri.startsWith(HTTPS_SCHEME) || uri.startsWith(GEO_SCHEME)) {
-            return uriParamParse(uri, parseResult);
+    /** Same as {@link #parse(CharSequence, int, int, GeoPointDto)} but name, link and symbol are
+     * taken from pools (if not null) so that repeated values share one {@link String}.
+     *
+     * @return {@link #STATUS_OK} or a combination of STATUS_xxx.
+     */
+    public int parse(CharSequence src, int start, int end, GeoPointDto parseResult, GeoStringPools pools) {
+        if (src == null) return STATUS_UNKNOWN_FORMAT;
+
+        int status;
+        if (startsWith(src, start, end, GEO_SCHEME)) {
+            // fast path without regular expressions. The scanner cannot infer missing values.
+            if (!isSet(OPT_PARSE_INFER_MISSING)) {
+                GeoUriScanner scanner = new GeoUriScanner(src, start, end, pools);
+                if (scanner.parse(parseResult)) return scanner.getStatus();
+            }
+            status = uriParamParse(src.subSequence(start, end).toString(), parseResult);
+        } else if (startsWith(src, start, end, HTTP_SCHEME) || startsWith(src, start, end, HTTPS_SCHEME)) {
+            status = fromMapServiceUrl(src.subSequence(start, end).toString(), parseResult);
+        } else {
+            // unknown format
+            return STATUS_UNKNOWN_FORMAT;
         }
 
-        // unknown format
-        return null;
+        if ((pools != null) && ((status & STATUS_ERROR) == 0)) pools.apply(parseResult);
+        return status;
     }
 
-    private <TGeo extends GeoPointDto> TGeo getYandexUri(String uri, TGeo parseResult) {
-        // https://www.yandex.com/maps/?ll=9.2,52.1&z=14
-        // special ll= handling lat / lon are spwapped
-        int dataStart = contentIndexBehind(uri, "ll=");
-        String[] parts = getParts(uri, dataStart, "[,?&]", 2);
-        if (parts != null) {
-            setLatLonZoom(parseResult, parts[1], parts[0], null);
+    /** Same as {@link #parse(CharSequence, int, int, GeoPointDto)} for source.getText()[start,end)
+     * but name, description, link and symbol of geo-uris are decoded on first access.
+     *
+     * Uris that cannot be handled by the fast scanner (http urls, {@link #OPT_PARSE_INFER_MISSING},
+     * malformed escapes) are parsed completely. */
+    int parseLazy(LazyGeoPointDto.Source source, int start, int end, LazyGeoPointDto parseResult) {
+        CharSequence src = source.getText();
+        if (!isSet(OPT_PARSE_INFER_MISSING) && startsWith(src, start, end, GEO_SCHEME)) {
+            GeoUriScanner scanner = new GeoUriScanner(src, start, end);
+            if (scanner.parse(parseResult, false)) {
+                parseResult.setSource(source, start, end);
+                return scanner.getStatus();
+            }
         }
-        return uriParamParse(uri, parseResult);
+        return parse(src, start, end, parseResult, source.getPools());
     }
 
-    private static void setLatLonZoom(GeoPointDto parseResult, String latString, String lonString, String zoom) {
-        if ((parseResult.getZoomMin() == GeoPointDto.NO_ZOOM) && (zoom != null)) {
-            parseResult.setZoomMin(GeoFormatter.parseZoom(zoom));
+    /** Translates parse status to the result of fromUri(...): null for unknown format and
+     * {@link IllegalArgumentException} for malformed escapes (as {@link URLDecoder} does).
+     *
+     * The message contains at most {@link #MAX_MESSAGE_URI_LENGTH} chars of uri[start,end)
+     * so that a memory-mapped source is not decoded completely. */
+    private static <TGeo extends GeoPointDto> TGeo toResult(CharSequence uri, int start, int end, int status, TGeo parseResult) {
+        if ((status & STATUS_UNKNOWN_FORMAT) != 0) return null;
+        if ((status & STATUS_MALFORMED_ESCAPE) != 0) {
+            String shown = (end - start > MAX_MESSAGE_URI_LENGTH)
+                    ? uri.subSequence(start, start + MAX_MESSAGE_URI_LENGTH) + "..."
+                    : uri.subSequence(start, end).toString();
+            throw new IllegalArgumentException("Malformed escape (%) pattern in " + shown);
         }
+        return parseResult;
+    }
 
-        try {
-            // !!! isNaN does not work
-            if ((latString != null) && GeoPointDto.isEmpty(parseResult.getLatitude())) parseResult.setLatitude(GeoFormatter.parseLatOrLon(latString));
-            if ((lonString != null) && GeoPointDto.isEmpty(parseResult.getLongitude()))  parseResult.setLongitude(GeoFormatter.parseLatOrLon(lonString));
-        } catch (ParseException e) {
-            e.printStackTrace();
+    /** Load {@link IGeoPointInfo} from the utf-8 encoded uri in src[start,end) into parseResult.
+     *
+     * The bytes are parsed directly: only the text fields that are kept (name, description,
+     * link, symbol, id) are decoded to {@link String}-s.
+     *
+     * @param src heap, direct or memory-mapped buffer. start and end are absolute positions.
+     *            Position and limit of src are not changed.
+     */
+    public <TGeo extends GeoPointDto> TGeo fromUri(ByteBuffer src, int start, int end, TGeo parseResult) {
+        if (src == null) return null;
+        return fromUri(new Utf8CharSequence(src, 0, src.limit()), start, end, parseResult);
+    }
+
+    /** Parses all uris into result[0 .. uris.size()-1] using all processors.
+     *
+     * Same as calling {@link #fromUri(CharSequence, int, int, GeoPointDto)} for every uri but the
+     * work is split across a shared {@link ForkJoinPool}. Item i of result always belongs to
+     * uris[i]. Items that cannot be parsed (null, unknown format, malformed) are marked as
+     * {@link GeoPointBatch#isFailed(int)}.
+     *
+     * @return result */
+    public GeoPointBatch parseAll(List<? extends CharSequence> uris, GeoPointBatch result) {
+        return parseAll(uris, result, getParsePool());
+    }
+
+    /** Same as {@link #parseAll(List, GeoPointBatch)} but executed in pool. */
+    public GeoPointBatch parseAll(List<? extends CharSequence> uris, GeoPointBatch result, ForkJoinPool pool) {
+        if (uris.size() > result.size()) {
+            throw new IllegalArgumentException("parseAll(): " + uris.size() + " uris do not fit into batch of size " + result.size());
         }
+        pool.invoke(new ParseAllTask(this, uris, result, 0, uris.size()));
+        return result;
     }
 
-    private <TGeo extends GeoPointDto> TGeo getOpenstreetmapUri(String uri, TGeo parseResult) {
-        // https://www.openstreetmap.org/?#map=14/52.1/9.2">
-        // https://www.openstreetmap.org/#map=14/52.1/9.2">
-        // https://www.openstreetmap.org/#14/52.1/9.2">
-        int dataStart = contentIndexBehind(uri, "#map=");
-        if (dataStart < 0) dataStart = contentIndexBehind(uri, "/#");
-        String[] parts = getParts(uri, dataStart, "[/?&]", 3);
-        if (parts != null) {
-            setLatLonZoom(parseResult, parts[1], parts[2], parts[0]);
+    /** Creates the shared pool of {@link #parseAll(List, GeoPointBatch)} on demand. */
+    private static ForkJoinPool getParsePool() {
+        synchronized (GeoUri.class) {
+            if (parsePool == null) {
+                parsePool = new ForkJoinPool();
+            }
+            return parsePool;
         }
-        return uriParamParse(uri, parseResult);
     }
 
-    private String[] getParts(String stringToParse, int dataStart, String delimiter, int minPartCount) {
-        if (dataStart >= 1) {
-            String[] parts = stringToParse.substring(dataStart).split(delimiter);
-            if ((parts != null) && (parts.length >= minPartCount)) return parts;
+    /** Implementation detail of {@link #parseAll(List, GeoPointBatch)}: parses uris[start,end) into result. */
+    private static class ParseAllTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /** Below this number of uris the work is not split any more */
+        private static final int THRESHOLD = 512;
+
+        private final GeoUri parser;
+        private final List<? extends CharSequence> uris;
+        private final GeoPointBatch result;
+        private final int start;
+        private final int end;
+
+        ParseAllTask(GeoUri parser, List<? extends CharSequence> uris, GeoPointBatch result, int start, int end) {
+            this.parser = parser;
+            this.uris = uris;
+            this.result = result;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= THRESHOLD) {
+                parseRange();
+            } else {
+                int middle = (start + end) >>> 1;
+                invokeAll(new ParseAllTask(parser, uris, result, start, middle),
+                        new ParseAllTask(parser, uris, result, middle, end));
+            }
+        }
+
+        private void parseRange() {
+            GeoPointDto item = new GeoPointDto();
+            for (int index = start; index < end; index++) {
+                CharSequence uri = uris.get(index);
+                int status = (uri == null)
+                        ? STATUS_UNKNOWN_FORMAT
+                        : parser.parse(uri, 0, uri.length(), item.clear());
+                if ((status & STATUS_ERROR) == 0) {
+                    result.set(index, item);
+                } else {
+                    result.setFailed(index);
+                }
+            }
         }
-        return null;
     }
 
-    private <TGeo extends GeoPointDto> TGeo getHereUri(String uri, TGeo parseResult) {
-        // https://wego.here.com/?map=52.1,9.2,14
-        // https://share.here.com/52.1,9.2,14
-        int dataStart = contentIndexBehind(uri, "map=");
-        if (dataStart < 0) dataStart=uri.lastIndexOf("/") + 1;
-        String[] parts = getParts(uri, dataStart, "[,&?]", 2);
-        if (parts != null) {
-            String zoom = (parts.length <= 2) ? null : parts[2];
-            setLatLonZoom(parseResult, parts[0], parts[1], zoom);
+    /** Parsing helper: Returns true if src[start,end) starts with prefix */
+    private static boolean startsWith(CharSequence src, int start, int end, String prefix) {
+        int length = prefix.length();
+        if (end - start < length) return false;
+        for (int i = 0; i < length; i++) {
+            if (src.charAt(start + i) != prefix.charAt(i)) return false;
         }
-        return uriParamParse(uri, parseResult);
+        return true;
     }
 
-    private int contentIndexBehind(String uri, String search) {
-        int result = uri.indexOf(search);
-        if (result >= 0) return result + search.length();
-        return result;
+    /** Parsing helper: Use the {@link IGeoUrlRecognizer} registered for the host (if any)
+     * before the common uri parameters are parsed. */
+    private int fromMapServiceUrl(String uri, GeoPointDto parseResult) {
+        int status = STATUS_OK;
+        int end = uri.length();
+        int hostStart = GeoUrlRecognizerRegistry.getHostStart(uri, 0, end);
+        if (hostStart >= 0) {
+            int hostEnd = GeoUrlRecognizerRegistry.getHostEnd(uri, hostStart, end);
+            IGeoUrlRecognizer recognizer = GeoUrlRecognizerRegistry.find(
+                    uri.substring(hostStart, hostEnd).toLowerCase(Locale.US));
+            if (recognizer != null) {
+                status = recognizer.parse(uri, hostEnd, end, parseResult);
+            }
+        }
+
+        // unknown or common parameters. The scanner cannot infer missing values.
+        if (!isSet(OPT_PARSE_INFER_MISSING)) {
+            GeoUriScanner scanner = new GeoUriScanner(uri, 0, end);
+            if (scanner.parse(parseResult)) return status | scanner.getStatus();
+        }
+        return status | uriParamParse(uri, parseResult);
     }
 
-    private <TGeo extends GeoPointDto> TGeo getGoogleUri(String uri, TGeo parseResult) {
-        String newUri = uri.replaceAll("q=loc:", "q=");
+    /** Parsing helper: Sets lat, lon and zoom if not set yet and the string is not null.
+     *
+     * Public so that custom {@link IGeoUrlRecognizer}-s can use it.
+     *
+     * @return {@link #STATUS_OK}, {@link #STATUS_MALFORMED_LAT_LON} and/or {@link #STATUS_MALFORMED_ZOOM} */
+    public static int setLatLonZoom(GeoPointDto parseResult, String latString, String lonString, String zoom) {
+        int status = STATUS_OK;
+        if ((parseResult.getZoomMin() == GeoPointDto.NO_ZOOM) && (zoom != null)) {
+            int zoomValue = GeoFormatter.parseZoom(zoom);
+            if (zoomValue == GeoPointDto.NO_ZOOM) status |= STATUS_MALFORMED_ZOOM;
+            parseResult.setZoomMin(zoomValue);
+        }
 
-        // https://www.google.com/maps/@52.1,9.2,14z"
-        int dataStart = contentIndexBehind(newUri, "/@");
-        String[] parts = getParts(newUri, dataStart, "[,?&(]", 2);
-        if (parts != null) {
-            String zoom = (parts.length <= 2) ? null : parts[2];
-            if ((zoom != null) && (zoom.toLowerCase().endsWith("z"))) {
-                setLatLonZoom(parseResult, null, null, zoom.substring(0, zoom.length()-1));
-                // parseResult.setZoomMin(GeoFormatter.parseZoom(zoom.substring(0, zoom.length()-1)));
-            } else {
-                zoom = null;
-            }
-            setLatLonZoom(parseResult, parts[0], parts[1], zoom);
+        // !!! isNaN does not work
+        if ((latString != null) && GeoPointDto.isEmpty(parseResult.getLatitude())) {
+            double latitude = GeoFormatter.tryParseLatOrLon(latString);
+
+            // lon is not evaluated if lat is malformed
+            if (Double.isNaN(latitude)) return status | STATUS_MALFORMED_LAT_LON;
+            parseResult.setLatitude(latitude);
         }
-        return uriParamParse(newUri, parseResult);
+        if ((lonString != null) && GeoPointDto.isEmpty(parseResult.getLongitude())) {
+            double longitude = GeoFormatter.tryParseLatOrLon(lonString);
+            if (Double.isNaN(longitude)) return status | STATUS_MALFORMED_LAT_LON;
+            parseResult.setLongitude(longitude);
+        }
+        return status;
+    }
+
+    /** Parsing helper: Returns status for a zoom-string and its parsed value */
+    static int getZoomStatus(String zoom, int zoomValue) {
+        return ((zoom != null) && (zoomValue == GeoPointDto.NO_ZOOM)) ? STATUS_MALFORMED_ZOOM : STATUS_OK;
     }
 
-    private <TGeo extends GeoPointDto> TGeo uriParamParse(String uri, TGeo parseResult) {
+    /** Parsing helper: regular expression based parser that can infer missing values. */
+    private int uriParamParse(String uri, GeoPointDto parseResult) {
+        int status = STATUS_OK;
         int queryOffset = uri.indexOf("?");
 
         if (queryOffset >= 0) {
@@ -305,7 +497,7 @@ public class GeoUri {
             HashMap<String, String> parmLookup = new HashMap<String, String>();
             String[] params = query.split("&");
             for (String param : params) {
-                parseAddQueryParamToMap(parmLookup, param);
+                if (!parseAddQueryParamToMap(parmLookup, param)) return STATUS_MALFORMED_ESCAPE;
             }
             parseResult.setDescription(getParam(parmLookup, GeoUriDef.DESCRIPTION, parseResult.getDescription()));
             parseResult.setLink(getParam(parmLookup, GeoUriDef.LINK, parseResult.getLink()));
@@ -313,10 +505,13 @@ public class GeoUri {
             parseResult.setId(getParam(parmLookup, GeoUriDef.ID, parseResult.getId()));
 
             if (parseResult.getZoomMin() == GeoPointDto.NO_ZOOM) {
-                setLatLonZoom(parseResult, null, null, getParam(parmLookup, GeoUriDef.ZOOM, null));
+                status |= setLatLonZoom(parseResult, null, null, getParam(parmLookup, GeoUriDef.ZOOM, null));
             }
             if (parseResult.getZoomMax() == GeoPointDto.NO_ZOOM) {
-                parseResult.setZoomMax(GeoFormatter.parseZoom(getParam(parmLookup, GeoUriDef.ZOOM_MAX, null)));
+                String zoomMax = getParam(parmLookup, GeoUriDef.ZOOM_MAX, null);
+                int zoomValue = GeoFormatter.parseZoom(zoomMax);
+                status |= getZoomStatus(zoomMax, zoomValue);
+                parseResult.setZoomMax(zoomValue);
             }
 
             // parameters from standard value and/or infered
@@ -331,25 +526,37 @@ public class GeoUri {
                 whereToSearch.addAll(parmLookup.values());
             }
 
-            parseResult.setName(parseFindFromPattern(patternName, parseResult.getName(), whereToSearch));
-            parseResult.setTimeOfMeasurement(parseTimeFromPattern(parseResult.getTimeOfMeasurement(), getParam(parmLookup, GeoUriDef.TIME, null), whereToSearch));
+            // a t= parameter has precedence over an infered time
+            String time = getParam(parmLookup, GeoUriDef.TIME, null);
+
+            int wanted = GeoTextInference.LAT_LON;
+            if (isEmpty(parseResult.getName())) wanted |= GeoTextInference.NAME;
+            if (isEmpty(time)) wanted |= GeoTextInference.TIME;
+            if (inferMissing) {
+                if (isEmpty(parseResult.getLink())) wanted |= GeoTextInference.LINK;
+                if (isEmpty(parseResult.getSymbol())) wanted |= GeoTextInference.SYMBOL;
+            }
+            GeoTextInference inference = new GeoTextInference(wanted).scan(whereToSearch);
 
-            parseLatOrLon(parseResult, whereToSearch);
+            inference.applyName(parseResult);
+            if (!isEmpty(time)) {
+                long millis = IsoDateTimeParser.parseMillis(time, 0, time.length());
+                if (millis == IGeoPointInfo.NO_TIME) status |= STATUS_MALFORMED_TIME;
+                parseResult.setTimeOfMeasurementMillis(millis);
+            } else {
+                inference.applyTime(parseResult);
+            }
+            status |= inference.applyLatLon(parseResult);
 
             if (parseResult.getName() == null) {
                 parseResult.setName(getParam(parmLookup, GeoUriDef.NAME, null));
             }
-            if (inferMissing) {
-                parseResult.setLink(parseFindFromPattern(patternHref, parseResult.getLink(), whereToSearch));
-                parseResult.setSymbol(parseFindFromPattern(patternSrc, parseResult.getSymbol(), whereToSearch));
-            }
+            inference.applyLinkAndSymbol(parseResult);
         } else {
             // no query parameter
-            List<String> whereToSearch = new ArrayList<String>();
-            whereToSearch.add(uri);
-            parseLatOrLon(parseResult, whereToSearch);
+            status |= new GeoTextInference(GeoTextInference.LAT_LON).scan(uri).applyLatLon(parseResult);
         }
-        return parseResult;
+        return status;
     }
 
     private String getParam(HashMap<String, String> parmLookup, String paramId, String currentValue) {
@@ -367,14 +574,20 @@ public class GeoUri {
         Matcher m = parseFindWithPattern(patternLatLonLatLon, uri);
 
         if (m != null) {
-            int nextCoord = 1;
-            try {
-                parseResult[0].setLatitude(GeoFormatter.parseLatOrLon(m.group(nextCoord++))).setLongitude(GeoFormatter.parseLatOrLon(m.group(nextCoord++)));
-                parseResult[1].setLatitude(GeoFormatter.parseLatOrLon(m.group(nextCoord++))).setLongitude(GeoFormatter.parseLatOrLon(m.group(nextCoord++)));
-                return parseResult;
-            } catch (ParseException e) {
-                e.printStackTrace();
+            for (int coord = 0; coord < 4; coord++) {
+                double value = GeoFormatter.tryParseLatOrLon(m.group(coord + 1));
+                if (Double.isNaN(value)) {
+                    logger.debug("fromUri({}): malformed lat/lon", uri);
+                    return null;
+                }
+                GeoPointDto corner = parseResult[coord / 2];
+                if ((coord % 2) == 0) {
+                    corner.setLatitude(value);
+                } else {
+                    corner.setLongitude(value);
+                }
             }
+            return parseResult;
         }
         return null;
     }
@@ -383,71 +596,26 @@ public class GeoUri {
     public static GeoPointDto inferMissing(GeoPointDto parseResult, String textToBeAnalysed) {
 
         if (textToBeAnalysed != null) {
-            List<String> whereToSearch = new ArrayList<String>();
-            whereToSearch.add(textToBeAnalysed);
-
-            parseResult.setName(parseFindFromPattern(patternName, parseResult.getName(), whereToSearch));
-            parseResult.setTimeOfMeasurement(parseTimeFromPattern(parseResult.getTimeOfMeasurement(), null, whereToSearch));
-            parseResult.setLink(parseFindFromPattern(patternHref, parseResult.getLink(), whereToSearch));
-            parseResult.setSymbol(parseFindFromPattern(patternSrc, parseResult.getSymbol(), whereToSearch));
+            // one pass over the text that stops as soon as all missing fields are found
+            int wanted = GeoTextInference.TIME;
+            if (isEmpty(parseResult.getName())) wanted |= GeoTextInference.NAME;
+            if (isEmpty(parseResult.getLink())) wanted |= GeoTextInference.LINK;
+            if (isEmpty(parseResult.getSymbol())) wanted |= GeoTextInference.SYMBOL;
+
+            GeoTextInference inference = new GeoTextInference(wanted).scan(textToBeAnalysed);
+            inference.applyName(parseResult);
+            inference.applyTime(parseResult);
+            inference.applyLinkAndSymbol(parseResult);
         }
         return parseResult;
     }
 
-    /** Parsing helper: Convert array to list */
-    private static List<String> toStringArray(String... whereToSearch) {
-        return Arrays.asList(whereToSearch);
-    }
-
     /** Parsing helper: Set first finding of lat and lon to parseResult */
     public static void parseLatOrLon(GeoPointDto parseResult, String... whereToSearch) {
-        parseLatOrLon(parseResult, toStringArray(whereToSearch));
-    }
-
-    /** Parsing helper: Set first finding of lat and lon to parseResult */
-    private static void parseLatOrLon(GeoPointDto parseResult, List<String> whereToSearch) {
-        Matcher m = parseFindWithPattern(patternLatLonAlt, whereToSearch);
-
-        if (m != null) {
-           setLatLonZoom(parseResult, m.group(1), m.group(2), null);
-        }
-    }
-
-    /** Parsing helper: Get the first finding of pattern in whereToSearch if currentValue is not set yet.
-     * Returns currentValue or content of first matching group of pattern. */
-    private static String parseFindFromPattern(Pattern pattern, String currentValue, List<String> whereToSearch) {
-        if ((currentValue == null) || (currentValue.length() == 0)) {
-            Matcher m = parseFindWithPattern(pattern, whereToSearch);
-            String found = (m != null) ? m.group(1) : null;
-            if (found != null) {
-                return found;
-            }
-        }
-        return currentValue;
-    }
-
-    /** Parsing helper: Get the first datetime finding in whereToSearch if currentValue is not set yet.
-     * Returns currentValue or finding as Date . */
-    private static Date parseTimeFromPattern(Date currentValue, String stringValue, List<String> whereToSearch) {
-        String match = parseFindFromPattern(IsoDateTimeParser.ISO8601_FRACTIONAL_PATTERN, stringValue, whereToSearch);
-
-        if (match != null) {
-            return IsoDateTimeParser.parse(match);
-        }
-        return currentValue;
-    }
-
-    /** Parsing helper: Returns the match of the first finding of pattern in whereToSearch. */
-    private static Matcher parseFindWithPattern(Pattern pattern, List<String> whereToSearch) {
-        if (whereToSearch != null) {
-            for (String candidate : whereToSearch) {
-                Matcher m = parseFindWithPattern(pattern, candidate);
-                if (m != null) return m;
-            }
-        }
-        return null;
+        new GeoTextInference(GeoTextInference.LAT_LON).scan(Arrays.asList(whereToSearch)).applyLatLon(parseResult);
     }
 
+    /** Parsing helper: Returns the match of the first finding of pattern in candidate. */
     private static Matcher parseFindWithPattern(Pattern pattern, String candidate) {
         if (candidate != null) {
             Matcher m = pattern.matcher(candidate);
@@ -458,19 +626,47 @@ public class GeoUri {
         return null;
     }
 
-    /** Parsing helper: Add a found query-parameter to a map for fast lookup */
-    private void parseAddQueryParamToMap(HashMap<String, String> parmLookup, String param) {
+    private static boolean isEmpty(String value) {
+        return (value == null) || (value.length() == 0);
+    }
+
+    /** Parsing helper: Add a found query-parameter to a map for fast lookup.
+     *
+     * @return false if the value cannot be url-decoded */
+    private static boolean parseAddQueryParamToMap(HashMap<String, String> parmLookup, String param) {
         if (param != null) {
             String[] keyValue = param.split("=");
             if ((keyValue != null) && (keyValue.length == 2)) {
+                if (!isUrlDecodable(keyValue[1])) return false;
                 try {
                     parmLookup.put(keyValue[0], URLDecoder.decode(keyValue[1], DEFAULT_ENCODING));
                 } catch (UnsupportedEncodingException e) {
-                    e.printStackTrace();
+                    // utf-8 is always supported
+                    throw new IllegalStateException(e);
                 }
             }
         }
+        return true;
+    }
 
+    /** Parsing helper: True if {@link URLDecoder#decode(String, String)} accepts value without
+     * {@link IllegalArgumentException}: every "%" must be followed by two chars that
+     * {@link Integer#parseInt(String, int)} accepts as a non negative hex number. */
+    private static boolean isUrlDecodable(String value) {
+        int length = value.length();
+        int pos = value.indexOf('%');
+        while (pos >= 0) {
+            if (pos + 2 >= length) return false;
+            char first = value.charAt(pos + 1);
+            char second = value.charAt(pos + 2);
+            if (Character.digit(second, 16) < 0) return false;
+            if (Character.digit(first, 16) < 0) {
+                // Integer.parseInt accepts a sign. "-" is only allowed for "-0"
+                if ((first != '+') && ((first != '-') || (Character.digit(second, 16) != 0))) return false;
+            }
+            pos = value.indexOf('%', pos + 3);
+        }
+        return true;
     }
 
     /**
@@ -499,92 +695,172 @@ public class GeoUri {
      *
      */
     public String toUriString(IGeoPointInfo geoPoint) {
-        StringBuffer result = new StringBuffer();
-        result.append(GEO_SCHEME);
-        formatLatLon(result, geoPoint);
+        return appendUri(new StringBuilder(), geoPoint).toString();
+    }
 
-        delim = "?";
-        appendQueryParameter(result, GeoUriDef.QUERY, formatQuery(geoPoint), false);
-        appendQueryParameter(result, GeoUriDef.ZOOM, GeoFormatter.formatZoom(geoPoint.getZoomMin()), false);
-        appendQueryParameter(result, GeoUriDef.ZOOM_MAX, GeoFormatter.formatZoom(geoPoint.getZoomMax()), false);
-        appendQueryParameter(result, GeoUriDef.LINK, geoPoint.getLink(), true);
-        appendQueryParameter(result, GeoUriDef.SYMBOL, geoPoint.getSymbol(), true);
-        appendQueryParameter(result, GeoUriDef.DESCRIPTION, geoPoint.getDescription(), true);
-        appendQueryParameter(result, GeoUriDef.ID, geoPoint.getId(), true);
-        if (geoPoint.getTimeOfMeasurement() != null) {
-            appendQueryParameter(result, GeoUriDef.TIME, GeoFormatter.formatDate(geoPoint.getTimeOfMeasurement()), false);
+    /** Appends the uri representation of geoPoint to result.
+     *
+     * Same format as {@link #toUriString(IGeoPointInfo)}. */
+    public StringBuilder appendUri(StringBuilder result, IGeoPointInfo geoPoint) {
+        try {
+            appendUri((Appendable) result, geoPoint);
+        } catch (IOException ignore) {
+            // StringBuilder does not throw
         }
-
-        return result.toString();
+        return result;
     }
 
+    /** Writes the uri representation of geoPoint to result (i.e. a {@link java.io.Writer}).
+     *
+     * Same format as {@link #toUriString(IGeoPointInfo)}. Values are url-encoded directly into result. */
+    public <A extends Appendable> A appendUri(A result, IGeoPointInfo geoPoint) throws IOException {
+        result.append(GEO_SCHEME);
+        appendLatLon(result, geoPoint);
+
+        boolean first = true;
+        if (((geoPoint.getName() != null) || isSet(OPT_FORMAT_REDUNDANT_LAT_LON))
+                && (hasQuery(geoPoint))) {
+            first = appendParameterName(result, first, GeoUriDef.QUERY);
+            if (isSet(OPT_FORMAT_REDUNDANT_LAT_LON)) {
+                appendLatLon(result, geoPoint);
+            }
+            if (geoPoint.getName() != null) {
+                result.append('(');
+                appendEncoded(result, geoPoint.getName());
+                result.append(')');
+            }
+        }
+        if (geoPoint.getZoomMin() != IGeoPointInfo.NO_ZOOM) {
+            first = appendParameterName(result, first, GeoUriDef.ZOOM);
+            appendInt(result, geoPoint.getZoomMin());
+        }
+        if (geoPoint.getZoomMax() != IGeoPointInfo.NO_ZOOM) {
+            first = appendParameterName(result, first, GeoUriDef.ZOOM_MAX);
+            appendInt(result, geoPoint.getZoomMax());
+        }
+        first = appendEncodedParameter(result, first, GeoUriDef.LINK, geoPoint.getLink());
+        first = appendEncodedParameter(result, first, GeoUriDef.SYMBOL, geoPoint.getSymbol());
+        first = appendEncodedParameter(result, first, GeoUriDef.DESCRIPTION, geoPoint.getDescription());
+        first = appendEncodedParameter(result, first, GeoUriDef.ID, geoPoint.getId());
+        long time = geoPoint.getTimeOfMeasurementMillis();
+        if (time != IGeoPointInfo.NO_TIME) {
+            appendParameterName(result, first, GeoUriDef.TIME);
+            IsoDateTimeFormatter.append(result, time, false);
+        }
+
+        return result;
+    }
 
     /** Creates area-uri-{@link String} from two bounding {@link IGeoPointInfo}-s.  */
     public String toUriString(IGeoPointInfo northEast, IGeoPointInfo southWest) {
-        StringBuffer result = new StringBuffer();
+        StringBuilder result = new StringBuilder();
         result.append(AREA_SCHEME);
-        result.append(GeoFormatter.formatLatLon(northEast.getLatitude())).append(",");
-        result.append(GeoFormatter.formatLatLon(northEast.getLongitude())).append(",");
-        result.append(GeoFormatter.formatLatLon(southWest.getLatitude())).append(",");
-        result.append(GeoFormatter.formatLatLon(southWest.getLongitude()));
+        try {
+            appendLatOrLon(result, northEast.getLatitude());
+            appendLatOrLon(result.append(','), northEast.getLongitude());
+            appendLatOrLon(result.append(','), southWest.getLatitude());
+            appendLatOrLon(result.append(','), southWest.getLongitude());
+        } catch (IOException ignore) {
+            // StringBuilder does not throw
+        }
 
         return result.toString();
     }
 
-    /** Formatting helper: Adds name value to result with optional encoding. */
-    private void appendQueryParameter(StringBuffer result, String paramName, String paramValue, boolean urlEncode) {
+    /** Formatting helper: true if the q= parameter of geoPoint is not empty. */
+    private boolean hasQuery(IGeoPointInfo geoPoint) {
+        return (geoPoint.getName() != null)
+                || (geoPoint.getLatitude() != IGeoPointInfo.NO_LAT_LON)
+                || (geoPoint.getLongitude() != IGeoPointInfo.NO_LAT_LON);
+    }
+
+    /** Formatting helper: Adds "?name=" for the first parameter or "&name=" for the others. Returns false. */
+    private static boolean appendParameterName(Appendable result, boolean first, String paramName) throws IOException {
+        result.append(first ? '?' : '&').append(paramName).append('=');
+        return false;
+    }
+
+    /** Formatting helper: Adds url-encoded name value to result if value is not empty. Returns new value of first. */
+    private static boolean appendEncodedParameter(Appendable result, boolean first, String paramName, String paramValue) throws IOException {
         if ((paramValue != null) && (paramValue.length() > 0)) {
-            try {
-                result.append(delim).append(paramName).append("=");
-                if (urlEncode) {
-                    result.append(encode(paramValue));
-                } else {
-                    result.append(paramValue);
-                }
-                delim = "&";
-            } catch (UnsupportedEncodingException e) {
-                e.printStackTrace();
-            }
+            appendParameterName(result, first, paramName);
+            appendEncoded(result, paramValue);
+            return false;
         }
+        return first;
     }
 
     /** Formatting helper: Adds lat/lon to result. */
-    private void formatLatLon(StringBuffer result, IGeoPointInfo geoPoint) {
+    private static void appendLatLon(Appendable result, IGeoPointInfo geoPoint) throws IOException {
         if (geoPoint != null) {
-            result.append(GeoFormatter.formatLatLon(geoPoint.getLatitude()));
+            appendLatOrLon(result, geoPoint.getLatitude());
 
             if (geoPoint.getLongitude() != IGeoPointInfo.NO_LAT_LON) {
-                result
-                        .append(",")
-                        .append(GeoFormatter.formatLatLon(geoPoint.getLongitude()));
+                appendLatOrLon(result.append(','), geoPoint.getLongitude());
             }
         }
     }
 
-    /** Formatting helper: Adds {@link IGeoPointInfo} fields to result. */
-    private String formatQuery(IGeoPointInfo geoPoint) {
-        // {lat{,lon{,hight_ignore}}}{(name)}{|uri{|id}|}{description}
-        StringBuffer result = new StringBuffer();
-
-        if (isSet(OPT_FORMAT_REDUNDANT_LAT_LON)) {
-            formatLatLon(result, geoPoint);
+    /** Formatting helper: Adds lat or lon to result without creating a {@link String}. */
+    private static void appendLatOrLon(Appendable result, double value) throws IOException {
+        if (value != IGeoPointInfo.NO_LAT_LON) {
+            GeoFormatter.appendLatLon(result, value, GeoFormatter.LAT_LON_DECIMALS);
         }
+    }
 
-        if (geoPoint.getName() != null) {
-            try {
-                result.append("(").append(encode(geoPoint.getName())).append(")");
-            } catch (UnsupportedEncodingException e) {
-                e.printStackTrace();
+    /** Formatting helper: Adds an int without creating a {@link String}. */
+    private static void appendInt(Appendable result, int value) throws IOException {
+        if (value < 0) {
+            if (value == Integer.MIN_VALUE) {
+                result.append(Integer.toString(value));
+                return;
             }
+            result.append('-');
+            value = -value;
         }
-        if (result.length() == 0) return null;
+        if (value >= 10) appendInt(result, value / 10);
+        result.append((char) ('0' + (value % 10)));
+    }
 
-        return result.toString();
+    /** Formatting helper: Url-encodes raw into result.
+     *
+     * Same result as {@link java.net.URLEncoder#encode(String, String)} with utf-8 but without
+     * temporary {@link String}-s or byte arrays: "a-zA-Z0-9.-*_" are unchanged,
+     * space becomes "+" and everything else becomes "%XX" of the utf-8 bytes. */
+    static void appendEncoded(Appendable result, CharSequence raw) throws IOException {
+        int length = raw.length();
+        for (int i = 0; i < length; i++) {
+            char c = raw.charAt(i);
+            if (((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || ((c >= '0') && (c <= '9'))
+                    || (c == '.') || (c == '-') || (c == '*') || (c == '_')) {
+                result.append(c);
+            } else if (c == ' ') {
+                result.append('+');
+            } else if (c < 0x80) {
+                appendEscaped(result, c);
+            } else if (c < 0x800) {
+                appendEscaped(result, 0xC0 | (c >> 6));
+                appendEscaped(result, 0x80 | (c & 0x3F));
+            } else if (!Character.isSurrogate(c)) {
+                appendEscaped(result, 0xE0 | (c >> 12));
+                appendEscaped(result, 0x80 | ((c >> 6) & 0x3F));
+                appendEscaped(result, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && (i + 1 < length) && Character.isLowSurrogate(raw.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, raw.charAt(++i));
+                appendEscaped(result, 0xF0 | (codePoint >> 18));
+                appendEscaped(result, 0x80 | ((codePoint >> 12) & 0x3F));
+                appendEscaped(result, 0x80 | ((codePoint >> 6) & 0x3F));
+                appendEscaped(result, 0x80 | (codePoint & 0x3F));
+            } else {
+                // unpaired surrogate: URLEncoder encodes the replacement "?"
+                appendEscaped(result, '?');
+            }
+        }
     }
 
-    /** Formatting helper: Executes url-encoding. */
-    private String encode(String raw) throws UnsupportedEncodingException {
-        return URLEncoder.encode(raw, DEFAULT_ENCODING);
+    /** Formatting helper: Adds "%XX" for one byte. */
+    private static void appendEscaped(Appendable result, int b) throws IOException {
+        result.append('%').append(HEX_DIGITS.charAt((b >> 4) & 0x0F)).append(HEX_DIGITS.charAt(b & 0x0F));
     }
 
     /** Return true, if opt is set */
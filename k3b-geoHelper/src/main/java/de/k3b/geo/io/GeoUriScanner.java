@@ -0,0 +1,623 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.io;
+
+import de.k3b.geo.api.GeoPointDto;
+import de.k3b.geo.api.IGeoPointInfo;
+import de.k3b.util.IsoDateTimeParser;
+import de.k3b.util.StringPool;
+
+/**
+ * Implementation detail of {@link GeoUri}: A hand written single pass scanner for geo-uri-s.
+ *
+ * It understands the uri-path and the parameters defined in {@link GeoUriDef}
+ * without regular expressions, without {@link java.net.URLDecoder} and without
+ * intermediate maps or arrays: while scanning only the positions of the known parameters
+ * are remembered. Percent-escapes are decoded when a value is assigned to the result.
+ *
+ * The result is the same as the one of the regular expression based parser in {@link GeoUri}.
+ * If the scanner cannot handle an uri (i.e. malformed percent-escapes)
+ * {@link #parse(GeoPointDto)} returns false without modifying the result so that the caller
+ * can use the regular expression based parser instead.
+ */
+class GeoUriScanner {
+    /** A range [start,end) is packed into a long. NONE means "not found" */
+    static final long NONE = -1;
+
+    /** Result of {@link #setLatLon(GeoPointDto, CharSequence, int, int)} if there is no lat/lon */
+    static final int NOT_FOUND = -1;
+
+    /** Result of {@link #checkEscapes(CharSequence, int, int)} */
+    private static final int ESCAPE_NONE = 0;
+    private static final int ESCAPE_DECODE = 1;
+    private static final int ESCAPE_MALFORMED = -1;
+
+    private final CharSequence src;
+    private final int start;
+    private final int end;
+
+    /** End of the uri-path: either position of '?' or end */
+    private int pathEnd;
+    private boolean hasQuery = false;
+
+    /* Ranges of the parameter values found */
+    private long query = NONE;
+    private long zoom = NONE;
+    private long zoomMax = NONE;
+    private long time = NONE;
+    private long id = NONE;
+    private long description = NONE;
+    private long link = NONE;
+    private long symbol = NONE;
+    private long name = NONE;
+    private long latLon = NONE;
+
+    /** Decoded values of {@link #query} and {@link #latLon} if they contain escapes */
+    private CharSequence queryText = null;
+    private CharSequence latLonText = null;
+
+    /** Created on demand to decode percent-escapes. */
+    private StringBuilder decodeBuffer = null;
+
+    /** {@link GeoUri#STATUS_OK} or GeoUri.STATUS_MALFORMED_xxx of values that were ignored */
+    private int status = GeoUri.STATUS_OK;
+
+    /** If not null: name, link and symbol are taken from these pools */
+    private final GeoStringPools pools;
+
+    /** Scanner for the uri in src[start,end) */
+    GeoUriScanner(CharSequence src, int start, int end) {
+        this(src, start, end, null);
+    }
+
+    /** Scanner for the uri in src[start,end) that takes name, link and symbol from pools if not null */
+    GeoUriScanner(CharSequence src, int start, int end, GeoStringPools pools) {
+        this.src = src;
+        this.start = start;
+        this.end = end;
+        this.pools = pools;
+    }
+
+    /** Parses the uri into parseResult.
+     *
+     * Like the regular expression based parser only fields that are not set yet are assigned.
+     *
+     * @return false if the uri cannot be handled by the scanner. In this case parseResult is unchanged.
+     */
+    boolean parse(GeoPointDto parseResult) {
+        return parse(parseResult, true);
+    }
+
+    /** Same as {@link #parse(GeoPointDto)} but name, description, link and symbol are only
+     * parsed if withText is set. Used by {@link LazyGeoPointDto}. */
+    boolean parse(GeoPointDto parseResult, boolean withText) {
+        if (!scan()) return false;
+
+        if (hasQuery) {
+            if (withText) {
+                parseResult.setDescription(getParam(description, parseResult.getDescription()));
+                parseResult.setLink(getParam(link, parseResult.getLink(), (pools == null) ? null : pools.getLink()));
+                parseResult.setSymbol(getParam(symbol, parseResult.getSymbol(), (pools == null) ? null : pools.getSymbol()));
+            }
+            parseResult.setId(getParam(id, parseResult.getId()));
+
+            if ((parseResult.getZoomMin() == GeoPointDto.NO_ZOOM) && (zoom != NONE)) {
+                parseResult.setZoomMin(parseZoom(zoom));
+            }
+            if (parseResult.getZoomMax() == GeoPointDto.NO_ZOOM) {
+                parseResult.setZoomMax(parseZoom(zoomMax));
+            }
+
+            // values from q have precedence over url-path and ll
+            StringPool namePool = (pools == null) ? null : pools.getName();
+            if (withText && isEmpty(parseResult.getName())) {
+                String found = findName(queryText, namePool);
+                if (found == null) found = findName(src, start, pathEnd, namePool);
+                if (found == null) found = findName(latLonText, namePool);
+                if (found != null) parseResult.setName(found);
+            }
+
+            if (time != NONE) {
+                long millis = parseTime(time);
+                if (millis == IGeoPointInfo.NO_TIME) status |= GeoUri.STATUS_MALFORMED_TIME;
+                parseResult.setTimeOfMeasurementMillis(millis);
+            } else {
+                long millis = findIsoDateTime(queryText);
+                if (millis == IGeoPointInfo.NO_TIME) millis = findIsoDateTime(src, start, pathEnd);
+                if (millis == IGeoPointInfo.NO_TIME) millis = findIsoDateTime(latLonText);
+                if (millis != IGeoPointInfo.NO_TIME) parseResult.setTimeOfMeasurementMillis(millis);
+            }
+
+            int latLonStatus = setLatLon(parseResult, queryText);
+            if (latLonStatus == NOT_FOUND) latLonStatus = setLatLon(parseResult, src, start, pathEnd);
+            if (latLonStatus == NOT_FOUND) latLonStatus = setLatLon(parseResult, latLonText);
+            if (latLonStatus != NOT_FOUND) status |= latLonStatus;
+
+            if (withText && (parseResult.getName() == null)) {
+                parseResult.setName(text(name, namePool));
+            }
+        } else {
+            int latLonStatus = setLatLon(parseResult, src, start, end);
+            if (latLonStatus != NOT_FOUND) status |= latLonStatus;
+        }
+        return true;
+    }
+
+    /** After {@link #parse(GeoPointDto)}: {@link GeoUri#STATUS_OK} or a combination of
+     * GeoUri.STATUS_MALFORMED_xxx for values that were ignored. */
+    int getStatus() {
+        return status;
+    }
+
+    /** Parses the zoom value in range and remembers malformed values in {@link #status} */
+    private int parseZoom(long range) {
+        String zoomText = text(range);
+        int result = GeoFormatter.parseZoom(zoomText);
+        status |= GeoUri.getZoomStatus(zoomText, result);
+        return result;
+    }
+
+    /** First pass: remember where the known parameters are and check that they can be decoded. */
+    private boolean scan() {
+        int queryOffset = indexOf(src, '?', start, end);
+        hasQuery = (queryOffset >= 0);
+        pathEnd = (hasQuery) ? queryOffset : end;
+
+        if (hasQuery) {
+            int paramStart = queryOffset + 1;
+            while (paramStart <= end) {
+                int paramEnd = indexOf(src, '&', paramStart, end);
+                if (paramEnd < 0) paramEnd = end;
+                if (!scanParam(paramStart, paramEnd)) return false;
+                paramStart = paramEnd + 1;
+            }
+
+            queryText = decodedOrNull(query);
+            latLonText = decodedOrNull(latLon);
+        }
+        return true;
+    }
+
+    /** Remembers the value range of a "key=value" parameter in src[paramStart,paramEnd).
+     *
+     * Compatible with String.split("="): Parameters without value or with more than one "=" are ignored.
+     *
+     * @return false if the value contains escapes that cannot be decoded. */
+    private boolean scanParam(int paramStart, int paramEnd) {
+        int keyEnd = indexOf(src, '=', paramStart, paramEnd);
+        if (keyEnd < 0) return true;
+
+        int valueStart = keyEnd + 1;
+        int valueEnd = paramEnd;
+        while ((valueEnd > valueStart) && (src.charAt(valueEnd - 1) == '=')) valueEnd--;
+        if ((valueEnd == valueStart) || (indexOf(src, '=', valueStart, valueEnd) >= 0)) return true;
+
+        if (checkEscapes(src, valueStart, valueEnd) == ESCAPE_MALFORMED) return false;
+
+        long value = range(valueStart, valueEnd);
+        int keyLength = keyEnd - paramStart;
+        if (isKey(GeoUriDef.QUERY, paramStart, keyLength)) query = value;
+        else if (isKey(GeoUriDef.ZOOM, paramStart, keyLength)) zoom = value;
+        else if (isKey(GeoUriDef.ZOOM_MAX, paramStart, keyLength)) zoomMax = value;
+        else if (isKey(GeoUriDef.TIME, paramStart, keyLength)) time = value;
+        else if (isKey(GeoUriDef.ID, paramStart, keyLength)) id = value;
+        else if (isKey(GeoUriDef.DESCRIPTION, paramStart, keyLength)) description = value;
+        else if (isKey(GeoUriDef.LINK, paramStart, keyLength)) link = value;
+        else if (isKey(GeoUriDef.SYMBOL, paramStart, keyLength)) symbol = value;
+        else if (isKey(GeoUriDef.NAME, paramStart, keyLength)) name = value;
+        else if (isKey(GeoUriDef.LAT_LON, paramStart, keyLength)) latLon = value;
+        return true;
+    }
+
+    private boolean isKey(String key, int keyStart, int keyLength) {
+        if (key.length() != keyLength) return false;
+        for (int i = 0; i < keyLength; i++) {
+            if (key.charAt(i) != src.charAt(keyStart + i)) return false;
+        }
+        return true;
+    }
+
+    /** Returns currentValue or the decoded value of param if currentValue is empty. */
+    private String getParam(long param, String currentValue) {
+        return getParam(param, currentValue, null);
+    }
+
+    /** Returns currentValue or the decoded value of param from pool (if not null) if currentValue is empty. */
+    private String getParam(long param, String currentValue, StringPool pool) {
+        if (isEmpty(currentValue)) {
+            return text(param, pool);
+        }
+        return currentValue;
+    }
+
+    /** Returns the decoded content of the range or null for NONE. */
+    private String text(long range) {
+        return text(range, null);
+    }
+
+    /** Returns the decoded content of the range or null for NONE. Taken from pool if not null. */
+    private String text(long range, StringPool pool) {
+        if (range == NONE) return null;
+        int from = rangeStart(range);
+        int to = rangeEnd(range);
+        if (checkEscapes(src, from, to) == ESCAPE_NONE) {
+            return (pool == null) ? src.subSequence(from, to).toString() : pooled(pool, src, from, to);
+        }
+        StringBuilder decoded = clearDecodeBuffer(to - from);
+        appendDecoded(decoded, src, from, to);
+        return (pool == null) ? decoded.toString() : pool.get(decoded, 0, decoded.length());
+    }
+
+    /** Returns the pooled string of s[from,to).
+     *
+     * The chars of a {@link Utf8CharSequence} are utf-8 bytes: non-ascii content is decoded
+     * before the lookup so that the pool compares the same chars that it stores. */
+    private String pooled(StringPool pool, CharSequence s, int from, int to) {
+        if ((s instanceof Utf8CharSequence) && !isAscii(s, from, to)) {
+            StringBuilder decoded = clearDecodeBuffer(to - from);
+            ((Utf8CharSequence) s).appendTo(decoded, from, to);
+            return pool.get(decoded, 0, decoded.length());
+        }
+        return pool.get(s, from, to);
+    }
+
+    /** Returns the empty {@link #decodeBuffer}. */
+    private StringBuilder clearDecodeBuffer(int capacity) {
+        if (decodeBuffer == null) {
+            decodeBuffer = new StringBuilder(capacity);
+        } else {
+            decodeBuffer.setLength(0);
+        }
+        return decodeBuffer;
+    }
+
+    private static boolean isAscii(CharSequence s, int from, int to) {
+        for (int pos = from; pos < to; pos++) {
+            if (s.charAt(pos) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    /** Returns the range as CharSequence with decoded escapes. Null for NONE. */
+    private CharSequence decodedOrNull(long range) {
+        if (range == NONE) return null;
+        int from = rangeStart(range);
+        int to = rangeEnd(range);
+        if (checkEscapes(src, from, to) == ESCAPE_NONE) {
+            return src.subSequence(from, to);
+        }
+        return text(range);
+    }
+
+    /* ---------- helpers for lat/lon ---------- */
+
+    private static int setLatLon(GeoPointDto parseResult, CharSequence candidate) {
+        return (candidate != null) ? setLatLon(parseResult, candidate, 0, candidate.length()) : NOT_FOUND;
+    }
+
+    /** Set first finding of lat and lon in candidate[start,end) to parseResult.
+     *
+     * @return {@link #NOT_FOUND}, {@link GeoUri#STATUS_OK} or {@link GeoUri#STATUS_MALFORMED_LAT_LON} */
+    static int setLatLon(GeoPointDto parseResult, CharSequence candidate, int start, int end) {
+        int latStart = findLatLon(candidate, start, end);
+        if (latStart < 0) return NOT_FOUND;
+
+        int latEnd = matchNumber(candidate, latStart, end);
+        int lonStart = skipWhitespace(candidate, skipWhitespace(candidate, latEnd, end) + 1, end);
+        int lonEnd = matchNumber(candidate, lonStart, end);
+
+        // same as GeoUri.setLatLonZoom(...) but without creating strings
+        if (GeoPointDto.isEmpty(parseResult.getLatitude())) {
+            double latitude = GeoFormatter.tryParseLatOrLon(candidate, latStart, latEnd);
+
+            // lon is not evaluated if lat is malformed
+            if (Double.isNaN(latitude)) return GeoUri.STATUS_MALFORMED_LAT_LON;
+            parseResult.setLatitude(latitude);
+        }
+        if (GeoPointDto.isEmpty(parseResult.getLongitude())) {
+            double longitude = GeoFormatter.tryParseLatOrLon(candidate, lonStart, lonEnd);
+            if (Double.isNaN(longitude)) return GeoUri.STATUS_MALFORMED_LAT_LON;
+            parseResult.setLongitude(longitude);
+        }
+        return GeoUri.STATUS_OK;
+    }
+
+    /** Same as regular expression find of "lat , lon {, alt}" .
+     *
+     * @return start of lat or -1 if not found */
+    static int findLatLon(CharSequence s, int start, int end) {
+        int pos = start;
+        while (pos < end) {
+            int latEnd = matchNumber(s, pos, end);
+            if (latEnd < 0) {
+                pos++;
+            } else {
+                int comma = skipWhitespace(s, latEnd, end);
+                if ((comma < end) && (s.charAt(comma) == ',')
+                        && (matchNumber(s, skipWhitespace(s, comma + 1, end), end) >= 0)) {
+                    return pos;
+                }
+                // a match starting inside the number would fail for the same reason
+                pos = latEnd;
+            }
+        }
+        return -1;
+    }
+
+    /** Same as regular expression "[+\-nNeEsSwW]?[0-9\.]+" at position pos.
+     *
+     * @return end of the number or -1 if there is no number at pos. */
+    static int matchNumber(CharSequence s, int pos, int end) {
+        int p = pos;
+        if ((p < end) && isSignOrLatLonPrefix(s.charAt(p))) p++;
+        int digitStart = p;
+        while ((p < end) && isDigitOrDot(s.charAt(p))) p++;
+        return (p > digitStart) ? p : -1;
+    }
+
+    private static boolean isSignOrLatLonPrefix(char c) {
+        return (c == '+') || (c == '-') || (GeoFormatter.LatLonPrefix.indexOf(c) >= 0);
+    }
+
+    private static boolean isDigitOrDot(char c) {
+        return ((c >= '0') && (c <= '9')) || (c == '.');
+    }
+
+    /* ---------- helpers for name "(name)" ---------- */
+
+    private String findName(CharSequence candidate, StringPool pool) {
+        return (candidate == null) ? null : findName(candidate, 0, candidate.length(), pool);
+    }
+
+    private String findName(CharSequence s, int start, int end, StringPool pool) {
+        long found = findNameRange(s, start, end);
+        if (found == NONE) return null;
+        if (pool != null) return pooled(pool, s, rangeStart(found), rangeEnd(found));
+        return s.subSequence(rangeStart(found), rangeEnd(found)).toString();
+    }
+
+    /** Same as regular expression find of "(name)" where name must not contain "(" or ")".
+     *
+     * @return range of name without the brackets or NONE if not found. */
+    static long findNameRange(CharSequence s, int start, int end) {
+        int pos = indexOf(s, '(', start, end);
+        while (pos >= 0) {
+            int nameEnd = pos + 1;
+            while ((nameEnd < end) && (s.charAt(nameEnd) != '(') && (s.charAt(nameEnd) != ')')) nameEnd++;
+            if (nameEnd >= end) return NONE;
+            if ((s.charAt(nameEnd) == ')') && (nameEnd > pos + 1)) return range(pos + 1, nameEnd);
+            pos = indexOf(s, '(', nameEnd, end);
+        }
+        return NONE;
+    }
+
+    /* ---------- helpers for iso date time ---------- */
+
+    /** Returns millis of the iso date time in range or {@link IGeoPointInfo#NO_TIME} */
+    private long parseTime(long range) {
+        int from = rangeStart(range);
+        int to = rangeEnd(range);
+        if (checkEscapes(src, from, to) == ESCAPE_NONE) {
+            return IsoDateTimeParser.parseMillis(src, from, to);
+        }
+        String decoded = text(range);
+        return IsoDateTimeParser.parseMillis(decoded, 0, decoded.length());
+    }
+
+    /** Returns millis of the first iso date time in candidate or {@link IGeoPointInfo#NO_TIME} */
+    private static long findIsoDateTime(CharSequence candidate) {
+        return (candidate == null) ? IGeoPointInfo.NO_TIME : findIsoDateTime(candidate, 0, candidate.length());
+    }
+
+    private static long findIsoDateTime(CharSequence s, int start, int end) {
+        for (int pos = start; pos < end; pos++) {
+            int matchEnd = matchIsoDateTime(s, pos, end);
+            if (matchEnd >= 0) return IsoDateTimeParser.parseMillis(s, pos, matchEnd);
+        }
+        return IGeoPointInfo.NO_TIME;
+    }
+
+    /** Same as {@link IsoDateTimeParser#ISO8601_FRACTIONAL_PATTERN} at position pos.
+     *
+     * @return end of the match or -1 if there is no match at pos. */
+    static int matchIsoDateTime(CharSequence s, int pos, int end) {
+        // yyyy-MM-ddTHH:mm:ss
+        if ((pos + 19 > end)
+                || !isDigits(s, pos, 4) || (s.charAt(pos + 4) != '-')
+                || !isDigits(s, pos + 5, 2) || (s.charAt(pos + 7) != '-')
+                || !isDigits(s, pos + 8, 2) || (s.charAt(pos + 10) != 'T')
+                || !isDigits(s, pos + 11, 2) || (s.charAt(pos + 13) != ':')
+                || !isDigits(s, pos + 14, 2) || (s.charAt(pos + 16) != ':')
+                || !isDigits(s, pos + 17, 2)) {
+            return -1;
+        }
+        int p = pos + 19;
+
+        // optional fraction [\.,]\d{1,3}
+        if ((p + 1 < end) && ((s.charAt(p) == '.') || (s.charAt(p) == ',')) && isDigits(s, p + 1, 1)) {
+            p += 2;
+            if ((p < end) && isDigits(s, p, 1)) p++;
+            if ((p < end) && isDigits(s, p, 1)) p++;
+        }
+
+        // optional timezone Z|[\+-]\d{2}(?::?\d{2})?Z?
+        if (p < end) {
+            char c = s.charAt(p);
+            if (c == 'Z') {
+                p++;
+            } else if (((c == '+') || (c == '-')) && (p + 3 <= end) && isDigits(s, p + 1, 2)) {
+                p += 3;
+                if ((p + 3 <= end) && (s.charAt(p) == ':') && isDigits(s, p + 1, 2)) {
+                    p += 3;
+                } else if ((p + 2 <= end) && isDigits(s, p, 2)) {
+                    p += 2;
+                }
+                if ((p < end) && (s.charAt(p) == 'Z')) p++;
+            }
+        }
+        return p;
+    }
+
+    private static boolean isDigits(CharSequence s, int pos, int count) {
+        for (int i = pos; i < pos + count; i++) {
+            char c = s.charAt(i);
+            if ((c < '0') || (c > '9')) return false;
+        }
+        return true;
+    }
+
+    /* ---------- helpers for url-decoding ---------- */
+
+    /** Checks s[start,end) for url-escapes ('+' or '%xx').
+     *
+     * @return ESCAPE_NONE, ESCAPE_DECODE or ESCAPE_MALFORMED if the escapes are not
+     * strictly valid utf-8. */
+    static int checkEscapes(CharSequence s, int start, int end) {
+        int result = ESCAPE_NONE;
+        int pos = start;
+        while (pos < end) {
+            char c = s.charAt(pos);
+            if (c == '%') {
+                pos = decodeEscapes(null, s, pos, end);
+                if (pos < 0) return ESCAPE_MALFORMED;
+                result = ESCAPE_DECODE;
+            } else {
+                if (c == '+') result = ESCAPE_DECODE;
+                pos++;
+            }
+        }
+        return result;
+    }
+
+    /** Same as {@link java.net.URLDecoder#decode(String, String)} with utf-8 for escapes
+     * that passed {@link #checkEscapes(CharSequence, int, int)}. */
+    static void appendDecoded(StringBuilder result, CharSequence s, int start, int end) {
+        int pos = start;
+        while (pos < end) {
+            char c = s.charAt(pos);
+            if (c == '%') {
+                pos = decodeEscapes(result, s, pos, end);
+            } else if (c == '+') {
+                result.append(' ');
+                pos++;
+            } else {
+                int plainEnd = pos + 1;
+                while ((plainEnd < end) && (s.charAt(plainEnd) != '%') && (s.charAt(plainEnd) != '+')) plainEnd++;
+                if (s instanceof Utf8CharSequence) {
+                    // raw non-ascii bytes must be decoded as utf-8
+                    ((Utf8CharSequence) s).appendTo(result, pos, plainEnd);
+                } else {
+                    result.append(s, pos, plainEnd);
+                }
+                pos = plainEnd;
+            }
+        }
+    }
+
+    /** Decodes a sequence of utf-8 encoded "%xx" escapes starting at pos.
+     *
+     * @param result where the decoded chars go to. null: only validate.
+     * @return position behind the escapes or -1 if escapes are not strictly valid */
+    private static int decodeEscapes(StringBuilder result, CharSequence s, int pos, int end) {
+        int p = pos;
+        while ((p < end) && (s.charAt(p) == '%')) {
+            int b0 = hexByte(s, p, end);
+            if (b0 < 0) return -1;
+            p += 3;
+
+            int count;
+            int codePoint;
+            int min2 = 0x80;
+            int max2 = 0xBF;
+            if (b0 < 0x80) {
+                count = 0;
+                codePoint = b0;
+            } else if ((b0 >= 0xC2) && (b0 <= 0xDF)) {
+                count = 1;
+                codePoint = b0 & 0x1F;
+            } else if ((b0 >= 0xE0) && (b0 <= 0xEF)) {
+                count = 2;
+                codePoint = b0 & 0x0F;
+                if (b0 == 0xE0) min2 = 0xA0;
+                if (b0 == 0xED) max2 = 0x9F;
+            } else if ((b0 >= 0xF0) && (b0 <= 0xF4)) {
+                count = 3;
+                codePoint = b0 & 0x07;
+                if (b0 == 0xF0) min2 = 0x90;
+                if (b0 == 0xF4) max2 = 0x8F;
+            } else {
+                return -1;
+            }
+
+            for (int i = 0; i < count; i++) {
+                int b = ((p < end) && (s.charAt(p) == '%')) ? hexByte(s, p, end) : -1;
+                if ((b < ((i == 0) ? min2 : 0x80)) || (b > ((i == 0) ? max2 : 0xBF))) return -1;
+                codePoint = (codePoint << 6) | (b & 0x3F);
+                p += 3;
+            }
+            if (result != null) result.appendCodePoint(codePoint);
+        }
+        return p;
+    }
+
+    /** Value of hex-escape "%xx" at pos or -1 if invalid. */
+    private static int hexByte(CharSequence s, int pos, int end) {
+        if (pos + 2 >= end) return -1;
+        int hi = Character.digit(s.charAt(pos + 1), 16);
+        int lo = Character.digit(s.charAt(pos + 2), 16);
+        if ((hi < 0) || (lo < 0)) return -1;
+        return (hi << 4) | lo;
+    }
+
+    /* ---------- general helpers ---------- */
+
+    static int indexOf(CharSequence s, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    /** Same as regular expression "\s*" */
+    static int skipWhitespace(CharSequence s, int pos, int end) {
+        int p = pos;
+        while ((p < end) && isWhitespace(s.charAt(p))) p++;
+        return p;
+    }
+
+    static boolean isWhitespace(char c) {
+        return (c == ' ') || (c == '\t') || (c == '\n') || (c == '\u000B') || (c == '\f') || (c == '\r');
+    }
+
+    private static boolean isEmpty(String value) {
+        return (value == null) || (value.length() == 0);
+    }
+
+    static long range(int start, int end) {
+        return (((long) start) << 32) | (end & 0xFFFFFFFFL);
+    }
+
+    static int rangeStart(long range) {
+        return (int) (range >>> 32);
+    }
+
+    static int rangeEnd(long range) {
+        return (int) range;
+    }
+}
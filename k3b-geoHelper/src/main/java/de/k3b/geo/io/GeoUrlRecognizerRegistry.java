@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.io;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.k3b.geo.api.GeoPointDto;
+
+/**
+ * Registry of {@link IGeoUrlRecognizer}-s for the http(s)-urls of map services.
+ *
+ * A recognizer is registered either for a host suffix (i.e. "mapy.cz" matches "mapy.cz" and
+ * "en.mapy.cz") or for a single domain label (i.e. "google" matches "maps.google.com" and
+ * "www.google.de"). The host of an url is extracted once and looked up label by label,
+ * so the number of registered map services does not slow down parsing.
+ *
+ * Built in: google, openstreetmap, here, yandex, bing and mapy.cz.
+ * Services that only use the common parameters (i.e. apple maps "?ll=52.1,9.2&z=14")
+ * need no recognizer.
+ *
+ * ```java
+ * GeoUrlRecognizerRegistry.register("example.org", new IGeoUrlRecognizer() {...});
+ * ```
+ */
+public final class GeoUrlRecognizerRegistry {
+    private static final Map<String, IGeoUrlRecognizer> recognizers = new ConcurrentHashMap<String, IGeoUrlRecognizer>();
+
+    static {
+        register("google", new GoogleRecognizer());
+        register("openstreetmap", new OpenstreetmapRecognizer());
+        register("here", new HereRecognizer());
+        register("yandex", new YandexRecognizer());
+        register("bing", new BingRecognizer());
+        register("mapy.cz", new MapyCzRecognizer());
+    }
+
+    private GeoUrlRecognizerRegistry() {
+    }
+
+    /** Registers recognizer for a host suffix (containing ".") or a single domain label. Replaces an existing registration. */
+    public static void register(String host, IGeoUrlRecognizer recognizer) {
+        recognizers.put(host.toLowerCase(Locale.US), recognizer);
+    }
+
+    /** Removes the registration for host. Returns the removed recognizer or null. */
+    public static IGeoUrlRecognizer unregister(String host) {
+        return recognizers.remove(host.toLowerCase(Locale.US));
+    }
+
+    /** Returns the recognizer for the lowercase host or null if there is none.
+     *
+     * Host suffixes have precedence over single labels and longer suffixes over shorter ones.
+     * The labels are tried from left to right. */
+    public static IGeoUrlRecognizer find(String host) {
+        if (host == null) return null;
+
+        int length = host.length();
+        for (int labelStart = 0; labelStart < length; ) {
+            IGeoUrlRecognizer result = recognizers.get((labelStart == 0) ? host : host.substring(labelStart));
+            if (result != null) return result;
+            labelStart = nextLabelStart(host, labelStart);
+        }
+
+        for (int labelStart = 0; labelStart < length; ) {
+            int labelEnd = nextLabelStart(host, labelStart) - 1;
+            if ((labelStart > 0) || (labelEnd < length)) {
+                IGeoUrlRecognizer result = recognizers.get(host.substring(labelStart, labelEnd));
+                if (result != null) return result;
+            }
+            labelStart = labelEnd + 1;
+        }
+        return null;
+    }
+
+    /** Returns the position behind the '.' that ends the label at labelStart or length+1. */
+    private static int nextLabelStart(String host, int labelStart) {
+        int labelEnd = host.indexOf('.', labelStart);
+        return ((labelEnd < 0) ? host.length() : labelEnd) + 1;
+    }
+
+    /** Parsing helper: Returns the position behind "scheme://" in uri[start,end) or -1 if there is no "//". */
+    static int getHostStart(CharSequence uri, int start, int end) {
+        int colon = GeoUriScanner.indexOf(uri, ':', start, end);
+        if ((colon < 0) || (colon + 2 >= end) || (uri.charAt(colon + 1) != '/') || (uri.charAt(colon + 2) != '/')) return -1;
+        return colon + 3;
+    }
+
+    /** Parsing helper: Returns the position of the first '/', '?', '#' or ':' behind hostStart or end. */
+    static int getHostEnd(CharSequence uri, int hostStart, int end) {
+        for (int pos = hostStart; pos < end; pos++) {
+            char c = uri.charAt(pos);
+            if ((c == '/') || (c == '?') || (c == '#') || (c == ':')) return pos;
+        }
+        return end;
+    }
+
+    /** Parsing helper: Returns the position behind the first search in uri[start,end) or -1 if not found. */
+    static int indexBehind(CharSequence uri, String search, int start, int end) {
+        int length = search.length();
+        for (int pos = start; pos + length <= end; pos++) {
+            int i = 0;
+            while ((i < length) && (uri.charAt(pos + i) == search.charAt(i))) i++;
+            if (i == length) return pos + length;
+        }
+        return -1;
+    }
+
+    /** Parsing helper: Returns the start of the value of query parameter name=value in uri[start,end) or -1 if not found. */
+    static int paramValueStart(CharSequence uri, String name, int start, int end) {
+        int paramStart = GeoUriScanner.indexOf(uri, '?', start, end);
+        while (paramStart >= 0) {
+            paramStart++;
+            int valueStart = paramStart + name.length();
+            if ((valueStart < end) && (uri.charAt(valueStart) == '=')
+                    && (indexBehind(uri, name, paramStart, valueStart) == valueStart)) {
+                return valueStart + 1;
+            }
+            paramStart = GeoUriScanner.indexOf(uri, '&', paramStart, end);
+        }
+        return -1;
+    }
+
+    /** Parsing helper: Returns the end of a query parameter value starting at valueStart. */
+    static int paramValueEnd(CharSequence uri, int valueStart, int end) {
+        for (int pos = valueStart; pos < end; pos++) {
+            char c = uri.charAt(pos);
+            if ((c == '&') || (c == '#')) return pos;
+        }
+        return end;
+    }
+
+    /** Parsing helper: Same as uri.substring(dataStart, end).split("[" + delimiters + "]") but
+     * returns at most maxPartCount parts and null if split would return less than minPartCount parts. */
+    static String[] getParts(CharSequence uri, int dataStart, int end, String delimiters, int minPartCount, int maxPartCount) {
+        if (dataStart < 0) return null;
+
+        String[] parts = new String[maxPartCount];
+        int count = 0; // number of parts without trailing empty parts
+        int index = 0;
+        int partStart = dataStart;
+        while ((partStart <= end) && (count < maxPartCount)) {
+            int partEnd = partStart;
+            while ((partEnd < end) && (delimiters.indexOf(uri.charAt(partEnd)) < 0)) partEnd++;
+            if (index < maxPartCount) parts[index] = uri.subSequence(partStart, partEnd).toString();
+            if (partEnd > partStart) count = index + 1;
+            index++;
+            partStart = partEnd + 1;
+        }
+
+        if (count < minPartCount) return null;
+        return (count == maxPartCount) ? parts : Arrays.copyOf(parts, count);
+    }
+
+    /** https://www.google.com/maps/@52.1,9.2,14z */
+    private static class GoogleRecognizer implements IGeoUrlRecognizer {
+        @Override
+        public int parse(CharSequence uri, int pathStart, int end, GeoPointDto parseResult) {
+            String[] parts = getParts(uri, indexBehind(uri, "/@", pathStart, end), end, ",?&(", 2, 3);
+            if (parts != null) {
+                String zoom = (parts.length <= 2) ? null : parts[2];
+                if ((zoom != null) && ((zoom.endsWith("z")) || (zoom.endsWith("Z")))) {
+                    zoom = zoom.substring(0, zoom.length() - 1);
+                } else {
+                    zoom = null;
+                }
+                return GeoUri.setLatLonZoom(parseResult, parts[0], parts[1], zoom);
+            }
+            return GeoUri.STATUS_OK;
+        }
+    }
+
+    /** https://www.openstreetmap.org/#map=14/52.1/9.2 or https://www.openstreetmap.org/#14/52.1/9.2 */
+    private static class OpenstreetmapRecognizer implements IGeoUrlRecognizer {
+        @Override
+        public int parse(CharSequence uri, int pathStart, int end, GeoPointDto parseResult) {
+            int dataStart = indexBehind(uri, "#map=", pathStart, end);
+            if (dataStart < 0) dataStart = indexBehind(uri, "/#", pathStart, end);
+            String[] parts = getParts(uri, dataStart, end, "/?&", 3, 3);
+            if (parts != null) {
+                return GeoUri.setLatLonZoom(parseResult, parts[1], parts[2], parts[0]);
+            }
+            return GeoUri.STATUS_OK;
+        }
+    }
+
+    /** https://wego.here.com/?map=52.1,9.2,14 or https://share.here.com/52.1,9.2,14 */
+    private static class HereRecognizer implements IGeoUrlRecognizer {
+        @Override
+        public int parse(CharSequence uri, int pathStart, int end, GeoPointDto parseResult) {
+            int dataStart = indexBehind(uri, "map=", pathStart, end);
+            if (dataStart < 0) {
+                int pos = end;
+                while ((pos > pathStart) && (uri.charAt(pos - 1) != '/')) pos--;
+                dataStart = (pos > pathStart) ? pos : -1;
+            }
+            String[] parts = getParts(uri, dataStart, end, ",&?", 2, 3);
+            if (parts != null) {
+                String zoom = (parts.length <= 2) ? null : parts[2];
+                return GeoUri.setLatLonZoom(parseResult, parts[0], parts[1], zoom);
+            }
+            return GeoUri.STATUS_OK;
+        }
+    }
+
+    /** https://www.yandex.com/maps/?ll=9.2,52.1&z=14 where ll= is lon,lat instead of lat,lon */
+    private static class YandexRecognizer implements IGeoUrlRecognizer {
+        @Override
+        public int parse(CharSequence uri, int pathStart, int end, GeoPointDto parseResult) {
+            String[] parts = getParts(uri, indexBehind(uri, "ll=", pathStart, end), end, ",?&", 2, 2);
+            if (parts != null) {
+                return GeoUri.setLatLonZoom(parseResult, parts[1], parts[0], null);
+            }
+            return GeoUri.STATUS_OK;
+        }
+    }
+
+    /** https://www.bing.com/maps?cp=52.1~9.2&lvl=14.0 */
+    private static class BingRecognizer implements IGeoUrlRecognizer {
+        @Override
+        public int parse(CharSequence uri, int pathStart, int end, GeoPointDto parseResult) {
+            int status = GeoUri.STATUS_OK;
+            int valueStart = paramValueStart(uri, "cp", pathStart, end);
+            if (valueStart >= 0) {
+                String[] parts = getParts(uri, valueStart, paramValueEnd(uri, valueStart, end), "~", 2, 2);
+                if (parts != null) {
+                    status |= GeoUri.setLatLonZoom(parseResult, parts[0], parts[1], null);
+                }
+            }
+
+            // lvl may have decimals
+            valueStart = paramValueStart(uri, "lvl", pathStart, end);
+            if (valueStart >= 0) {
+                String[] parts = getParts(uri, valueStart, paramValueEnd(uri, valueStart, end), ".", 1, 1);
+                if (parts != null) {
+                    status |= GeoUri.setLatLonZoom(parseResult, null, null, parts[0]);
+                }
+            }
+            return status;
+        }
+    }
+
+    /** https://mapy.cz/zakladni?x=9.2&y=52.1&z=14 */
+    private static class MapyCzRecognizer implements IGeoUrlRecognizer {
+        @Override
+        public int parse(CharSequence uri, int pathStart, int end, GeoPointDto parseResult) {
+            return GeoUri.setLatLonZoom(parseResult, getParam(uri, "y", pathStart, end), getParam(uri, "x", pathStart, end), null);
+        }
+
+        private static String getParam(CharSequence uri, String name, int pathStart, int end) {
+            int valueStart = paramValueStart(uri, name, pathStart, end);
+            if (valueStart < 0) return null;
+            return uri.subSequence(valueStart, paramValueEnd(uri, valueStart, end)).toString();
+        }
+    }
+}
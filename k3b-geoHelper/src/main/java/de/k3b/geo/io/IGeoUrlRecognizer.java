@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.io;
+
+import de.k3b.geo.api.GeoPointDto;
+
+/**
+ * Extracts lat, lon and zoom from the http(s)-url of a map service like google-maps or openstreetmap.
+ *
+ * Implementations are registered by host name in {@link GeoUrlRecognizerRegistry} so that
+ * {@link GeoUri#fromUri(String)} can understand more map services without changing {@link GeoUri}.
+ */
+public interface IGeoUrlRecognizer {
+    /**
+     * Parses the map service specific parts of uri[pathStart,end) into parseResult.
+     *
+     * Only fields that are not set yet should be assigned. The common parameters
+     * (q=, ll=, z=, ...) are parsed by {@link GeoUri} afterwards.
+     *
+     * Malformed values should be ignored without throwing exceptions.
+     *
+     * @param pathStart position behind the host name of the uri.
+     * @return {@link GeoUri#STATUS_OK} or a combination of GeoUri.STATUS_MALFORMED_xxx
+     * (i.e. the result of {@link GeoUri#setLatLonZoom(GeoPointDto, String, String, String)}).
+     */
+    int parse(CharSequence uri, int pathStart, int end, GeoPointDto parseResult);
+}
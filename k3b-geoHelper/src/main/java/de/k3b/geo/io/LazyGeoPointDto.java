@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.io;
+
+import de.k3b.geo.api.GeoPointDto;
+
+/**
+ * A {@link GeoPointDto} loaded from a geo-uri where name, description, link and symbol are
+ * decoded on first access.
+ *
+ * Lat/lon, zoom, time and id are parsed while loading. The other fields usually are only
+ * needed for the few points that are shown in detail so the point only keeps the position
+ * of its geo-uri in the utf-8 bytes that were loaded. All points of one buffer share these bytes:
+ * no {@link String} is created per point until a text field is read.
+ * Created by {@link GeoFileRepository} with {@link GeoFileRepository#OPT_LOAD_LAZY}.
+ *
+ * Subclasses can be used as factory of {@link GeoFileRepository} to load custom point types lazily.
+ *
+ * Like {@link GeoPointDto} instances are not thread safe: the first read of a text field modifies the point.
+ */
+public class LazyGeoPointDto extends GeoPointDto {
+    /** Implementation detail: The loaded text shared by all points of one buffer
+     * together with the parser and the pools that decode the text fields on demand. */
+    static class Source {
+        private final CharSequence text;
+        private final GeoUri parser;
+        private final GeoStringPools pools;
+
+        Source(CharSequence text, GeoUri parser, GeoStringPools pools) {
+            this.text = text;
+            this.parser = parser;
+            this.pools = pools;
+        }
+
+        CharSequence getText() {
+            return text;
+        }
+
+        GeoStringPools getPools() {
+            return pools;
+        }
+    }
+
+    /** If not null: name, description, link and symbol are not decoded yet from source[start,end) */
+    private Source source = null;
+    private int start;
+    private int end;
+
+    /** Remember that name, description, link and symbol must be decoded from source[start,end) on demand. */
+    LazyGeoPointDto setSource(Source source, int start, int end) {
+        this.source = source;
+        this.start = start;
+        this.end = end;
+        return this;
+    }
+
+    /** True if name, description, link and symbol are not decoded yet. */
+    public boolean isLazy() {
+        return source != null;
+    }
+
+    /** Decodes name, description, link and symbol if not done yet. */
+    private void load() {
+        if (source != null) {
+            Source from = source;
+            source = null;
+            GeoPointDto parsed = new GeoPointDto();
+            from.parser.parse(from.text, start, end, parsed, from.pools);
+            super.setName(parsed.getName());
+            super.setDescription(parsed.getDescription());
+            super.setLink(parsed.getLink());
+            super.setSymbol(parsed.getSymbol());
+        }
+    }
+
+    @Override
+    public String getName() {
+        load();
+        return super.getName();
+    }
+
+    @Override
+    public GeoPointDto setName(String name) {
+        load();
+        return super.setName(name);
+    }
+
+    @Override
+    public String getDescription() {
+        load();
+        return super.getDescription();
+    }
+
+    @Override
+    public GeoPointDto setDescription(String description) {
+        load();
+        return super.setDescription(description);
+    }
+
+    @Override
+    public String getLink() {
+        load();
+        return super.getLink();
+    }
+
+    @Override
+    public GeoPointDto setLink(String link) {
+        load();
+        return super.setLink(link);
+    }
+
+    @Override
+    public String getSymbol() {
+        load();
+        return super.getSymbol();
+    }
+
+    @Override
+    public GeoPointDto setSymbol(String symbol) {
+        load();
+        return super.setSymbol(symbol);
+    }
+
+    /** For display/debugging: Either the {@link #getName()} or #{@link #getId()}. */
+    @Override
+    public String toString() {
+        load();
+        return super.toString();
+    }
+
+    @Override
+    public GeoPointDto clear() {
+        this.source = null;
+        return super.clear();
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import de.k3b.geo.api.AbstractGeoPointStore;
+import de.k3b.geo.api.IGeoPointInfo;
+
+/**
+ * A columnar point store that keeps all data outside of the java heap.
+ *
+ * The fixed width columns (lat, lon, time, zoom and the string references) are direct
+ * {@link ByteBuffer}-s. The text fields are appended to an off-heap utf-8 arena.
+ * A store that was {@link #save(File)}-d reopens instantly via {@link #open(File)}:
+ * the columns are memory-mapped and nothing is parsed.
+ *
+ * ```java
+ * MappedGeoPointStore store = new MappedGeoPointStore();
+ * new GeoFileRepository<IGeoPointInfo>(null).load(store, reader);
+ * store.save(new File("/path/to/track.k3gs"));
+ *
+ * MappedGeoPointStore reopened = MappedGeoPointStore.open(new File("/path/to/track.k3gs"));
+ * ```
+ *
+ * Stores opened from a file are read only. Reading is thread safe, adding is not.
+ */
+public class MappedGeoPointStore extends AbstractGeoPointStore {
+    /** "K3GS" at the beginning of the file. Big endian unlike the rest of the file so that it reads as text. */
+    private static final int MAGIC = 0x4b334753;
+    private static final int VERSION = 1;
+
+    /** magic, version, size, arena size */
+    private static final int HEADER_SIZE = 16;
+
+    /* Bytes per point in the columns */
+    private static final int LAT_LON_WIDTH = 8;
+    private static final int TIME_WIDTH = 8;
+    private static final int ZOOM_WIDTH = 8;    // zoomMin + zoomMax
+    private static final int TEXT_COUNT = 5;    // name, description, id, link, symbol
+    private static final int TEXT_WIDTH = 4 * TEXT_COUNT;
+
+    /* Index of the text field in the text column */
+    private static final int NAME = 0;
+    private static final int DESCRIPTION = 1;
+    private static final int ID = 2;
+    private static final int LINK = 3;
+    private static final int SYMBOL = 4;
+
+    /** Text reference of null */
+    private static final int NO_TEXT = -1;
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final boolean readOnly;
+    private int size;
+
+    private ByteBuffer latitude;
+    private ByteBuffer longitude;
+    private ByteBuffer time;
+    private ByteBuffer zoom;
+
+    /** Per point the arena offset of every text field or {@link #NO_TEXT} */
+    private ByteBuffer text;
+
+    /** utf-8 texts: int length + bytes. Append only. */
+    private ByteBuffer arena;
+    private int arenaSize;
+
+    /** Create an empty store in direct buffers. */
+    public MappedGeoPointStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** Create an empty store in direct buffers that can hold capacity points before it has to grow. */
+    public MappedGeoPointStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.readOnly = false;
+        this.size = 0;
+        this.latitude = allocate(capacity * LAT_LON_WIDTH);
+        this.longitude = allocate(capacity * LAT_LON_WIDTH);
+        this.time = allocate(capacity * TIME_WIDTH);
+        this.zoom = allocate(capacity * ZOOM_WIDTH);
+        this.text = allocate(capacity * TEXT_WIDTH);
+        this.arena = allocate(capacity * 16);
+        this.arenaSize = 0;
+    }
+
+    private MappedGeoPointStore(int size, ByteBuffer latitude, ByteBuffer longitude, ByteBuffer time,
+                                ByteBuffer zoom, ByteBuffer text, ByteBuffer arena) {
+        this.readOnly = true;
+        this.size = size;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.time = time;
+        this.zoom = zoom;
+        this.text = text;
+        this.arena = arena;
+        this.arenaSize = arena.capacity();
+    }
+
+    /** Maps a store that was written by {@link #save(File)}. The result is read only.
+     *
+     * @throws IOException if file is not a store of a supported version. */
+    public static MappedGeoPointStore open(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            if (channel.size() < HEADER_SIZE) throw new IOException("not a geo point store: " + file);
+            ByteBuffer header = map(channel, 0, HEADER_SIZE);
+            if (header.order(ByteOrder.BIG_ENDIAN).getInt(0) != MAGIC) throw new IOException("not a geo point store: " + file);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(4) != VERSION) throw new IOException("unsupported geo point store version " + header.getInt(4) + ": " + file);
+            int size = header.getInt(8);
+            int arenaSize = header.getInt(12);
+            if ((size < 0) || (arenaSize < 0) || (channel.size() < fileSize(size, arenaSize))) {
+                throw new IOException("incomplete geo point store: " + file);
+            }
+
+            long offset = HEADER_SIZE;
+            ByteBuffer latitude = map(channel, offset, (long) size * LAT_LON_WIDTH);
+            offset += latitude.capacity();
+            ByteBuffer longitude = map(channel, offset, (long) size * LAT_LON_WIDTH);
+            offset += longitude.capacity();
+            ByteBuffer time = map(channel, offset, (long) size * TIME_WIDTH);
+            offset += time.capacity();
+            ByteBuffer zoom = map(channel, offset, (long) size * ZOOM_WIDTH);
+            offset += zoom.capacity();
+            ByteBuffer text = map(channel, offset, (long) size * TEXT_WIDTH);
+            offset += text.capacity();
+            ByteBuffer arena = map(channel, offset, arenaSize);
+            return new MappedGeoPointStore(size, latitude, longitude, time, zoom, text, arena);
+        } finally {
+            // the mapping stays valid after the channel is closed
+            randomAccessFile.close();
+        }
+    }
+
+    /** Writes the store to file so that it can be reopened with {@link #open(File)}. */
+    public void save(File file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN).putInt(MAGIC);
+        header.order(ByteOrder.LITTLE_ENDIAN).putInt(VERSION).putInt(size).putInt(arenaSize).flip();
+
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            FileChannel channel = out.getChannel();
+            write(channel, header, HEADER_SIZE);
+            write(channel, latitude, size * LAT_LON_WIDTH);
+            write(channel, longitude, size * LAT_LON_WIDTH);
+            write(channel, time, size * TIME_WIDTH);
+            write(channel, zoom, size * ZOOM_WIDTH);
+            write(channel, text, size * TEXT_WIDTH);
+            write(channel, arena, arenaSize);
+        } finally {
+            out.close();
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** Appends a copy of point.
+     *
+     * @throws UnsupportedOperationException if the store was opened from a file. */
+    @Override
+    public boolean add(IGeoPointInfo point) {
+        if (readOnly) throw new UnsupportedOperationException("geo point store is read only");
+        ensureCapacity(size + 1);
+        int index = size;
+        latitude.putDouble(index * LAT_LON_WIDTH, point.getLatitude());
+        longitude.putDouble(index * LAT_LON_WIDTH, point.getLongitude());
+        time.putLong(index * TIME_WIDTH, point.getTimeOfMeasurementMillis());
+        zoom.putInt(index * ZOOM_WIDTH, point.getZoomMin());
+        zoom.putInt(index * ZOOM_WIDTH + 4, point.getZoomMax());
+        putText(index, NAME, point.getName());
+        putText(index, DESCRIPTION, point.getDescription());
+        putText(index, ID, point.getId());
+        putText(index, LINK, point.getLink());
+        putText(index, SYMBOL, point.getSymbol());
+        size++;
+        modCount++;
+        return true;
+    }
+
+    /** Makes sure that capacity points fit without growing. */
+    public void ensureCapacity(int capacity) {
+        int current = latitude.capacity() / LAT_LON_WIDTH;
+        if (capacity > current) {
+            int newCapacity = Math.max(capacity, current + (current >> 1));
+            latitude = grow(latitude, newCapacity * LAT_LON_WIDTH);
+            longitude = grow(longitude, newCapacity * LAT_LON_WIDTH);
+            time = grow(time, newCapacity * TIME_WIDTH);
+            zoom = grow(zoom, newCapacity * ZOOM_WIDTH);
+            text = grow(text, newCapacity * TEXT_WIDTH);
+        }
+    }
+
+    @Override
+    public double getLatitude(int index) {
+        return latitude.getDouble(index * LAT_LON_WIDTH);
+    }
+
+    @Override
+    public double getLongitude(int index) {
+        return longitude.getDouble(index * LAT_LON_WIDTH);
+    }
+
+    @Override
+    public int getZoomMin(int index) {
+        return zoom.getInt(index * ZOOM_WIDTH);
+    }
+
+    @Override
+    public int getZoomMax(int index) {
+        return zoom.getInt(index * ZOOM_WIDTH + 4);
+    }
+
+    @Override
+    public long getTime(int index) {
+        return time.getLong(index * TIME_WIDTH);
+    }
+
+    @Override
+    public String getName(int index) {
+        return getText(index, NAME);
+    }
+
+    @Override
+    public String getDescription(int index) {
+        return getText(index, DESCRIPTION);
+    }
+
+    @Override
+    public String getId(int index) {
+        return getText(index, ID);
+    }
+
+    @Override
+    public String getLink(int index) {
+        return getText(index, LINK);
+    }
+
+    @Override
+    public String getSymbol(int index) {
+        return getText(index, SYMBOL);
+    }
+
+    private void putText(int index, int field, String value) {
+        int offset = NO_TEXT;
+        if (value != null) {
+            byte[] utf8 = value.getBytes(UTF_8);
+            if (arenaSize + 4 + utf8.length > arena.capacity()) {
+                long needed = (long) arenaSize + 4 + utf8.length;
+                if (needed > Integer.MAX_VALUE) throw new IllegalStateException("geo point store text arena is full");
+                arena = grow(arena, (int) Math.min(Integer.MAX_VALUE, Math.max(needed, 2L * arena.capacity())));
+            }
+            offset = arenaSize;
+            arena.putInt(offset, utf8.length);
+            ByteBuffer target = arena.duplicate();
+            target.position(offset + 4);
+            target.put(utf8);
+            arenaSize += 4 + utf8.length;
+        }
+        text.putInt(index * TEXT_WIDTH + 4 * field, offset);
+    }
+
+    private String getText(int index, int field) {
+        int offset = text.getInt(index * TEXT_WIDTH + 4 * field);
+        if (offset == NO_TEXT) return null;
+        int length = arena.getInt(offset);
+        byte[] utf8 = new byte[length];
+        ByteBuffer source = arena.duplicate();
+        source.position(offset + 4);
+        source.get(utf8);
+        return new String(utf8, UTF_8);
+    }
+
+    private static long fileSize(int size, int arenaSize) {
+        return HEADER_SIZE + (long) size * (2 * LAT_LON_WIDTH + TIME_WIDTH + ZOOM_WIDTH + TEXT_WIDTH) + arenaSize;
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        ByteBuffer result = allocate(capacity);
+        ByteBuffer source = buffer.duplicate();
+        source.clear();
+        result.put(source);
+        result.clear();
+        return result;
+    }
+
+    private static ByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) throw new IOException("geo point store column too large: " + length);
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, int length) throws IOException {
+        ByteBuffer source = buffer.duplicate();
+        source.clear();
+        source.limit(length);
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+}
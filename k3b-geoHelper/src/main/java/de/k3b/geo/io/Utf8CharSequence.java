@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Implementation detail: A {@link CharSequence} view of utf-8 encoded bytes in a {@link ByteBuffer}
+ * (heap, direct or memory-mapped) that allows {@link GeoUriScanner} to parse geo-uri-s
+ * without decoding the bytes first.
+ *
+ * {@link #charAt(int)} returns one char per byte. This is correct for the ascii part of a
+ * geo-uri (scheme, parameter names, numbers, time, escapes). Non-ascii bytes (>= 0x80) are
+ * only decoded as utf-8 by {@link #toString()} and {@link #appendTo(StringBuilder, int, int)}
+ * which are used for the text fields that are actually kept.
+ */
+class Utf8CharSequence implements CharSequence {
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final ByteBuffer bytes;
+    private final int offset;
+    private final int length;
+
+    /** View of bytes[offset, offset+length). Uses absolute positions so position/limit of bytes are not changed. */
+    Utf8CharSequence(ByteBuffer bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /** The byte at index as char. Non-ascii bytes are returned as chars 0x80..0xFF */
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes.get(offset + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new Utf8CharSequence(bytes, offset + start, end - start);
+    }
+
+    /** The utf-8 decoded content. */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(length);
+        appendTo(result, 0, length);
+        return result.toString();
+    }
+
+    /** Appends the utf-8 decoded content of [start,end) to result.
+     *
+     * Malformed byte sequences are replaced by U+FFFD with the same granularity
+     * as {@code new String(bytes, "UTF-8")}. */
+    void appendTo(StringBuilder result, int start, int end) {
+        int pos = offset + start;
+        int last = offset + end;
+        while (pos < last) {
+            int b0 = bytes.get(pos) & 0xFF;
+            int b1 = (pos + 1 < last) ? (bytes.get(pos + 1) & 0xFF) : -1;
+            if (b0 < 0x80) {
+                result.append((char) b0);
+                pos++;
+            } else if ((b0 >= 0xC2) && (b0 <= 0xDF)) {
+                if (isContinuation(b1)) {
+                    result.append((char) (((b0 & 0x1F) << 6) | (b1 & 0x3F)));
+                    pos += 2;
+                } else {
+                    result.append(REPLACEMENT);
+                    pos++;
+                }
+            } else if ((b0 >= 0xE0) && (b0 <= 0xEF)) {
+                if ((b1 >= 0) && (!isContinuation(b1) || ((b0 == 0xE0) && (b1 < 0xA0)))) {
+                    result.append(REPLACEMENT);
+                    pos++;
+                } else if (pos + 2 >= last) {
+                    // truncated at the end
+                    result.append(REPLACEMENT);
+                    pos = last;
+                } else {
+                    int b2 = bytes.get(pos + 2) & 0xFF;
+                    if (!isContinuation(b2)) {
+                        result.append(REPLACEMENT);
+                        pos += 2;
+                    } else {
+                        char c = (char) (((b0 & 0x0F) << 12) | ((b1 & 0x3F) << 6) | (b2 & 0x3F));
+                        result.append(Character.isSurrogate(c) ? REPLACEMENT : c);
+                        pos += 3;
+                    }
+                }
+            } else if ((b0 >= 0xF0) && (b0 <= 0xF7)) {
+                int b2 = (pos + 2 < last) ? (bytes.get(pos + 2) & 0xFF) : -1;
+                int b3 = (pos + 3 < last) ? (bytes.get(pos + 3) & 0xFF) : -1;
+                if ((b0 > 0xF4) || ((b1 >= 0) && !isValidSecondOf4(b0, b1))) {
+                    result.append(REPLACEMENT);
+                    pos++;
+                } else if ((b2 >= 0) && !isContinuation(b2)) {
+                    result.append(REPLACEMENT);
+                    pos += 2;
+                } else if (b3 < 0) {
+                    // truncated at the end
+                    result.append(REPLACEMENT);
+                    pos = last;
+                } else if (!isContinuation(b3)) {
+                    result.append(REPLACEMENT);
+                    pos += 3;
+                } else {
+                    result.appendCodePoint(((b0 & 0x07) << 18) | ((b1 & 0x3F) << 12) | ((b2 & 0x3F) << 6) | (b3 & 0x3F));
+                    pos += 4;
+                }
+            } else {
+                result.append(REPLACEMENT);
+                pos++;
+            }
+        }
+    }
+
+    private static boolean isContinuation(int b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    /** True if b1 can follow the lead byte b0 of a 4 byte sequence. */
+    private static boolean isValidSecondOf4(int b0, int b1) {
+        if (!isContinuation(b1)) return false;
+        if (b0 == 0xF0) return b1 >= 0x90;
+        if (b0 == 0xF4) return b1 <= 0x8F;
+        return true;
+    }
+}
@@ -18,6 +18,8 @@
 
 package de.k3b.geo.io.gpx;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.xml.sax.InputSource;
 
 import java.io.IOException;
@@ -36,6 +38,7 @@ import de.k3b.geo.io.GeoUri;
  * Created by k3b on 20.04.2015.
  */
 public class GeoXmlOrTextParser<T extends IGeoPointInfo> {
+    private static final Logger logger = LoggerFactory.getLogger(GeoXmlOrTextParser.class);
 
     /** Get {@link IGeoPointInfo} items from cr/lf delimited Text lines or from xml fragments. */
     public List<T> get(String textLinesOrXml) {
@@ -61,7 +64,7 @@ public class GeoXmlOrTextParser<T extends IGeoPointInfo> {
                 parser.load(result, rd);
                 rd.close();
             } catch (IOException e) {
-                e.printStackTrace();
+                logger.warn("get(): cannot read text lines", e);
             }
             return result;
         } else {
@@ -77,7 +80,7 @@ public class GeoXmlOrTextParser<T extends IGeoPointInfo> {
             try {
                 result = parser.getTracks(new InputSource(rd));
             } catch (IOException e) {
-                e.printStackTrace();
+                logger.warn("get(): cannot read xml", e);
             }
             rd.close();
             return result;
@@ -18,13 +18,15 @@
 
  package de.k3b.geo.io.gpx;
 
+import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.TimeZone;
 
 import de.k3b.geo.api.IGeoPointInfo;
 import de.k3b.geo.api.ILocation;
+import de.k3b.geo.io.GeoFormatter;
+import de.k3b.util.IsoDateTimeFormatter;
 
 /**
  * Formats {@link de.k3b.geo.api.GeoPointDto}-s or {@link de.k3b.geo.api.ILocation}-s as
@@ -48,6 +50,8 @@ import de.k3b.geo.api.ILocation;
  */
 public class GpxFormatter {
 	private static final String TEMP_AMP = "##!!##!!";
+    /** @deprecated not thread safe. Use {@link IsoDateTimeFormatter} instead. */
+    @Deprecated
     public static final DateFormat TIME_FORMAT
             = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
 
@@ -58,33 +62,27 @@ public class GpxFormatter {
     /** Add gpx-xml-fragments to result */
     public static StringBuffer toGpx(StringBuffer result, IGeoPointInfo location) {
         return toGpx(result, location.getLatitude(), location.getLongitude(),
-                location.getTimeOfMeasurement(), location.toString(),location.getDescription(), location.getLink());
+                location.getTimeOfMeasurementMillis(), location.toString(),location.getDescription(), location.getLink());
     }
 
     /** Add gpx-xml-fragments to result */
     public static StringBuffer toGpx(StringBuffer result, ILocation location,
                                      String description, String link) {
         return toGpx(result, location.getLatitude(), location.getLongitude(),
-                location.getTimeOfMeasurement(), location.toString(),description, link);
+                location.getTimeOfMeasurementMillis(), location.toString(),description, link);
     }
 
     /** Add gpx-xml-fragments to result */
     private static StringBuffer toGpx(StringBuffer result, double latitude, double longitude,
-                                      Date timeOfMeasurement, String name,
+                                      long timeOfMeasurement, String name,
                                       String description, String link) {
         result.append("<" +
-                XmlDefinitions.GpxDef_11.TRKPT +
-                " " +
-                XmlDefinitions.GpxDef_11.ATTR_LAT +
-                "='")
-                .append(latitude)
-                .append("' " +
-                        XmlDefinitions.GpxDef_11.ATTR_LON +
-                        "='")
-                .append(longitude)
-                .append("'>");
-        if (timeOfMeasurement != null) {
-            addElement(result, XmlDefinitions.GpxDef_11.TIME, TIME_FORMAT.format(timeOfMeasurement).toString());
+                XmlDefinitions.GpxDef_11.TRKPT);
+        appendLatLonAttribute(result, XmlDefinitions.GpxDef_11.ATTR_LAT, latitude);
+        appendLatLonAttribute(result, XmlDefinitions.GpxDef_11.ATTR_LON, longitude);
+        result.append(">");
+        if (timeOfMeasurement != ILocation.NO_TIME) {
+            addTimeElement(result, XmlDefinitions.GpxDef_11.TIME, timeOfMeasurement);
         }
         if (name != null) {
             addElement(result, XmlDefinitions.GpxDef_11.NAME, name);
@@ -106,6 +104,30 @@ public class GpxFormatter {
         return result;
     }
 
+    /** add " name='value'" to result. Same number format as in geo-uri-s. Omitted if value is {@link IGeoPointInfo#NO_LAT_LON} */
+    private static void appendLatLonAttribute(StringBuffer result, String name, double value) {
+        if (value != IGeoPointInfo.NO_LAT_LON) {
+            result.append(' ').append(name).append("='");
+            try {
+                GeoFormatter.appendLatLon(result, value, GeoFormatter.LAT_LON_DECIMALS);
+            } catch (IOException ignore) {
+                // StringBuffer does not throw
+            }
+            result.append('\'');
+        }
+    }
+
+    /** add (name>yyyy-MM-ddTHH:mm:ssZ(/name> to result */
+    private static void addTimeElement(StringBuffer result, String name, long value) {
+        result.append("<").append(name).append(">");
+        try {
+            IsoDateTimeFormatter.append(result, value, false);
+        } catch (IOException ignore) {
+            // StringBuffer does not throw
+        }
+        result.append("</").append(name).append(">");
+    }
+
     /** add (name>value(/name> to result */
     private static void addElement(StringBuffer result, String name, String value) {
         result.append("<").append(name).append(">").append(escapeElement(value)).append("</").append(name).append(">");
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.List;
 import org.xml.sax.InputSource;
 
+import de.k3b.geo.api.AbstractGeoPointStore;
 import de.k3b.geo.api.GeoPointDto;
 import de.k3b.geo.api.IGeoInfoHandler;
 import de.k3b.geo.api.IGeoPointInfo;
@@ -95,7 +96,16 @@ public class GpxReader<T extends IGeoPointInfo> extends GpxReaderBase implements
      *
      */
     public List<T> getTracks(InputSource in) throws IOException {
-        track = new ArrayList<T>();
+        return getTracks(in, new ArrayList<T>());
+    }
+
+    /**
+     * Call the parser and add the points contained in the stream to result.
+     *
+     * If result is an {@link AbstractGeoPointStore} the values are copied into its columns without creating a point object.
+     */
+    public List<T> getTracks(InputSource in, List<T> result) throws IOException {
+        track = result;
         parse(in);
         return track;
     }
@@ -103,11 +113,21 @@ public class GpxReader<T extends IGeoPointInfo> extends GpxReaderBase implements
     /** Is called for every completed gpx-trackpoint to collect the received tracks. */
     @Override
     public boolean onGeoInfo(IGeoPointInfo geoInfo) {
-        if (mReuse != null) {
-            track.add((T) mReuse.clone());
+        if (track instanceof AbstractGeoPointStore) {
+            // the store copies the values
+            ((AbstractGeoPointStore) track).add(this.current);
         } else {
-            track.add((T) this.current);
+            track.add(createItem(this.current));
         }
         return true;
     }
+
+    /** Factory method to convert a received point into the item type of the track.
+     *
+     * The default implementation returns a clone of geo if geo is reused for the next point, else geo itself.
+     * Can be overwritten i.e. to return an immutable {@link de.k3b.geo.api.GeoPoint} via
+     * {@link de.k3b.geo.api.GeoPoint#of(IGeoPointInfo)}. Then geo need not be cloned. */
+    protected T createItem(GeoPointDto geo) {
+        return (T) ((mReuse != null) ? geo.clone() : geo);
+    }
 }
@@ -26,18 +26,20 @@ import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
 import java.io.IOException;
-import java.util.Date;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
 import de.k3b.geo.api.GeoPointDto;
+import de.k3b.geo.api.IGeoPointInfo;
 import de.k3b.geo.api.IGeoInfoHandler;
 import de.k3b.geo.io.GeoFormatter;
+import de.k3b.geo.io.GeoStringPools;
 import de.k3b.geo.io.GeoUri;
 import de.k3b.geo.io.GeoUriDef;
 import de.k3b.util.IsoDateTimeParser;
+import de.k3b.util.StringPool;
 
 /**
  * A parser for xml-geo formats.
@@ -94,6 +96,12 @@ public class GpxReaderBase extends DefaultHandler {
      * it is Created on demand. */
     private GeoUri geoUriParser = null;
 
+    /** GeoUri.OPT_xxx of {@link #geoUriParser} */
+    private int geoUriParserModes = GeoUri.OPT_DEFAULT;
+
+    /** If not null: repeated name, link and symbol values share one {@link String} */
+    private GeoStringPools stringPools = null;
+
     /**
      * Creates a new parser.
      *
@@ -113,6 +121,14 @@ public class GpxReaderBase extends DefaultHandler {
         this.mReuse = reuse;
     }
 
+    /** Take name, link and symbol of the points from pools so that repeated values share one {@link String}.
+     *
+     * Null (default) means no pooling. */
+    public GpxReaderBase setStringPools(GeoStringPools pools) {
+        this.stringPools = pools;
+        return this;
+    }
+
     /**
      * Processes gpx/kml/poi/xml data and calls [@link IGeoInfoHandler#onGeoInfo} for every
      * {@link de.k3b.geo.api.IGeoPointInfo} found.
@@ -179,7 +195,10 @@ public class GpxReaderBase extends DefaultHandler {
                         modes |= GeoUri.OPT_PARSE_INFER_MISSING;
                     }
                 }
-                this.geoUriParser = createGeoUriParser(modes);
+                if ((this.geoUriParser == null) || (this.geoUriParserModes != modes)) {
+                    this.geoUriParser = createGeoUriParser(modes);
+                    this.geoUriParserModes = modes;
+                }
             }
             geoUriParser.fromUri(geoUri, result);
         }
@@ -210,13 +229,14 @@ public class GpxReaderBase extends DefaultHandler {
         if (value != null) result.setZoomMax(GeoFormatter.parseZoom(value));
 
         value = attributes.getValue(GeoUriDef.TIME);
-        if (value != null) result.setTimeOfMeasurement(IsoDateTimeParser.parse(value));
+        if (value != null) result.setTimeOfMeasurementMillis(IsoDateTimeParser.parseMillis(value, 0, value.length()));
 
         return result;
     }
 
+    /** Returns the parser for geoUri=... attributes. The result is reused while modes do not change. */
     protected GeoUri createGeoUriParser(int modes) {
-        return new GeoUri(modes);
+        return GeoUri.forOptions(modes);
     }
 
     /** Java sax api implementation: Element name inspection/processig */
@@ -229,14 +249,14 @@ public class GpxReaderBase extends DefaultHandler {
         if (name.equals(XmlDefinitions.GpxDef_11.TRKPT) || name.equals(XmlDefinitions.GpxDef_10.WPT)) {
             this.current = this.newInstance(attributes);
             final String lat = attributes.getValue(XmlDefinitions.GpxDef_11.ATTR_LAT);
-            if (lat != null) this.current.setLatitude(Double.parseDouble(lat));
+            if (lat != null) this.current.setLatitude(parseLatOrLon(lat));
             final String lon = attributes.getValue(XmlDefinitions.GpxDef_11.ATTR_LON);
-            if (lon != null) this.current.setLongitude(Double.parseDouble(lon));
+            if (lon != null) this.current.setLongitude(parseLatOrLon(lon));
         } else if (name.equals(XmlDefinitions.WikimediaDef.COORDINATE)) {
             final String lat = attributes.getValue(XmlDefinitions.GpxDef_11.ATTR_LAT);
-            if (lat != null) this.current.setLatitude(Double.parseDouble(lat));
+            if (lat != null) this.current.setLatitude(parseLatOrLon(lat));
             final String lon = attributes.getValue(XmlDefinitions.GpxDef_11.ATTR_LON);
-            if (lon != null) this.current.setLongitude(Double.parseDouble(lon));
+            if (lon != null) this.current.setLongitude(parseLatOrLon(lon));
         } else if (name.equals(XmlDefinitions.WikimediaDef.IMAGE)) {
             final String symbol = attributes.getValue(XmlDefinitions.WikimediaDef.ATTR_IMAGE);
             if (symbol != null) this.current.setSymbol(symbol);
@@ -247,9 +267,10 @@ public class GpxReaderBase extends DefaultHandler {
             this.current.setId(attributes.getValue(XmlDefinitions.WikimediaDef.ATTR_ID));
             this.current.setName(attributes.getValue(XmlDefinitions.WikimediaDef.ATTR_TITLE));
             this.current.setLink(attributes.getValue(XmlDefinitions.WikimediaDef.ATTR_LINK));
-            final Date dateTime = IsoDateTimeParser.parse(attributes.getValue(XmlDefinitions.WikimediaDef.ATTR_TIME));
+            final String dateTime = attributes.getValue(XmlDefinitions.WikimediaDef.ATTR_TIME);
             if (dateTime != null) {
-                this.current.setTimeOfMeasurement(dateTime);
+                final long millis = IsoDateTimeParser.parseMillis(dateTime, 0, dateTime.length());
+                if (millis != IGeoPointInfo.NO_TIME) this.current.setTimeOfMeasurementMillis(millis);
             }
         } else if ((this.current != null) && (name.equals(XmlDefinitions.GpxDef_11.LINK) || name.equals(XmlDefinitions.GpxDef_10.URL))) {
             this.current.setLink(attributes.getValue(XmlDefinitions.GpxDef_11.ATTR_LINK));
@@ -259,6 +280,12 @@ public class GpxReaderBase extends DefaultHandler {
 		}
     }
 
+    /** Returns the value of the current xml-element. Taken from pool if not null. */
+    private String getElementText(StringPool pool) {
+        if (pool == null) return currentXmlElementBufer.toString();
+        return pool.get(currentXmlElementBufer, 0, currentXmlElementBufer.length());
+    }
+
     /** Java sax api implementation: Element value and attribut inspection/processig */
     @Override
     public void endElement(String uri, String localName, String qName)
@@ -267,21 +294,22 @@ public class GpxReaderBase extends DefaultHandler {
         logger.debug("endElement {} {}", localName, qName);
         if (name.equals(XmlDefinitions.GpxDef_11.TRKPT) || name.equals(XmlDefinitions.GpxDef_10.WPT) || name.equals(XmlDefinitions.KmlDef_22.PLACEMARK) || name.equals(GeoUriDef.XML_ELEMENT_POI) || name.equals(XmlDefinitions.WikimediaDef.PAGE)) {
             GeoUri.inferMissing(this.current, this.current.getDescription());
+            if (stringPools != null) stringPools.apply(this.current);
             this.onGotNewWaypoint.onGeoInfo(this.current);
             this.current = null;
         } else if (this.current != null) {
             if (name.equals(XmlDefinitions.GpxDef_11.NAME)) {
-                this.current.setName(currentXmlElementBufer.toString());
+                this.current.setName(getElementText((stringPools == null) ? null : stringPools.getName()));
             } else if (name.equals(XmlDefinitions.GpxDef_11.DESC) || name.equals(XmlDefinitions.KmlDef_22.DESCRIPTION)) {
                 this.current.setDescription(currentXmlElementBufer.toString());
             } else if ((null == this.current.getLink()) && (name.equals(XmlDefinitions.GpxDef_11.LINK) || name.equals(XmlDefinitions.GpxDef_10.URL))) {
-                this.current.setLink(currentXmlElementBufer.toString());
+                this.current.setLink(getElementText((stringPools == null) ? null : stringPools.getLink()));
             } else if (name.equals(GeoUriDef.ID)) {
                 this.current.setId(currentXmlElementBufer.toString());
             } else if (name.equals(XmlDefinitions.GpxDef_11.TIME) || name.equals(XmlDefinitions.KmlDef_22.TIMESTAMP_WHEN) || name.equals(XmlDefinitions.KmlDef_22.TIMESPAN_BEGIN)) {
-                final Date dateTime = IsoDateTimeParser.parse(currentXmlElementBufer.toString());
-                if (dateTime != null) {
-                    this.current.setTimeOfMeasurement(dateTime);
+                final long millis = IsoDateTimeParser.parseMillis(currentXmlElementBufer, 0, currentXmlElementBufer.length());
+                if (millis != IGeoPointInfo.NO_TIME) {
+                    this.current.setTimeOfMeasurementMillis(millis);
                 } else {
                     saxError("/gpx//time or /kml//when or /kml//begin: invalid time "
                             + name +"=" + currentXmlElementBufer.toString());
@@ -289,20 +317,69 @@ public class GpxReaderBase extends DefaultHandler {
 
             } else if ((name.equals(XmlDefinitions.KmlDef_22.COORDINATES) || name.equals(XmlDefinitions.KmlDef_22.COORDINATES2)) && currentXmlElementBufer.length() > 0) {
                 // <coordinates>lon,lat,height blank lon,lat,height ...</coordinates>
-                try {
-                    String parts[] = currentXmlElementBufer.toString().split("[,\\s]");
-                    if ((parts != null) && (parts.length >= 2)) {
-                        this.current.setLatitude(Double.parseDouble(parts[1]));
-                        this.current.setLongitude(Double.parseDouble(parts[0]));
+                // parsed in place. Same result as split("[,\\s]") and using parts[0] and parts[1]
+                final StringBuffer coordinates = currentXmlElementBufer;
+                final int end = coordinates.length();
+                final int lonEnd = indexOfCoordinateDelimiter(coordinates, 0, end);
+                if ((lonEnd >= 0) && hasNonDelimiter(coordinates, lonEnd + 1, end)) {
+                    int latEnd = indexOfCoordinateDelimiter(coordinates, lonEnd + 1, end);
+                    if (latEnd < 0) latEnd = end;
+                    try {
+                        this.current.setLatitude(parseDouble(coordinates, lonEnd + 1, latEnd));
+                        this.current.setLongitude(parseDouble(coordinates, 0, lonEnd));
+                    } catch (NumberFormatException e) {
+                        saxError("/kml//Placemark/Point/coordinates>Expected: 'lon,lat,...' but got "
+                                + name +"=" + coordinates.toString());
                     }
-                } catch (NumberFormatException e) {
-                    saxError("/kml//Placemark/Point/coordinates>Expected: 'lon,lat,...' but got "
-                            + name +"=" + currentXmlElementBufer.toString());
                 }
             }
         }
     }
 
+    /** Parsing helper: lat or lon xml attribute to {@link double}. */
+    private static double parseLatOrLon(String value) {
+        return parseDouble(value, 0, value.length());
+    }
+
+    /** Parsing helper: Same as {@link Double#parseDouble(String)} for s[start,end).
+     *
+     * Plain decimal numbers are parsed by the fast {@link GeoFormatter#parseLatOrLon(CharSequence, int, int)}.
+     * Everything else is left to {@link Double#parseDouble(String)} so that "Infinity" or "NaN"
+     * are still accepted and hemisphere prefixes like "N53.1" are still rejected.
+     *
+     * @throws NumberFormatException if s[start,end) is not a number. */
+    private static double parseDouble(CharSequence s, int start, int end) {
+        if (start < end) {
+            char c = s.charAt(start);
+            if (((c >= '0') && (c <= '9')) || (c == '-') || (c == '+') || (c == '.')) {
+                double result = GeoFormatter.parseLatOrLon(s, start, end);
+                if (!Double.isNaN(result)) return result;
+            }
+        }
+        return Double.parseDouble(s.subSequence(start, end).toString());
+    }
+
+    /** Parsing helper: position of the next "," or whitespace in s[start,end) or -1 */
+    private static int indexOfCoordinateDelimiter(CharSequence s, int start, int end) {
+        for (int pos = start; pos < end; pos++) {
+            if (isCoordinateDelimiter(s.charAt(pos))) return pos;
+        }
+        return -1;
+    }
+
+    /** Parsing helper: true if s[start,end) contains something else than "," or whitespace */
+    private static boolean hasNonDelimiter(CharSequence s, int start, int end) {
+        for (int pos = start; pos < end; pos++) {
+            if (!isCoordinateDelimiter(s.charAt(pos))) return true;
+        }
+        return false;
+    }
+
+    /** Same as regular expression "[,\\s]" */
+    private static boolean isCoordinateDelimiter(char c) {
+        return (c == ',') || (c == ' ') || (c == '\t') || (c == '\n') || (c == '\u000B') || (c == '\f') || (c == '\r');
+    }
+
     /** Called for every xml-sax-parser-error */
     private void saxError(String message) throws SAXException {
         throw new SAXException(message);
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.util;
+
+import java.io.IOException;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Formats utc timestamps as iso 8601 "yyyy-MM-ddTHH:mm:ssZ" or "yyyy-MM-ddTHH:mm:ss.SSSZ".
+ *
+ * Counterpart of {@link IsoDateTimeParser}. Same result as
+ * SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'") in timezone UTC but thread safe and the
+ * timestamp is appended directly to a {@link StringBuilder} or any other {@link Appendable}.
+ *
+ * The date part "yyyy-MM-dd" of the last formatted day is cached per thread so consecutive
+ * timestamps of the same day (i.e. the points of a gps track) only need to format the time of day,
+ * even if other threads format timestamps of other days at the same time.
+ */
+public class IsoDateTimeFormatter {
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    /** Days between 0000-03-01 and 1970-01-01 in the proleptic gregorian calendar */
+    private static final long DAYS_0000_TO_1970 = 719468;
+
+    /* Years outside this range are formatted with SimpleDateFormat that uses the julian calendar
+     * before 1582 and has special rules for years before 1 */
+    private static final int MIN_YEAR = 1583;
+    private static final int MAX_YEAR = 9999;
+
+    /** Implementation detail: "yyyy-MM-dd" of one day. */
+    private static class DayPrefix {
+        private final long day;
+        private final char[] chars;
+
+        DayPrefix(long day, char[] chars) {
+            this.day = day;
+            this.chars = chars;
+        }
+    }
+
+    /** The last day formatted by the current thread */
+    private static final ThreadLocal<DayPrefix> lastDay = new ThreadLocal<DayPrefix>() {
+        @Override
+        protected DayPrefix initialValue() {
+            return new DayPrefix(0, "1970-01-01".toCharArray());
+        }
+    };
+
+    /* Fallback for years outside MIN_YEAR..MAX_YEAR. One per thread because java.text formats are not thread safe. */
+    private static final ThreadLocal<DateFormat> fallbackFormatter = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            return createFallbackFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        }
+    };
+    private static final ThreadLocal<DateFormat> fallbackMillisFormatter = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            return createFallbackFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        }
+    };
+
+    /** Returns millis since 1970-01-01 utc as "yyyy-MM-ddTHH:mm:ssZ". */
+    public static String format(long millis) {
+        return append(new StringBuilder(24), millis, false).toString();
+    }
+
+    /** Appends millis since 1970-01-01 utc as "yyyy-MM-ddTHH:mm:ssZ" or with withMillis as
+     * "yyyy-MM-ddTHH:mm:ss.SSSZ" to result. */
+    public static StringBuilder append(StringBuilder result, long millis, boolean withMillis) {
+        try {
+            append((Appendable) result, millis, withMillis);
+        } catch (IOException ignore) {
+            // StringBuilder does not throw
+        }
+        return result;
+    }
+
+    /** Same as {@link #append(StringBuilder, long, boolean)} for any {@link Appendable} i.e. a {@link java.io.Writer}. */
+    public static <A extends Appendable> A append(A result, long millis, boolean withMillis) throws IOException {
+        long day = floorDiv(millis, MILLIS_PER_DAY);
+        DayPrefix prefix = lastDay.get();
+        if (prefix.day != day) {
+            prefix = createDayPrefix(day);
+            if (prefix == null) {
+                DateFormat format = (withMillis) ? fallbackMillisFormatter.get() : fallbackFormatter.get();
+                result.append(format.format(new Date(millis)));
+                return result;
+            }
+            lastDay.set(prefix);
+        }
+
+        int millisOfDay = (int) (millis - day * MILLIS_PER_DAY);
+        int secondsOfDay = millisOfDay / 1000;
+        for (char c : prefix.chars) {
+            result.append(c);
+        }
+        result.append('T');
+        append2(result, secondsOfDay / 3600).append(':');
+        append2(result, (secondsOfDay / 60) % 60).append(':');
+        append2(result, secondsOfDay % 60);
+        if (withMillis) {
+            int fraction = millisOfDay % 1000;
+            result.append('.').append((char) ('0' + fraction / 100));
+            append2(result, fraction % 100);
+        }
+        result.append('Z');
+        return result;
+    }
+
+    /** Implementation detail: "yyyy-MM-dd" of day since 1970-01-01 or null if the year is not supported.
+     *
+     * Converts days to the proleptic gregorian calendar with integer arithmetic (era of 400 years). */
+    private static DayPrefix createDayPrefix(long day) {
+        long z = day + DAYS_0000_TO_1970;
+        long era = floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;                                                  // [0, 146096]
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365; // [0, 399]
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);  // [0, 365] starting at 1st of march
+        long monthFromMarch = (5 * dayOfYear + 2) / 153;                                  // [0, 11]
+        int dayOfMonth = (int) (dayOfYear - (153 * monthFromMarch + 2) / 5 + 1);          // [1, 31]
+        int month = (int) ((monthFromMarch < 10) ? monthFromMarch + 3 : monthFromMarch - 9); // [1, 12]
+        long year = yearOfEra + era * 400 + ((month <= 2) ? 1 : 0);
+
+        if ((year < MIN_YEAR) || (year > MAX_YEAR)) return null;
+
+        int y = (int) year;
+        char[] chars = new char[] {
+                digit(y / 1000), digit(y / 100), digit(y / 10), digit(y), '-',
+                digit(month / 10), digit(month), '-',
+                digit(dayOfMonth / 10), digit(dayOfMonth)};
+        return new DayPrefix(day, chars);
+    }
+
+    private static char digit(int value) {
+        return (char) ('0' + (value % 10));
+    }
+
+    /** Appends value 0..99 with 2 digits */
+    private static Appendable append2(Appendable result, int value) throws IOException {
+        return result.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private static long floorDiv(long value, long divisor) {
+        long result = value / divisor;
+        if (((value % divisor) != 0) && ((value < 0) != (divisor < 0))) result--;
+        return result;
+    }
+
+    private static DateFormat createFallbackFormat(String pattern) {
+        DateFormat result = new SimpleDateFormat(pattern);
+        result.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return result;
+    }
+}
@@ -21,9 +21,10 @@ package de.k3b.util;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import de.k3b.geo.api.ILocation;
+
 /**
  * Class to parse iso 8601 dateTime.
  *
@@ -39,14 +40,13 @@ public class IsoDateTimeParser {
             = Pattern.compile("((\\d{4})-(\\d{2})-(\\d{2})T(\\d{2}):(\\d{2}):(\\d{2})(?:[\\.,](\\d{1,3}))?(Z|[\\+-]\\d{2}(?::?\\d{2})?Z?)?)");
     //                            year     month     day T  hour    minute    sec             millisec   Z or +/-  hours  :   minutes
 
-    private static final int YEAR = 0;
-    private static final int MONTH = 1;
-    private static final int DAY = 2;
-    private static final int HOUR = 3;
-    private static final int MINUTE = 4;
-    private static final int SECOND = 5;
-    private static final int FRACTIONAL_SECONDS = 6;
-    private static final int TIMEZONE = 7;
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    /** Days between 0000-03-01 and 1970-01-01 in the proleptic gregorian calendar */
+    private static final long DAYS_0000_TO_1970 = 719468;
+
+    /** {@link Calendar} uses the julian calendar before the gregorian cutover in 1582 */
+    private static final int MIN_GREGORIAN_YEAR = 1583;
 
     /**
      * Similar to
@@ -56,42 +56,119 @@ public class IsoDateTimeParser {
      * returns null if not a valid date */
     public static Date parse(String dateString) {
         if (dateString != null) {
-            final Matcher matcher = ISO8601_FRACTIONAL_PATTERN.matcher(dateString);
-            if (matcher.matches()) {
-                try {
-                    // +2: matcher.group(0) returns the whole expression, matcher.group(1) is overall "()"
-                    // matchingGroup starts with 2
-                    return toDate(matcher.group(YEAR + 2),
-                            matcher.group(MONTH + 2),
-                            matcher.group(DAY + 2),
-                            matcher.group(HOUR + 2),
-                            matcher.group(MINUTE + 2),
-                            matcher.group(SECOND + 2),
-                            matcher.group(FRACTIONAL_SECONDS + 2),
-                            matcher.group(TIMEZONE + 2));
-                } catch (NumberFormatException nfe) {
-                }
-            }
+            long millis = parseMillis(dateString, 0, dateString.length());
+            if (millis != ILocation.NO_TIME) return new Date(millis);
         }
         return null;
     }
 
     /**
-     * Convert the given timestamp parameters into a number of milliseconds
-     * @param dateFragments year month day hour minute seconds fractionsOfASecond timezone
-     * @return number of milliseconds
+     * Same as {@link #parse(String)} for s[start,end) but returns millis since 1970-01-01 utc
+     * or {@link ILocation#NO_TIME} if s[start,end) does not match {@link #ISO8601_FRACTIONAL_PATTERN}.
+     *
+     * Works without regular expression, {@link Calendar} and {@link TimeZone} for dates with
+     * "Z" or "+hh:mm" timezone. Like {@link #parse(String)} fractions of a second are ignored,
+     * out of range values (i.e. month 13) are rolled over and an invalid timezone means utc.
+     *
+     * The timezone offset is computed arithmetically from "+hh:mm", so no offset to millis
+     * cache is needed. Only dates without timezone (local time) still use {@link Calendar}.
      */
-    private static Date toDate(String... dateFragments)
-    {
-        return toDate(get(dateFragments, YEAR, -1),
-                get(dateFragments, MONTH, -1),
-                get(dateFragments, DAY, -1),
-                get(dateFragments, HOUR, -1),
-                get(dateFragments, MINUTE, -1),
-                get(dateFragments, SECOND, -1),
-                getFraction(dateFragments),
-                getTimeZone(dateFragments));
+    public static long parseMillis(CharSequence s, int start, int end) {
+        // yyyy-MM-ddTHH:mm:ss
+        if ((s == null) || (end - start < 19)
+                || (s.charAt(start + 4) != '-') || (s.charAt(start + 7) != '-') || (s.charAt(start + 10) != 'T')
+                || (s.charAt(start + 13) != ':') || (s.charAt(start + 16) != ':')) {
+            return ILocation.NO_TIME;
+        }
+        int year = digits(s, start, 4);
+        int month = digits(s, start + 5, 2);
+        int day = digits(s, start + 8, 2);
+        int hour = digits(s, start + 11, 2);
+        int minute = digits(s, start + 14, 2);
+        int second = digits(s, start + 17, 2);
+        if ((year | month | day | hour | minute | second) < 0) return ILocation.NO_TIME;
+
+        int pos = start + 19;
+
+        // optional fraction of a second [.,]\d{1,3} which is ignored
+        if ((pos < end) && ((s.charAt(pos) == '.') || (s.charAt(pos) == ','))) {
+            int fractionStart = ++pos;
+            while ((pos < end) && (pos - fractionStart < 3) && (digits(s, pos, 1) >= 0)) pos++;
+            if (pos == fractionStart) return ILocation.NO_TIME;
+        }
 
+        // optional timezone Z|[\+-]\d{2}(?::?\d{2})?Z?
+        long offsetMillis = 0;
+        if (pos == end) {
+            // no timezone: local time
+            return toDate(year, month, day, hour, minute, second, 0, TimeZone.getDefault()).getTime();
+        }
+        char c = s.charAt(pos++);
+        if ((c == '+') || (c == '-')) {
+            int hours = digits(s, pos, Math.min(2, end - pos));
+            if ((hours < 0) || (end - pos < 2)) return ILocation.NO_TIME;
+            pos += 2;
+            int minutes = 0;
+            if ((pos < end) && (s.charAt(pos) == ':')) pos++;
+            if ((pos < end) && (s.charAt(pos) != 'Z')) {
+                minutes = (end - pos >= 2) ? digits(s, pos, 2) : -1;
+                if (minutes < 0) return ILocation.NO_TIME;
+                pos += 2;
+            } else if (s.charAt(pos - 1) == ':') {
+                return ILocation.NO_TIME;
+            }
+            boolean validTimeZone = true;
+            if ((pos < end) && (s.charAt(pos) == 'Z')) {
+                // "+01:00Z" is not a valid TimeZone id
+                validTimeZone = false;
+                pos++;
+            }
+            if ((hours <= 23) && (minutes <= 59) && validTimeZone) {
+                offsetMillis = (hours * 60L + minutes) * 60000;
+                if (c == '-') offsetMillis = -offsetMillis;
+            }
+        } else if (c != 'Z') {
+            return ILocation.NO_TIME;
+        }
+        if (pos != end) return ILocation.NO_TIME;
+
+        if (year < MIN_GREGORIAN_YEAR) {
+            return toDate(year, month, day, hour, minute, second, 0, TimeZone.getTimeZone("GMT")).getTime() - offsetMillis;
+        }
+
+        // month and day may be out of range (i.e. 00 or 13) and are rolled over like lenient Calendar
+        long monthIndex = month - 1;
+        long epochDay = epochDay(year + floorDiv(monthIndex, 12), (int) (monthIndex - floorDiv(monthIndex, 12) * 12) + 1) + day - 1;
+        return epochDay * MILLIS_PER_DAY + ((hour * 60L + minute) * 60 + second) * 1000 - offsetMillis;
+    }
+
+    /** Days since 1970-01-01 of the 1st of month in the proleptic gregorian calendar.
+     *
+     * Converts with integer arithmetic (era of 400 years). */
+    private static long epochDay(long year, int month) {
+        long y = (month <= 2) ? year - 1 : year;
+        long era = floorDiv(y, 400);
+        long yearOfEra = y - era * 400;                                         // [0, 399]
+        long dayOfYear = (153 * ((month > 2) ? month - 3 : month + 9) + 2) / 5; // [0, 365] starting at 1st of march
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    /** Value of count ascii digits in s at pos or -1 if not digits */
+    private static int digits(CharSequence s, int pos, int count) {
+        int result = 0;
+        for (int i = pos; i < pos + count; i++) {
+            char c = s.charAt(i);
+            if ((c < '0') || (c > '9')) return -1;
+            result = result * 10 + (c - '0');
+        }
+        return (count > 0) ? result : -1;
+    }
+
+    private static long floorDiv(long value, long divisor) {
+        long result = value / divisor;
+        if (((value % divisor) != 0) && ((value < 0) != (divisor < 0))) result--;
+        return result;
     }
 
     /** Convert params year, month, ... to a {@link Date} */
@@ -109,50 +186,4 @@ public class IsoDateTimeParser {
         cal.setTimeZone(timeZone);
         return new Date(cal.getTimeInMillis());
     }
-
-    /** Get (optional) milliseconds from dateFragments */
-    private static int getFraction(String[] dateFragments) {
-        String inFraction = get(dateFragments, FRACTIONAL_SECONDS, null);
-        int millis = 0;
-        if (inFraction != null)
-        {
-            try {
-                millis = Integer.parseInt((inFraction+"000").substring(3));
-            }
-            catch (NumberFormatException nfe) {} // ignore errors, millis stay at 0
-        }
-        return millis;
-    }
-
-    /** Returns values[paramNo] or notFoundValue if result is empty or if values is too short */
-    private static String get(String[] values, int paramNo, String notFoundValue) {
-        if (paramNo >= values.length) return notFoundValue;
-        String strValue = values[paramNo];
-        return ((strValue != null) && (strValue.length() > 0)) ? strValue : null;
-    }
-
-    /** Returns int of values[paramNo] or notFoundValue if result is empty or if values is too short */
-    private static int get(String[] values, int paramNo, int notFoundValue) throws NumberFormatException {
-        String strValue = get(values, paramNo, null);
-        if (strValue != null) {
-            return Integer.parseInt(strValue);
-        }
-        return notFoundValue;
-    }
-
-    /** Get non mandatory {@link TimeZone} from dateFragments */
-    private static TimeZone getTimeZone(String[] values) {
-        String inTimezone = get(values, TIMEZONE, null);
-        if (inTimezone == null) {
-            // No timezone : use local
-            return TimeZone.getDefault();
-        } else if ("Z".equals(inTimezone)) {
-            // timezone "Z" : use zulu
-            return TimeZone.getTimeZone("GMT");
-        } else {
-            // Timezone specified, pass to calendar
-            return TimeZone.getTimeZone("GMT" + inTimezone);
-        }
-
-    }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.util;
+
+import java.util.Arrays;
+
+/**
+ * A bounded pool of {@link String}-s that returns the same instance for equal char sequences.
+ *
+ * Lookup is done on a char range so there is no temporary {@link String} if the value is
+ * already in the pool. If the pool is full new values are returned but not added.
+ *
+ * ```java
+ * StringPool symbols = new StringPool(1000);
+ * String symbol = symbols.get(buffer, start, end);
+ * ```
+ *
+ * Instances are not thread safe. Use one pool per loader and field.
+ */
+public class StringPool {
+    /** Estimated size of a {@link String} object without its chars: object header, fields and char[] header */
+    public static final int STRING_OVERHEAD_BYTES = 40;
+
+    /** Open addressing hash table. Capacity is a power of 2 and at least twice maxSize. */
+    private final String[] table;
+    private final int maxSize;
+    private int size = 0;
+
+    private long hitCount = 0;
+    private long savedBytes = 0;
+
+    /** Create a pool that holds up to maxSize different strings. */
+    public StringPool(int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        int capacity = Integer.highestOneBit(maxSize) << 2;
+        this.table = new String[capacity];
+        this.maxSize = maxSize;
+    }
+
+    /** Returns the pooled string with the content of src[start,end). Null if src is null. */
+    public String get(CharSequence src, int start, int end) {
+        if (src == null) return null;
+        int mask = table.length - 1;
+        int index = hash(src, start, end) & mask;
+        String candidate;
+        while ((candidate = table[index]) != null) {
+            if (contentEquals(candidate, src, start, end)) {
+                onHit(candidate);
+                return candidate;
+            }
+            index = (index + 1) & mask;
+        }
+
+        String result = src.subSequence(start, end).toString();
+        if (size < maxSize) {
+            table[index] = result;
+            size++;
+        }
+        return result;
+    }
+
+    /** Returns the pooled string that is equal to value. value itself if it is not pooled yet. Null for null. */
+    public String get(String value) {
+        if (value == null) return null;
+        int mask = table.length - 1;
+        int index = spread(value.hashCode()) & mask;
+        String candidate;
+        while ((candidate = table[index]) != null) {
+            if (candidate.equals(value)) {
+                if (candidate != value) onHit(candidate);
+                return candidate;
+            }
+            index = (index + 1) & mask;
+        }
+
+        if (size < maxSize) {
+            table[index] = value;
+            size++;
+        }
+        return value;
+    }
+
+    /** Number of lookups that returned an already pooled string. */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /** Estimated number of heap bytes that are saved because pooled strings were shared. */
+    public long getSavedBytes() {
+        return savedBytes;
+    }
+
+    /** Number of different strings in the pool. */
+    public int size() {
+        return size;
+    }
+
+    /** Removes all strings and resets the counters. */
+    public void clear() {
+        Arrays.fill(table, null);
+        size = 0;
+        hitCount = 0;
+        savedBytes = 0;
+    }
+
+    private void onHit(String pooled) {
+        hitCount++;
+        savedBytes += STRING_OVERHEAD_BYTES + 2L * pooled.length();
+    }
+
+    /** Same as {@link String#hashCode()} of src[start,end) with additional bit spreading. */
+    private static int hash(CharSequence src, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + src.charAt(i);
+        }
+        return spread(h);
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean contentEquals(String candidate, CharSequence src, int start, int end) {
+        int length = end - start;
+        if (candidate.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (candidate.charAt(i) != src.charAt(start + i)) return false;
+        }
+        return true;
+    }
+}
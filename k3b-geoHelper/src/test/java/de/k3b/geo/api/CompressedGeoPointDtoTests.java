@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.api;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+import java.io.StringReader;
+import java.util.List;
+
+import de.k3b.geo.io.gpx.GpxReader;
+
+/**
+ * Checks {@link CompressedGeoPointDto}.
+ */
+public class CompressedGeoPointDtoTests {
+    private static String createHtml(int paragraphs) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < paragraphs; i++) {
+            result.append("<p>Paragraph ").append(i).append(" of the description with umlaut \u00e4\u00f6\u00fc</p>");
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void shouldCompressLongDescription() throws Exception {
+        String html = createHtml(100);
+        CompressedGeoPointDto sut = new CompressedGeoPointDto();
+        sut.setDescription(html);
+
+        Assert.assertTrue(sut.isDescriptionCompressed());
+        Assert.assertEquals(html, sut.getDescription());
+
+        // more points than the per thread cache can hold
+        CompressedGeoPointDto[] points = new CompressedGeoPointDto[20];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = (CompressedGeoPointDto) new CompressedGeoPointDto().setDescription(createHtml(i + 10));
+        }
+        for (int i = 0; i < points.length; i++) {
+            Assert.assertEquals(createHtml(i + 10), points[i].getDescription());
+        }
+        Assert.assertEquals(html, sut.clone().getDescription());
+        Assert.assertNull(sut.clear().getDescription());
+    }
+
+    @Test
+    public void shouldNotCompressShortDescription() throws Exception {
+        CompressedGeoPointDto sut = new CompressedGeoPointDto();
+        sut.setDescription("short");
+
+        Assert.assertFalse(sut.isDescriptionCompressed());
+        Assert.assertEquals("short", sut.getDescription());
+    }
+
+    @Test
+    public void shouldBeUsableAsReaderFactory() throws Exception {
+        String html = createHtml(20);
+        String xml = "<gpx><wpt lat='53' lon='10'><desc>" + html.replace("<", "&lt;") + "</desc></wpt>"
+                + "<wpt lat='54' lon='11'><name>second</name></wpt></gpx>";
+        List<IGeoPointInfo> points = new GpxReader<IGeoPointInfo>(new CompressedGeoPointDto())
+                .getTracks(new InputSource(new StringReader(xml)));
+
+        Assert.assertEquals(2, points.size());
+        Assert.assertTrue(((CompressedGeoPointDto) points.get(0)).isDescriptionCompressed());
+        Assert.assertEquals(html, points.get(0).getDescription());
+        Assert.assertNull(points.get(1).getDescription());
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.api;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Date;
+
+/**
+ * Checks that the {@link Date} and the millisecs time of {@link GeoPointDto} stay in sync.
+ */
+public class GeoPointDtoTests {
+    private static final long TIME = 1423555485000L;
+
+    @Test
+    public void shouldCreateDateOnDemand() throws Exception {
+        GeoPointDto sut = new GeoPointDto().setTimeOfMeasurementMillis(TIME);
+
+        Assert.assertEquals(TIME, sut.getTimeOfMeasurementMillis());
+        Assert.assertEquals(new Date(TIME), sut.getTimeOfMeasurement());
+        Assert.assertSame(sut.getTimeOfMeasurement(), sut.getTimeOfMeasurement());
+
+        sut.setTimeOfMeasurementMillis(GeoPointDto.NO_TIME);
+        Assert.assertNull(sut.getTimeOfMeasurement());
+    }
+
+    @Test
+    public void shouldFollowChangedDate() throws Exception {
+        GeoPointDto sut = new GeoPointDto().setTimeOfMeasurement(new Date(TIME));
+        GeoPointDto copy = sut.clone();
+
+        sut.getTimeOfMeasurement().setTime(0);
+
+        Assert.assertEquals(0, sut.getTimeOfMeasurementMillis());
+        Assert.assertEquals(TIME, copy.getTimeOfMeasurementMillis());
+        Assert.assertEquals(GeoPointDto.NO_TIME, sut.clear().getTimeOfMeasurementMillis());
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.api;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import de.k3b.geo.io.GeoFileRepository;
+import de.k3b.geo.io.GeoUri;
+import de.k3b.geo.io.gpx.GpxReader;
+
+/**
+ * Checks the columnar {@link GeoPointStore}.
+ */
+public class GeoPointStoreTests {
+    @Test
+    public void shouldBehaveLikeList() throws Exception {
+        GeoPointStore sut = new GeoPointStore(1);
+        List<IGeoPointInfo> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            GeoPointDto point = new GeoPointDto(i, -i, i % 3).setZoomMin(i % 5).setTimeOfMeasurementMillis(i * 1000L);
+            if ((i % 10) == 0) point.setName("name" + i).setSymbol("symbol");
+            expected.add(point);
+            sut.add(point);
+        }
+        expected.remove(7);
+        sut.remove(7);
+        expected.add(3, new GeoPointDto(1, 2, "inserted", null));
+        sut.add(3, new GeoPointDto(1, 2, "inserted", null));
+        sut.trimToSize();
+
+        assertEquals(expected, sut);
+        Assert.assertEquals("name20", sut.set(20, new GeoPointDto(3, 4, "replaced", null)).getName());
+        Assert.assertEquals("replaced", sut.get(20).getName());
+        Assert.assertEquals(3.0, sut.get(20).clone().getLatitude(), 0.0);
+    }
+
+    @Test
+    public void shouldSortAndReverseWithCollections() throws Exception {
+        GeoPointStore sut = new GeoPointStore();
+        List<IGeoPointInfo> expected = new ArrayList<>();
+        double[] latitudes = {3, 1, 4, 1.5, 9, 2, 6};
+        for (int i = 0; i < latitudes.length; i++) {
+            GeoPointDto point = new GeoPointDto(latitudes[i], i, "name" + i, null);
+            expected.add(point);
+            sut.add(point);
+        }
+        Comparator<IGeoPointInfo> byLatitude = new Comparator<IGeoPointInfo>() {
+            @Override
+            public int compare(IGeoPointInfo lhs, IGeoPointInfo rhs) {
+                return Double.compare(lhs.getLatitude(), rhs.getLatitude());
+            }
+        };
+
+        Collections.sort(expected, byLatitude);
+        Collections.sort(sut, byLatitude);
+        assertEquals(expected, sut);
+
+        Collections.reverse(expected);
+        Collections.reverse(sut);
+        assertEquals(expected, sut);
+    }
+
+    @Test
+    public void shouldCopyOwnViewBeforeMovingValues() throws Exception {
+        GeoPointStore sut = new GeoPointStore();
+        for (int i = 0; i < 4; i++) {
+            sut.add(new GeoPointDto(i, i, "name" + i, null));
+        }
+
+        sut.add(0, sut.get(2));
+        Assert.assertEquals("name2", sut.getName(0));
+        Assert.assertEquals("name2", sut.getName(3));
+
+        sut.set(1, sut.get(4));
+        Assert.assertEquals("name3", sut.getName(1));
+        Assert.assertEquals(5, sut.size());
+    }
+
+    @Test
+    public void shouldIterateWithCursor() throws Exception {
+        GeoPointStore sut = new GeoPointStore();
+        sut.add(new GeoPointDto(1, 2, null, null));
+        sut.add(new GeoPointDto(3, 4, "second", null));
+
+        GeoPointStore.Cursor cursor = sut.cursor();
+        double sum = 0;
+        while (cursor.next()) {
+            sum += cursor.getLatitude() + cursor.getLongitude();
+        }
+        Assert.assertEquals(10.0, sum, 0.0);
+        Assert.assertEquals("second", cursor.moveTo(1).toString());
+        Assert.assertNull(cursor.moveTo(0).getName());
+    }
+
+    @Test
+    public void shouldBeTargetOfLoaders() throws Exception {
+        GeoPointStore fromGpx = new GeoPointStore();
+        new GpxReader<IGeoPointInfo>().getTracks(new InputSource(new StringReader(
+                "<gpx><trk><trkseg><trkpt lat='53' lon='10'><time>2014-12-19T21:13:21Z</time></trkpt>"
+                        + "<trkpt lat='54' lon='11'/></trkseg></trk></gpx>")), fromGpx);
+
+        Assert.assertEquals(2, fromGpx.size());
+        Assert.assertEquals(1419023601000L, fromGpx.getTime(0));
+        Assert.assertEquals(54.0, fromGpx.getLatitude(1), 0.0);
+
+        GeoFileRepository<IGeoPointInfo> repository = new GeoFileRepository<IGeoPointInfo>(null);
+        GeoPointStore fromText = new GeoPointStore();
+        repository.load(fromText, new StringReader("geo:1,2?id=1\ngeo:3,4?q=(name)&id=2"));
+
+        Assert.assertEquals(2, fromText.size());
+        Assert.assertEquals("name", fromText.getName(1));
+    }
+
+    private static void assertEquals(List<IGeoPointInfo> expected, List<IGeoPointInfo> actual) {
+        GeoUri formatter = new GeoUri(GeoUri.OPT_DEFAULT);
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(formatter.toUriString(expected.get(i)), formatter.toUriString(actual.get(i)));
+            Assert.assertEquals(expected.get(i).getTimeOfMeasurementMillis(), actual.get(i).getTimeOfMeasurementMillis());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.api;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import de.k3b.geo.io.GeoFileRepository;
+
+/**
+ * Checks the immutable {@link GeoPoint}.
+ */
+public class GeoPointTests {
+    private static GeoPointDto createDto() {
+        return new GeoPointDto(12.3456789, -56.7890123, "name", "link", "icon",
+                "id", "description", 5, 7, null).setTimeOfMeasurementMillis(1423555485000L);
+    }
+
+    @Test
+    public void shouldConvertFromAndToDto() throws Exception {
+        GeoPointDto dto = createDto();
+        GeoPoint sut = GeoPoint.of(dto);
+
+        Assert.assertEquals(123456789, sut.getLatitudeE7());
+        Assert.assertEquals(-567890123, sut.getLongitudeE7());
+
+        GeoPointDto copy = sut.toDto();
+        Assert.assertEquals(dto.getLatitude(), copy.getLatitude(), 0.0);
+        Assert.assertEquals(dto.getLongitude(), copy.getLongitude(), 0.0);
+        Assert.assertEquals(7, copy.getZoomMax());
+        Assert.assertEquals(dto.getTimeOfMeasurement(), copy.getTimeOfMeasurement());
+        Assert.assertEquals("description", copy.getDescription());
+        Assert.assertSame(sut, GeoPoint.of(sut));
+    }
+
+    @Test
+    public void shouldKeepNotSetValues() throws Exception {
+        GeoPoint sut = GeoPoint.of(new GeoPointDto());
+
+        Assert.assertEquals(IGeoPointInfo.NO_LAT_LON, sut.getLatitude(), 0.0);
+        Assert.assertEquals(IGeoPointInfo.NO_ZOOM, sut.getZoomMin());
+        Assert.assertEquals(IGeoPointInfo.NO_TIME, sut.getTimeOfMeasurementMillis());
+        Assert.assertNull(sut.getTimeOfMeasurement());
+    }
+
+    @Test
+    public void shouldBeUsableAsHashKey() throws Exception {
+        Set<GeoPoint> points = new HashSet<>();
+        points.add(GeoPoint.of(createDto()));
+        points.add(GeoPoint.of(createDto()));
+        points.add(GeoPoint.of(createDto()).toBuilder().setZoomMin(6).build());
+
+        Assert.assertEquals(2, points.size());
+    }
+
+    @Test
+    public void shouldHaveValueEqualityOnlyAmongGeoPoints() throws Exception {
+        GeoPointDto dto = createDto();
+        GeoPoint sut = GeoPoint.of(dto);
+
+        Assert.assertTrue(sut.equals(GeoPoint.of(createDto())));
+        Assert.assertFalse(sut.equals(dto));
+
+        // unchanged GeoPointDto behaviour: same id
+        Assert.assertTrue(dto.equals(sut));
+        Assert.assertTrue(dto.equals(sut.toDto()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnrepresentableLatLon() throws Exception {
+        new GeoPoint.Builder().setLatitude(Double.NaN);
+    }
+
+    @Test
+    public void shouldLoadFromRepository() throws Exception {
+        GeoFileRepository<GeoPoint> repository = new GeoFileRepository<GeoPoint>(null) {
+            @Override
+            protected GeoPoint createItem(GeoPointDto geo) {
+                return GeoPoint.of(geo);
+            }
+
+            @Override
+            protected boolean isValid(IGeoPointInfo geo) {
+                return true;
+            }
+        };
+        List<GeoPoint> result = new ArrayList<>();
+        repository.load(result, new StringReader("geo:52.1,9.2?q=(first)\ngeo:1,2"));
+
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals(521000000, result.get(0).getLatitudeE7());
+        Assert.assertEquals("first", result.get(0).getName());
+    }
+}
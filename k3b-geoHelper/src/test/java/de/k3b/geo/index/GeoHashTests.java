@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.index;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Checks {@link GeoHash} against well known geohashes.
+ */
+public class GeoHashTests {
+    @Test
+    public void shouldEncodeKnownHashes() throws Exception {
+        Assert.assertEquals("u4pruydqqvj", GeoHash.toString(GeoHash.encode(57.64911, 10.40744, 11), 11));
+        Assert.assertEquals("ezs42", GeoHash.toString(GeoHash.encode(42.605, -5.603, 5), 5));
+        Assert.assertEquals("s", GeoHash.toString(GeoHash.encode(0.1, 0.1, 1), 1));
+        Assert.assertEquals("zzzzzzzzzzzz", GeoHash.toString(GeoHash.encode(90, 180, 12), 12));
+    }
+
+    @Test
+    public void shouldDecodeToCellCenter() throws Exception {
+        long hash = GeoHash.fromString("ezs42");
+        Assert.assertEquals(42.60498046875, GeoHash.decodeLatitude(hash, 5), 1e-12);
+        Assert.assertEquals(-5.60302734375, GeoHash.decodeLongitude(hash, 5), 1e-12);
+    }
+
+    @Test
+    public void shouldRoundTrip() throws Exception {
+        Random random = new Random(4711);
+        for (int i = 0; i < 1000; i++) {
+            int precision = 1 + random.nextInt(GeoHash.MAX_PRECISION);
+            double latitude = random.nextDouble() * 180 - 90;
+            double longitude = random.nextDouble() * 360 - 180;
+            long hash = GeoHash.encode(latitude, longitude, precision);
+
+            Assert.assertEquals(hash, GeoHash.fromString(GeoHash.toString(hash, precision)));
+            Assert.assertEquals(hash, GeoHash.encode(GeoHash.decodeLatitude(hash, precision),
+                    GeoHash.decodeLongitude(hash, precision), precision));
+            Assert.assertEquals(GeoHash.encode(latitude, longitude, 1), GeoHash.getParent(hash, precision, 1));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidChar() throws Exception {
+        GeoHash.fromString("ezs4a");
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.index;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import de.k3b.geo.api.GeoPointDto;
+import de.k3b.geo.api.IGeoPointInfo;
+
+/**
+ * Checks {@link GeoPrefixIndex} against a linear scan.
+ */
+public class GeoPrefixIndexTests {
+    @Test
+    public void shouldGetPointsOfTile() throws Exception {
+        GeoPointDto hannover = new GeoPointDto(52.37, 9.73, 0);
+        GeoPointDto berlin = new GeoPointDto(52.52, 13.40, 0);
+        GeoPointDto sydney = new GeoPointDto(-33.87, 151.21, 0);
+        List<GeoPointDto> points = new ArrayList<>();
+        points.add(sydney);
+        points.add(berlin);
+        points.add(new GeoPointDto());
+        points.add(hannover);
+        GeoPrefixIndex<GeoPointDto> sut = new GeoPrefixIndex<>(points);
+
+        Assert.assertEquals(3, sut.size());
+        Assert.assertEquals(3, sut.getTile(0, 0, new ArrayList<GeoPointDto>()).size());
+        List<GeoPointDto> germany = sut.getTile(QuadKey.encode(hannover, 4), 4, new ArrayList<GeoPointDto>());
+        Assert.assertEquals(2, germany.size());
+        Assert.assertFalse(germany.contains(sydney));
+        Assert.assertEquals(1, sut.getTile(QuadKey.encode(hannover, 8), 8, new ArrayList<GeoPointDto>()).size());
+    }
+
+    @Test
+    public void shouldQueryViewportLikeScan() throws Exception {
+        Random random = new Random(4711);
+        List<GeoPointDto> points = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            GeoPointDto point = new GeoPointDto(random.nextDouble() * 20 + 40, random.nextDouble() * 30 - 10, 0)
+                    .setId("" + i);
+            if ((i % 3) == 0) point.setZoomMin(random.nextInt(18));
+            if ((i % 5) == 0) point.setZoomMax(random.nextInt(18));
+            points.add(point);
+        }
+        GeoPrefixIndex<GeoPointDto> sut = new GeoPrefixIndex<>(points);
+
+        for (int query = 0; query < 200; query++) {
+            int zoom = random.nextInt(18);
+            double size = 360.0 / (1 << zoom) * (1 + random.nextInt(4));
+            double minLatitude = random.nextDouble() * 20 + 40 - size / 2;
+            double minLongitude = random.nextDouble() * 30 - 10 - size / 2;
+            double maxLatitude = minLatitude + size;
+            double maxLongitude = minLongitude + size;
+
+            HashSet<IGeoPointInfo> expected = new HashSet<>();
+            for (GeoPointDto point : points) {
+                if ((minLatitude <= point.getLatitude()) && (point.getLatitude() <= maxLatitude)
+                        && (minLongitude <= point.getLongitude()) && (point.getLongitude() <= maxLongitude)
+                        && GeoPrefixIndex.isVisible(point, zoom)) {
+                    expected.add(point);
+                }
+            }
+            List<GeoPointDto> actual = sut.query(minLatitude, minLongitude, maxLatitude, maxLongitude, zoom,
+                    new ArrayList<GeoPointDto>());
+
+            Assert.assertEquals("query " + query, expected.size(), actual.size());
+            Assert.assertEquals("query " + query, expected, new HashSet<IGeoPointInfo>(actual));
+        }
+    }
+
+    @Test
+    public void shouldQueryAcrossAntimeridian() throws Exception {
+        GeoPointDto fiji = new GeoPointDto(-17.7, 178.0, 0);
+        GeoPointDto samoa = new GeoPointDto(-13.8, -172.1, 0);
+        GeoPointDto hawaii = new GeoPointDto(21.3, -157.8, 0);
+        List<GeoPointDto> points = new ArrayList<>();
+        points.add(fiji);
+        points.add(samoa);
+        points.add(hawaii);
+        GeoPrefixIndex<GeoPointDto> sut = new GeoPrefixIndex<>(points);
+
+        List<GeoPointDto> actual = sut.query(-30, 170, 0, -170, 5, new ArrayList<GeoPointDto>());
+
+        Assert.assertEquals(2, actual.size());
+        Assert.assertTrue(actual.contains(fiji));
+        Assert.assertTrue(actual.contains(samoa));
+    }
+
+    @Test
+    public void shouldQueryWithSwappedLatitudes() throws Exception {
+        GeoPointDto hannover = new GeoPointDto(52.37, 9.73, 0);
+        List<GeoPointDto> points = new ArrayList<>();
+        points.add(hannover);
+        GeoPrefixIndex<GeoPointDto> sut = new GeoPrefixIndex<>(points);
+
+        List<GeoPointDto> actual = sut.query(53, 9, 52, 10, 10, new ArrayList<GeoPointDto>());
+
+        Assert.assertEquals(1, actual.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNotANumber() throws Exception {
+        new GeoPrefixIndex<GeoPointDto>(new ArrayList<GeoPointDto>())
+                .query(Double.NaN, 9, 52, 10, 10, new ArrayList<GeoPointDto>());
+    }
+}
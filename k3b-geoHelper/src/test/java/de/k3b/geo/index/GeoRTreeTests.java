@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.index;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import de.k3b.geo.api.GeoPointDto;
+import de.k3b.geo.api.IGeoPointInfo;
+
+/**
+ * Checks {@link GeoRTree} against a linear scan.
+ */
+public class GeoRTreeTests {
+    @Test
+    public void shouldFindLikeScanAfterBulkLoad() throws Exception {
+        List<GeoPointDto> points = createPoints(new Random(4711), 2000);
+        GeoRTree<GeoPointDto> sut = new GeoRTree<>(points, 8);
+
+        Assert.assertEquals(2000, sut.size());
+        assertQueriesLikeScan(new Random(1), points, sut);
+    }
+
+    @Test
+    public void shouldFindLikeScanAfterInsertAndRemove() throws Exception {
+        Random random = new Random(42);
+        List<GeoPointDto> points = createPoints(random, 1000);
+        GeoRTree<GeoPointDto> sut = new GeoRTree<>(points.subList(0, 300), 4);
+        for (GeoPointDto point : points.subList(300, points.size())) {
+            Assert.assertTrue(sut.insert(point));
+        }
+        for (int i = 0; i < 600; i++) {
+            GeoPointDto removed = points.remove(random.nextInt(points.size()));
+            Assert.assertTrue(sut.remove(removed));
+            Assert.assertFalse(sut.remove(removed));
+        }
+
+        Assert.assertEquals(points.size(), sut.size());
+        assertQueriesLikeScan(random, points, sut);
+    }
+
+    @Test
+    public void shouldQueryGeoAreaUri() throws Exception {
+        GeoPointDto inside = new GeoPointDto(52.1, 9.2, 0);
+        GeoPointDto outside = new GeoPointDto(52.1, 9.4, 0);
+        GeoRTree<GeoPointDto> sut = new GeoRTree<>();
+        sut.insert(inside);
+        sut.insert(outside);
+        Assert.assertFalse(sut.insert(new GeoPointDto()));
+
+        List<GeoPointDto> result = sut.query("geoarea:52.2,9.3,52.0,9.1", new ArrayList<GeoPointDto>());
+        Assert.assertEquals(1, result.size());
+        Assert.assertSame(inside, result.get(0));
+
+        // latitudes can be in any order
+        Assert.assertEquals(result, sut.query(new GeoPointDto(52.0, 9.3, 0), new GeoPointDto(52.2, 9.1, 0),
+                new ArrayList<GeoPointDto>()));
+    }
+
+    @Test
+    public void shouldQueryGeoAreaAcrossAntimeridian() throws Exception {
+        GeoPointDto east = new GeoPointDto(10, 179.5, 0);
+        GeoPointDto west = new GeoPointDto(10, -179.5, 0);
+        GeoPointDto greenwich = new GeoPointDto(10, 0, 0);
+        GeoRTree<GeoPointDto> sut = new GeoRTree<>();
+        sut.insert(east);
+        sut.insert(west);
+        sut.insert(greenwich);
+
+        List<GeoPointDto> result = sut.query("geoarea:20,-179,0,179", new ArrayList<GeoPointDto>());
+
+        Assert.assertEquals(2, result.size());
+        Assert.assertTrue(result.contains(east));
+        Assert.assertTrue(result.contains(west));
+        Assert.assertEquals(1, sut.query("geoarea:20,179,0,-179", new ArrayList<GeoPointDto>()).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNonAreaUri() throws Exception {
+        new GeoRTree<GeoPointDto>().query("geo:52.1,9.2", new ArrayList<GeoPointDto>());
+    }
+
+    private static List<GeoPointDto> createPoints(Random random, int count) {
+        List<GeoPointDto> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // some points share their position
+            double latitude = ((i % 10) == 0) ? 10 : random.nextDouble() * 180 - 90;
+            double longitude = ((i % 10) == 0) ? 20 : random.nextDouble() * 360 - 180;
+            result.add(new GeoPointDto(latitude, longitude, 0).setId("" + i));
+        }
+        return result;
+    }
+
+    private static void assertQueriesLikeScan(Random random, List<GeoPointDto> points, GeoRTree<GeoPointDto> sut) {
+        for (int query = 0; query < 100; query++) {
+            double minLatitude = random.nextDouble() * 180 - 90;
+            double minLongitude = random.nextDouble() * 360 - 180;
+            double maxLatitude = minLatitude + random.nextDouble() * 60;
+            double maxLongitude = minLongitude + random.nextDouble() * 120;
+
+            HashSet<IGeoPointInfo> expected = new HashSet<>();
+            for (GeoPointDto point : points) {
+                if ((minLatitude <= point.getLatitude()) && (point.getLatitude() <= maxLatitude)
+                        && (minLongitude <= point.getLongitude()) && (point.getLongitude() <= maxLongitude)) {
+                    expected.add(point);
+                }
+            }
+            List<GeoPointDto> actual = sut.query(minLatitude, minLongitude, maxLatitude, maxLongitude,
+                    new ArrayList<GeoPointDto>());
+
+            Assert.assertEquals("query " + query, expected.size(), actual.size());
+            Assert.assertEquals("query " + query, expected, new HashSet<IGeoPointInfo>(actual));
+        }
+        // whole world
+        Assert.assertEquals(points.size(), sut.query(-90, -180, 90, 180, new ArrayList<GeoPointDto>()).size());
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.index;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import de.k3b.geo.api.GeoPointDto;
+import de.k3b.geo.api.IGeoPointInfo;
+
+/**
+ * Checks {@link GeoZoomIndex} against a linear scan.
+ */
+public class GeoZoomIndexTests {
+    @Test
+    public void shouldFindVisibleLikeScanAfterAddAndRemove() throws Exception {
+        Random random = new Random(4711);
+        List<GeoPointDto> points = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            GeoPointDto point = new GeoPointDto(random.nextDouble() * 20 + 40, random.nextDouble() * 30 - 10, 0)
+                    .setId("" + i);
+            if ((i % 3) == 0) point.setZoomMin(random.nextInt(6) * 3);
+            if ((i % 4) == 0) point.setZoomMax(random.nextInt(6) * 3 + 2);
+            points.add(point);
+        }
+        GeoZoomIndex<GeoPointDto> sut = new GeoZoomIndex<>(points.subList(0, 1000), 4);
+        for (GeoPointDto point : points.subList(1000, points.size())) {
+            Assert.assertTrue(sut.add(point));
+        }
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(sut.remove(points.remove(random.nextInt(points.size()))));
+        }
+        Assert.assertEquals(points.size(), sut.size());
+
+        for (int query = 0; query < 100; query++) {
+            int zoom = random.nextInt(20);
+            double minLatitude = random.nextDouble() * 20 + 38;
+            double minLongitude = random.nextDouble() * 30 - 12;
+            double maxLatitude = minLatitude + random.nextDouble() * 5;
+            double maxLongitude = minLongitude + random.nextDouble() * 5;
+
+            HashSet<IGeoPointInfo> expected = new HashSet<>();
+            for (GeoPointDto point : points) {
+                if ((minLatitude <= point.getLatitude()) && (point.getLatitude() <= maxLatitude)
+                        && (minLongitude <= point.getLongitude()) && (point.getLongitude() <= maxLongitude)
+                        && GeoPrefixIndex.isVisible(point, zoom)) {
+                    expected.add(point);
+                }
+            }
+            List<GeoPointDto> actual = sut.query(minLatitude, minLongitude, maxLatitude, maxLongitude, zoom,
+                    new ArrayList<GeoPointDto>());
+
+            Assert.assertEquals("query " + query, expected.size(), actual.size());
+            Assert.assertEquals("query " + query, expected, new HashSet<IGeoPointInfo>(actual));
+        }
+    }
+
+    @Test
+    public void shouldDropEmptyBuckets() throws Exception {
+        GeoPointDto always = new GeoPointDto(1, 2, 0);
+        GeoPointDto near = new GeoPointDto(1, 2, 0).setZoomMin(10);
+        GeoZoomIndex<GeoPointDto> sut = new GeoZoomIndex<>();
+        sut.add(always);
+        sut.add(near);
+        Assert.assertFalse(sut.add(new GeoPointDto()));
+
+        Assert.assertEquals(2, sut.getBucketCount());
+        Assert.assertEquals(1, sut.query(5, new ArrayList<GeoPointDto>()).size());
+        Assert.assertEquals(2, sut.query(12, new ArrayList<GeoPointDto>()).size());
+
+        Assert.assertTrue(sut.remove(near));
+        Assert.assertFalse(sut.remove(near));
+        Assert.assertEquals(1, sut.getBucketCount());
+        Assert.assertEquals(1, sut.size());
+    }
+
+    @Test
+    public void shouldQueryAcrossAntimeridianLikePrefixIndex() throws Exception {
+        List<GeoPointDto> points = new ArrayList<>();
+        points.add(new GeoPointDto(10, 179.5, 0));
+        points.add(new GeoPointDto(10, -179.5, 0).setZoomMin(8));
+        points.add(new GeoPointDto(10, 0, 0));
+        GeoZoomIndex<GeoPointDto> sut = new GeoZoomIndex<>();
+        for (GeoPointDto point : points) {
+            sut.add(point);
+        }
+        GeoPrefixIndex<GeoPointDto> prefixIndex = new GeoPrefixIndex<>(points);
+
+        for (int zoom = 5; zoom <= 10; zoom += 5) {
+            List<GeoPointDto> expected = prefixIndex.query(0, 179, 20, -179, zoom, new ArrayList<GeoPointDto>());
+            List<GeoPointDto> actual = sut.query(0, 179, 20, -179, zoom, new ArrayList<GeoPointDto>());
+
+            Assert.assertEquals("zoom " + zoom, (zoom < 8) ? 1 : 2, actual.size());
+            Assert.assertEquals("zoom " + zoom, new HashSet<IGeoPointInfo>(expected), new HashSet<IGeoPointInfo>(actual));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.index;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Checks {@link QuadKey} against the bing tile system.
+ */
+public class QuadKeyTests {
+    @Test
+    public void shouldEncodeTiles() throws Exception {
+        Assert.assertEquals("213", QuadKey.toString(QuadKey.fromTile(3, 5, 3), 3));
+        Assert.assertEquals("02", QuadKey.toString(QuadKey.encode(47.6, -122.3, 2), 2));
+        Assert.assertEquals("", QuadKey.toString(QuadKey.encode(47.6, -122.3, 0), 0));
+        Assert.assertEquals("3333", QuadKey.toString(QuadKey.encode(-90, 180, 4), 4));
+    }
+
+    @Test
+    public void shouldDecodeToTileCenter() throws Exception {
+        long key = QuadKey.fromString("213");
+        Assert.assertEquals(3, QuadKey.getTileX(key));
+        Assert.assertEquals(5, QuadKey.getTileY(key));
+        Assert.assertEquals(-22.5, QuadKey.decodeLongitude(key, 3), 1e-12);
+        Assert.assertEquals(0.0, QuadKey.tileToLatitude(4, 3), 1e-12);
+        Assert.assertEquals(QuadKey.MAX_LATITUDE, QuadKey.tileToLatitude(0, 3), 1e-8);
+    }
+
+    @Test
+    public void shouldRoundTrip() throws Exception {
+        Random random = new Random(4711);
+        for (int i = 0; i < 1000; i++) {
+            int level = 1 + random.nextInt(QuadKey.MAX_LEVEL);
+            double latitude = random.nextDouble() * 170 - 85;
+            double longitude = random.nextDouble() * 360 - 180;
+            long key = QuadKey.encode(latitude, longitude, level);
+
+            Assert.assertEquals(key, QuadKey.fromString(QuadKey.toString(key, level)));
+            Assert.assertEquals(key, QuadKey.encode(QuadKey.decodeLatitude(key, level),
+                    QuadKey.decodeLongitude(key, level), level));
+            Assert.assertEquals(QuadKey.encode(latitude, longitude, 1), QuadKey.getParent(key, level, 1));
+        }
+    }
+}
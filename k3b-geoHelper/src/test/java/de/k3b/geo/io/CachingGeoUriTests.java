@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.k3b.geo.api.GeoPointDto;
+
+/**
+ * Checks the parse result cache of {@link CachingGeoUri}.
+ */
+public class CachingGeoUriTests {
+    private static final String URI = "geo:52.1,9.2?q=(theName)&t=2015-02-10T08:04:45Z";
+
+    @Test
+    public void shouldReturnIndependentCopies() throws Exception {
+        CachingGeoUri sut = new CachingGeoUri(GeoUri.OPT_DEFAULT, 10);
+
+        GeoPointDto first = sut.fromUri(URI, new GeoPointDto());
+        first.setName("changed");
+        first.getTimeOfMeasurement().setTime(0);
+        GeoPointDto second = sut.fromUri(URI, new GeoPointDto());
+
+        Assert.assertEquals(URI, sut.toUriString(second));
+        Assert.assertEquals(1, sut.getHitCount());
+        Assert.assertEquals(1, sut.getMissCount());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() throws Exception {
+        CachingGeoUri sut = new CachingGeoUri(GeoUri.OPT_DEFAULT, 2);
+
+        sut.fromUri("geo:1,1", new GeoPointDto());
+        sut.fromUri("geo:2,2", new GeoPointDto());
+        sut.fromUri("geo:1,1", new GeoPointDto()); // hit: 2,2 is now the eldest
+        sut.fromUri("geo:3,3", new GeoPointDto());
+        sut.fromUri("geo:1,1", new GeoPointDto()); // hit
+        sut.fromUri("geo:2,2", new GeoPointDto()); // miss
+
+        Assert.assertEquals(2, sut.size());
+        Assert.assertEquals(2, sut.getHitCount());
+        Assert.assertEquals(4, sut.getMissCount());
+    }
+
+    @Test
+    public void shouldNotUseCacheForPrefilledResult() throws Exception {
+        CachingGeoUri sut = new CachingGeoUri(GeoUri.OPT_DEFAULT, 10);
+        sut.fromUri(URI, new GeoPointDto());
+
+        GeoPointDto result = sut.fromUri(URI, new GeoPointDto().setName("keep"));
+
+        Assert.assertEquals("keep", result.getName());
+        Assert.assertEquals(0, sut.getHitCount());
+    }
+
+    @Test
+    public void shouldCacheRangesOfCharsAndBytesSeparately() throws Exception {
+        CachingGeoUri sut = new CachingGeoUri(GeoUri.OPT_DEFAULT, 10);
+        String uri = "geo:1,2?n=\u00C3\u00BC";
+        StringBuilder buffer = new StringBuilder("xx").append(uri).append("yy");
+        ByteBuffer bytes = ByteBuffer.wrap("geo:1,2?n=\u00FC".getBytes("UTF-8"));
+
+        Assert.assertEquals("\u00C3\u00BC", sut.fromUri(buffer, 2, 2 + uri.length(), new GeoPointDto()).getName());
+        Assert.assertEquals("\u00FC", sut.fromUri(bytes, 0, bytes.limit(), new GeoPointDto()).getName());
+        Assert.assertEquals("\u00C3\u00BC", sut.fromUri(uri, new GeoPointDto()).getName());
+        Assert.assertEquals(1, sut.getHitCount());
+        Assert.assertEquals(2, sut.getMissCount());
+    }
+
+    @Test
+    public void shouldPlugIntoRepository() throws Exception {
+        final CachingGeoUri cache = new CachingGeoUri(GeoUri.OPT_DEFAULT, 10);
+        GeoFileRepository<GeoPointDto> repository = new GeoFileRepository<GeoPointDto>(null) {
+            @Override
+            protected GeoUri createGeoUriParser() {
+                return cache;
+            }
+        };
+
+        List<GeoPointDto> items = new ArrayList<GeoPointDto>();
+        repository.load(items, new StringReader("geo:1,2?id=1\ngeo:1,2?id=1\ngeo:1,2?id=1\n"));
+
+        Assert.assertEquals(3, items.size());
+        Assert.assertNotSame(items.get(0), items.get(1));
+        Assert.assertEquals(2, cache.getHitCount());
+    }
+}
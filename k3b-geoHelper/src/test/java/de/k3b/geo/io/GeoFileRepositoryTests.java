@@ -25,6 +25,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 import de.k3b.geo.api.GeoPointDto;
@@ -85,6 +91,250 @@ public class GeoFileRepositoryTests {
         Assert.assertEquals(3, items.size());
     }
 
+    @Test
+    public void shouldLoadLinesFromReader() throws Exception {
+        StringBuilder longDescription = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            longDescription.append("long+text");
+        }
+        String data = "# comment\r\n"
+                + "  geo:1,2?id=1  \r\n"
+                + "\n"
+                + "geo:3,4?id=2&d=" + longDescription + "\r"
+                + "geo:5,6?id=3";
+
+        GeoFileRepository<GeoPointDto> repository = new GeoFileRepository<GeoPointDto>(null);
+        List<GeoPointDto> items = new ArrayList<GeoPointDto>();
+        repository.load(items, new StringReader(data));
+
+        Assert.assertEquals(3, items.size());
+        Assert.assertEquals(4.0, items.get(1).getLongitude(), 0.0);
+        Assert.assertEquals(longDescription.length(), items.get(1).getDescription().length());
+        Assert.assertEquals("3", items.get(2).getId());
+    }
+
+    @Test
+    public void shouldLoadLinesFromReaderInSmallChunks() throws Exception {
+        StringBuilder longDescription = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            longDescription.append("long+text");
+        }
+        String data = "# comment\r\n"
+                + "  geo:1,2?id=1  \r\n"
+                + "geo:3,4?id=2&d=" + longDescription + "\r\n"
+                + "geo:5,6?id=3";
+
+        // every read() returns at most 7 chars: lines and cr+lf are split between reads
+        Reader reader = new FilterReader(new StringReader(data)) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 7));
+            }
+        };
+        List<GeoPointDto> items = new ArrayList<GeoPointDto>();
+        new GeoFileRepository<GeoPointDto>(null).load(items, reader);
+
+        Assert.assertEquals(3, items.size());
+        Assert.assertEquals(longDescription.length(), items.get(1).getDescription().length());
+        Assert.assertEquals("3", items.get(2).getId());
+    }
+
+    @Test
+    public void shouldSaveLoadMapped() throws Exception {
+        IGeoRepository<GeoPointDto> repository = createUnsavedRepo("shouldSaveLoadMapped", 3);
+        repository.load().get(0).setName("M\u00FCnchen");
+        repository.save();
+
+        List<GeoPointDto> items = new GeoFileRepository<GeoPointDto>(this.repositoryFile,
+                new GeoPointDto(), GeoFileRepository.OPT_LOAD_MAPPED).load();
+
+        Assert.assertEquals(3, items.size());
+        Assert.assertEquals("M\u00FCnchen", items.get(0).getName());
+        Assert.assertEquals(3.2, items.get(2).getLongitude(), 0.0);
+    }
+
+    @Test
+    public void shouldSaveWhileLazyPointsAreNotDecoded() throws Exception {
+        createUnsavedRepo("shouldSaveWhileLazyPointsAreNotDecoded", 3).save();
+
+        GeoFileRepository<GeoPointDto> lazy = new GeoFileRepository<GeoPointDto>(this.repositoryFile,
+                new GeoPointDto(), GeoFileRepository.OPT_LOAD_LAZY | GeoFileRepository.OPT_LOAD_MAPPED);
+        Assert.assertTrue(((LazyGeoPointDto) lazy.load().get(2)).isLazy());
+        lazy.save();
+
+        List<GeoPointDto> items = new GeoFileRepository<GeoPointDto>(this.repositoryFile).load();
+        Assert.assertEquals(3, items.size());
+        Assert.assertEquals("Name3", items.get(2).getName());
+    }
+
+    @Test
+    public void shouldCallOverriddenLoadItem() throws Exception {
+        String data = "geo:1,2?id=1&n=keep\n"
+                + "geo:3,4?id=2&n=skip\n";
+
+        List<GeoPointDto> items = new ArrayList<GeoPointDto>();
+        new GeoFileRepository<GeoPointDto>(null) {
+            @Override
+            protected GeoPointDto loadItem(CharSequence src, int start, int end) {
+                String line = src.subSequence(start, end).toString();
+                return (line.contains("skip")) ? null : super.loadItem(src, start, end);
+            }
+        }.load(items, new StringReader(data));
+
+        Assert.assertEquals(1, items.size());
+        Assert.assertEquals("keep", items.get(0).getName());
+    }
+
+    @Test
+    public void shouldLoadLinesFromUtf8Bytes() throws Exception {
+        byte[] data = ("xx# comment\r\n"
+                + "geo:1,2?id=1&n=M\u00FCnchen\n"
+                + "geo:3,4?id=2&d=a+%C3%BC\u20AC").getBytes("UTF-8");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data);
+        buffer.position(2);
+
+        List<GeoPointDto> items = new ArrayList<GeoPointDto>();
+        new GeoFileRepository<GeoPointDto>(null).load(items, buffer);
+
+        Assert.assertEquals(2, items.size());
+        Assert.assertEquals("M\u00FCnchen", items.get(0).getName());
+        Assert.assertEquals("a \u00FC\u20AC", items.get(1).getDescription());
+        Assert.assertEquals(2, buffer.position());
+    }
+
+    @Test
+    public void shouldCollectDiagnosticsWithLineNumbers() throws Exception {
+        String data = "# comment\r\n"
+                + "geo:1,2?id=1\r\n"
+                + "geo:3,4?id=2&z=x\r\n"
+                + "\r\n"
+                + "http//no-geo-uri\n"
+                + "geo:5,6?id=3&d=%zz\n"
+                + "geo:7,8?id=4&t=yesterday";
+        GeoParseDiagnostics diagnostics = new GeoParseDiagnostics(2);
+
+        List<GeoPointDto> items = new ArrayList<GeoPointDto>();
+        new GeoFileRepository<GeoPointDto>(null).setDiagnostics(diagnostics).load(items, new StringReader(data));
+
+        Assert.assertEquals("items", 3, items.size());
+        Assert.assertEquals("lines", 5, diagnostics.getLineCount());
+        Assert.assertEquals("problems", 4, diagnostics.getProblemCount());
+        Assert.assertEquals("errors", 2, diagnostics.getErrorCount());
+        Assert.assertEquals(1, diagnostics.getCount(GeoUri.STATUS_MALFORMED_ESCAPE));
+        Assert.assertEquals(1, diagnostics.getCount(GeoUri.STATUS_MALFORMED_TIME));
+
+        List<GeoParseDiagnostics.Entry> entries = diagnostics.getEntries();
+        Assert.assertEquals("bounded", 2, entries.size());
+        Assert.assertEquals("dropped", 2, diagnostics.getDroppedCount());
+        Assert.assertEquals(3, entries.get(0).getLineNumber());
+        Assert.assertEquals(GeoUri.STATUS_MALFORMED_ZOOM, entries.get(0).getStatus());
+        Assert.assertEquals("geo:3,4?id=2&z=x", entries.get(0).getText());
+        Assert.assertEquals(5, entries.get(1).getLineNumber());
+        Assert.assertEquals(GeoUri.STATUS_UNKNOWN_FORMAT, entries.get(1).getStatus());
+    }
+
+    @Test
+    public void shouldCountLinesOfUtf8BytesLikeReader() throws Exception {
+        String data = "geo:1,2?id=1\r\n\r\ngeo:3,4?id=2&z=x\rgeo:5,6?id=3&z=y\n";
+        GeoParseDiagnostics fromBytes = new GeoParseDiagnostics(10);
+        GeoParseDiagnostics fromReader = new GeoParseDiagnostics(10);
+
+        new GeoFileRepository<GeoPointDto>(null).setDiagnostics(fromBytes)
+                .load(new ArrayList<GeoPointDto>(), ByteBuffer.wrap(data.getBytes("UTF-8")));
+        new GeoFileRepository<GeoPointDto>(null).setDiagnostics(fromReader)
+                .load(new ArrayList<GeoPointDto>(), new StringReader(data));
+
+        Assert.assertEquals("[line 3 (status 8): geo:3,4?id=2&z=x, line 4 (status 8): geo:5,6?id=3&z=y]",
+                fromBytes.getEntries().toString());
+        Assert.assertEquals(fromBytes.getEntries().toString(), fromReader.getEntries().toString());
+    }
+
+    @Test
+    public void shouldShareRepeatedSymbols() throws Exception {
+        String data = "geo:1,2?id=1&s=http://icons/a.png\ngeo:3,4?q=(same)&id=2&s=http://icons/a.png\n"
+                + "geo:5,6?q=(same)&id=3&s=http%3A%2F%2Ficons%2Fa.png\n";
+        GeoStringPools pools = new GeoStringPools();
+        GeoFileRepository<GeoPointDto> repository = new GeoFileRepository<GeoPointDto>(null).setStringPools(pools);
+        List<GeoPointDto> items = new ArrayList<>();
+        repository.load(items, new StringReader(data));
+
+        Assert.assertEquals(3, items.size());
+        Assert.assertEquals("http://icons/a.png", items.get(0).getSymbol());
+        Assert.assertSame(items.get(0).getSymbol(), items.get(1).getSymbol());
+        Assert.assertSame(items.get(0).getSymbol(), items.get(2).getSymbol());
+        Assert.assertSame(items.get(1).getName(), items.get(2).getName());
+        Assert.assertEquals(2, pools.getSymbol().getHitCount());
+        Assert.assertTrue(pools.getSavedBytes() > 0);
+    }
+
+    @Test
+    public void shouldShareRepeatedNonAsciiNamesFromUtf8Bytes() throws Exception {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 12; i++) {
+            data.append("geo:1,2?q=(K\u00F6ln)&id=").append(i).append("&s=\u00E4.png\n");
+        }
+        GeoStringPools pools = new GeoStringPools();
+        List<GeoPointDto> items = new ArrayList<>();
+        new GeoFileRepository<GeoPointDto>(null).setStringPools(pools)
+                .load(items, ByteBuffer.wrap(data.toString().getBytes("UTF-8")));
+
+        Assert.assertEquals(12, items.size());
+        Assert.assertEquals("K\u00F6ln", items.get(0).getName());
+        Assert.assertSame(items.get(0).getName(), items.get(11).getName());
+        Assert.assertSame(items.get(0).getSymbol(), items.get(11).getSymbol());
+        Assert.assertEquals(1, pools.getName().size());
+        Assert.assertEquals(11, pools.getName().getHitCount());
+    }
+
+    @Test
+    public void shouldLoadLazyLikeEager() throws Exception {
+        String data = "geo:1,2?q=(n%C3%A4me)&z=3&t=2015-02-10T08:04:45Z&id=1&d=desc&link=l&s=s\n"
+                + "geo:0,0?q=5,6(name2)&id=2\nhttps://www.openstreetmap.org/#map=14/52.1/9.2\n";
+        List<GeoPointDto> eager = new ArrayList<>();
+        new GeoFileRepository<GeoPointDto>(null).load(eager, new StringReader(data));
+        List<GeoPointDto> lazy = new ArrayList<>();
+        new GeoFileRepository<GeoPointDto>(null, new GeoPointDto(), GeoFileRepository.OPT_LOAD_LAZY)
+                .load(lazy, ByteBuffer.wrap(data.getBytes("UTF-8")));
+
+        Assert.assertEquals(2, lazy.size());
+        LazyGeoPointDto first = (LazyGeoPointDto) lazy.get(0);
+        Assert.assertTrue(first.isLazy());
+        Assert.assertEquals(1.0, first.getLatitude(), 0.0);
+        Assert.assertEquals(3, first.getZoomMin());
+        Assert.assertTrue(first.isLazy());
+
+        GeoUri formatter = new GeoUri(GeoUri.OPT_DEFAULT);
+        for (int i = 0; i < eager.size(); i++) {
+            Assert.assertEquals(formatter.toUriString(eager.get(i)), formatter.toUriString(lazy.get(i)));
+        }
+        Assert.assertFalse(first.isLazy());
+    }
+
+    @Test
+    public void shouldLoadLazyWithPoolsAndCustomFactory() throws Exception {
+        byte[] data = "geo:1,2?q=(same)&id=1\ngeo:3,4?q=(same)&id=2\n".getBytes("UTF-8");
+        GeoStringPools pools = new GeoStringPools();
+        List<GeoPointDto> items = new ArrayList<>();
+        new GeoFileRepository<GeoPointDto>(null, new LazyGeoPointDto() {}, GeoFileRepository.OPT_LOAD_LAZY)
+                .setStringPools(pools).load(items, ByteBuffer.wrap(data));
+
+        Assert.assertTrue(((LazyGeoPointDto) items.get(0)).isLazy());
+        Assert.assertNotSame(LazyGeoPointDto.class, items.get(0).getClass());
+        Assert.assertSame(items.get(0).getName(), items.get(1).getName());
+        Assert.assertEquals(1, pools.getName().getHitCount());
+    }
+
+    @Test
+    public void shouldLoadLazyFromReaderCompletely() throws Exception {
+        List<GeoPointDto> items = new ArrayList<>();
+        new GeoFileRepository<GeoPointDto>(null, new GeoPointDto(), GeoFileRepository.OPT_LOAD_LAZY)
+                .load(items, new StringReader("geo:1,2?q=(name)&id=1\n"));
+
+        Assert.assertEquals(GeoPointDto.class, items.get(0).getClass());
+        Assert.assertEquals("name", items.get(0).getName());
+    }
+
     @Test
     public void shouldDeleteExistingItem() throws Exception {
         List<GeoPointDto> items = createUnsavedRepo("shouldDeleteExistingItem", 3)
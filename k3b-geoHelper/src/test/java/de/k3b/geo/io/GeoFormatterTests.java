@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.k3b.geo.api.IGeoPointInfo;
+
+/**
+ * Checks the conversions of {@link GeoFormatter}.
+ */
+public class GeoFormatterTests {
+    @Test
+    public void shouldParseLatOrLonFromRange() throws Exception {
+        String coordinates = "lat=S52.1234567;lon=+9.25e1;zoom=14";
+        Assert.assertEquals(-52.1234567, GeoFormatter.parseLatOrLon(coordinates, 4, 15), 0.0);
+        Assert.assertEquals(92.5, GeoFormatter.parseLatOrLon(coordinates, 20, 27), 0.0);
+        Assert.assertEquals(IGeoPointInfo.NO_LAT_LON, GeoFormatter.parseLatOrLon(coordinates, 4, 4), 0.0);
+        Assert.assertTrue(Double.isNaN(GeoFormatter.parseLatOrLon(coordinates, 0, 15)));
+        Assert.assertTrue(Double.isNaN(GeoFormatter.parseLatOrLon(coordinates, 4, 16)));
+    }
+
+    @Test
+    public void shouldParseLatOrLonExact() throws Exception {
+        for (String value : new String[] {"52.1234567", "-0.0000001", "179.9999999", "0.30000000000000004", "12345678901234567890.5"}) {
+            Assert.assertEquals(value, Double.parseDouble(value), GeoFormatter.parseLatOrLon(value, 0, value.length()), 0.0);
+        }
+    }
+
+    @Test
+    public void tryParseLatOrLonShouldIgnoreTrailingText() throws Exception {
+        Assert.assertEquals(52.1, GeoFormatter.tryParseLatOrLon("N52.1xyz"), 0.0);
+        Assert.assertEquals(-9.2, GeoFormatter.tryParseLatOrLon("W9.2,3"), 0.0);
+        Assert.assertEquals(1500.0, GeoFormatter.tryParseLatOrLon("1.5E3"), 0.0);
+        Assert.assertTrue(Double.isNaN(GeoFormatter.tryParseLatOrLon("+52.1")));
+        Assert.assertTrue(Double.isNaN(GeoFormatter.tryParseLatOrLon("N")));
+    }
+
+    @Test
+    public void shouldAppendLatLonWithPrecision() throws Exception {
+        StringBuilder result = new StringBuilder();
+        GeoFormatter.appendLatLon(result, 52.12345675, 7).append(';');
+        GeoFormatter.appendLatLon(result, 0.00390625, 7).append(';');
+        GeoFormatter.appendLatLon(result, -0.00000001, 7).append(';');
+        GeoFormatter.appendLatLon(result, 9.0, 7).append(';');
+        GeoFormatter.appendLatLon(result, -179.99999999, 7).append(';');
+        GeoFormatter.appendLatLon(result, 52.126, 2);
+
+        // same rounding (half even on the exact binary value) as DecimalFormat("#.#######")
+        Assert.assertEquals("52.1234568;0.0039062;-0;9;-180;52.13", result.toString());
+    }
+
+    @Test
+    public void shouldAppendLatLonToCharArray() throws Exception {
+        char[] buffer = new char[GeoFormatter.MAX_LAT_LON_LENGTH + 1];
+        buffer[0] = '[';
+        int end = GeoFormatter.appendLatLon(buffer, 1, -12.5000001, GeoFormatter.LAT_LON_DECIMALS);
+
+        Assert.assertEquals("[-12.5000001", new String(buffer, 0, end));
+        Assert.assertEquals("12.5", GeoFormatter.formatLatLon(12.5));
+        Assert.assertEquals("", GeoFormatter.formatLatLon(IGeoPointInfo.NO_LAT_LON));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.io;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.k3b.geo.api.GeoPointDto;
+import de.k3b.geo.api.IGeoPointInfo;
+
+/**
+ * Round-trip benchmark of {@link GeoPointCodec} against the geo-uri text form used by {@link GeoFileRepository}.
+ *
+ * Not a unit test. Run with `java de.k3b.geo.io.GeoPointCodecBenchmark [pointCount [rounds]]`.
+ */
+public class GeoPointCodecBenchmark {
+    public static void main(String[] args) throws Exception {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+        List<GeoPointDto> points = GeoPointCodecTests.createPoints(count);
+        GeoUri geoUri = new GeoUri(GeoUri.OPT_DEFAULT);
+        GeoFileRepository<GeoPointDto> repository = new GeoFileRepository<GeoPointDto>(null) {
+            @Override
+            protected boolean isValid(IGeoPointInfo geo) {
+                return true;
+            }
+        };
+
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            StringBuilder text = new StringBuilder();
+            for (GeoPointDto point : points) {
+                geoUri.appendUri(text, point);
+                text.append('\n');
+            }
+            long encoded = System.nanoTime();
+            List<GeoPointDto> fromText = new ArrayList<>(points.size());
+            repository.load(fromText, new StringReader(text.toString()));
+            long decoded = System.nanoTime();
+            // size of the utf-8 encoded .poi file, not of the utf-16 chars in memory
+            print("geo-uri", text.toString().getBytes("UTF-8").length, fromText.size(), start, encoded, decoded);
+
+            start = System.nanoTime();
+            ByteBuffer bytes = GeoPointCodec.encode(points);
+            encoded = System.nanoTime();
+            List<GeoPointDto> fromBytes = GeoPointCodec.readAll(bytes, new GeoPointDto());
+            decoded = System.nanoTime();
+            print("binary ", bytes.limit(), fromBytes.size(), start, encoded, decoded);
+        }
+    }
+
+    private static void print(String name, long size, int count, long start, long encoded, long decoded) {
+        System.out.println(name + ": " + count + " points, " + size + " bytes, encode "
+                + (encoded - start) / 1000000 + " ms, decode " + (decoded - encoded) / 1000000 + " ms");
+    }
+}
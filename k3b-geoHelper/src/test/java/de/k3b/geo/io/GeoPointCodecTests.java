@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.k3b.geo.api.GeoPointDto;
+import de.k3b.geo.api.IGeoPointInfo;
+
+/**
+ * Checks the binary format of {@link GeoPointCodec}.
+ */
+public class GeoPointCodecTests {
+    static List<GeoPointDto> createPoints(int count) {
+        List<GeoPointDto> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            GeoPointDto point = new GeoPointDto()
+                    .setLatitude(50 + i * 0.0001234567)
+                    .setLongitude(-9.2 - i * 0.0007654321)
+                    .setId("id" + i)
+                    .setName("Point " + i + " \u00e4\u00f6\u00fc \ud83d\ude00")
+                    .setZoomMin(i % 20)
+                    .setTimeOfMeasurementMillis(1423555485000L + i * 1000L);
+            if ((i % 3) == 0) point.setDescription("<p>description of " + i + "</p>").setLink("http://link/" + i);
+            if ((i % 5) == 0) point.setSymbol("http://icons/" + (i % 7) + ".png").setZoomMax(i % 20 + 1);
+            result.add(point);
+        }
+        result.add(new GeoPointDto());
+        return result;
+    }
+
+    @Test
+    public void shouldRoundTripViaByteBuffer() throws Exception {
+        List<GeoPointDto> points = createPoints(100);
+        ByteBuffer bytes = GeoPointCodec.encode(points);
+
+        assertEquals(points, GeoPointCodec.<GeoPointDto>readAll(bytes, new GeoPointDto()));
+        Assert.assertFalse(bytes.hasRemaining());
+    }
+
+    @Test
+    public void shouldRoundTripViaDataOutput() throws Exception {
+        List<GeoPointDto> points = createPoints(1000);
+        points.get(1).setDescription(new String(new char[10000]).replace('\0', 'x') + "\ud800");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GeoPointCodec.writeAll(new DataOutputStream(out), points);
+
+        List<GeoPointDto> result = GeoPointCodec.readAll(new DataInputStream(new ByteArrayInputStream(out.toByteArray())), new GeoPointDto());
+
+        points.get(1).setDescription(points.get(1).getDescription().replace('\ud800', '?'));
+        assertEquals(points, result);
+        Assert.assertArrayEquals(out.toByteArray(), GeoPointCodec.encode(result).array());
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectUnknownVersion() throws Exception {
+        GeoPointCodec.readAll(ByteBuffer.wrap(new byte[] {99, 0}), new GeoPointDto());
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectTruncatedData() throws Exception {
+        ByteBuffer bytes = GeoPointCodec.encode(createPoints(3));
+        bytes.limit(bytes.limit() - 3);
+        GeoPointCodec.readAll(bytes, new GeoPointDto());
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectCorruptCount() throws Exception {
+        GeoPointCodec.readAll(ByteBuffer.wrap(CORRUPT_COUNT), new GeoPointDto());
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectCorruptCountFromStream() throws Exception {
+        GeoPointCodec.readAll(new DataInputStream(new ByteArrayInputStream(CORRUPT_COUNT)), new GeoPointDto());
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectNegativeStringLength() throws Exception {
+        GeoPointCodec.readAll(ByteBuffer.wrap(NEGATIVE_STRING_LENGTH), new GeoPointDto());
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectNegativeStringLengthFromStream() throws Exception {
+        GeoPointCodec.readAll(new DataInputStream(new ByteArrayInputStream(NEGATIVE_STRING_LENGTH)), new GeoPointDto());
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldNotReadIntoNextRecord() throws Exception {
+        GeoPointCodec.readAll(ByteBuffer.wrap(STRING_BEYOND_RECORD), new GeoPointDto());
+    }
+
+    /** Version 1, count 1, one record with a name of length -1 */
+    private static final byte[] NEGATIVE_STRING_LENGTH = {1, 1, 7, 0, 0x20,
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F};
+
+    /** Version 1, count 2, first record with a name of length 5 that ends inside the second record */
+    private static final byte[] STRING_BEYOND_RECORD = {1, 2, 3, 0, 0x20, 5, 4, 0, 0x20, 1, 'A'};
+
+    /** Version 1 followed by count Integer.MAX_VALUE and no records */
+    private static final byte[] CORRUPT_COUNT = {1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+
+    private static void assertEquals(List<? extends IGeoPointInfo> expected, List<? extends IGeoPointInfo> actual) {
+        GeoUri formatter = new GeoUri(GeoUri.OPT_DEFAULT);
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(formatter.toUriString(expected.get(i)), formatter.toUriString(actual.get(i)));
+            Assert.assertEquals(expected.get(i).getTimeOfMeasurementMillis(), actual.get(i).getTimeOfMeasurementMillis());
+            Assert.assertEquals(expected.get(i).getLatitude(), actual.get(i).getLatitude(), 0.0);
+        }
+    }
+}
@@ -51,7 +51,7 @@ public class GeoPointDtoRegressionTests {
         check("0|empty.xml", "1|gpx11.gpx", "1|gpx10.gpx"
                 , "3|kml22.kml", "2|gpx-similar.gpx", "9|poi.xml"
                 , "1|wikimedia.poi"
-                , "15|https-mapservice-urls.xml"
+                , "18|https-mapservice-urls.xml"
         );
         Assert.assertNull("" + this.checkResultMessage, this.checkResultMessage);
     }
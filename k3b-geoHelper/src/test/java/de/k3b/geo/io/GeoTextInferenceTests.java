@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import de.k3b.geo.api.GeoPointDto;
+
+/**
+ * Checks that {@link GeoTextInference} finds the same values as the regular expressions it replaces.
+ */
+public class GeoTextInferenceTests {
+    private static final int ALL = GeoTextInference.NAME | GeoTextInference.TIME
+            | GeoTextInference.LAT_LON | GeoTextInference.LINK | GeoTextInference.SYMBOL;
+
+    @Test
+    public void shouldFindAllInHtml() throws Exception {
+        String html = "<p>I was in <b>(Hamburg)</b> ( ) at N53.5 , E10.0 on 1991-03-03T04:05:06Z."
+                + "<a href = 'http://x'><img src=\"y.png\"/></a></p>";
+        GeoTextInference sut = new GeoTextInference(ALL).scan(html);
+
+        Assert.assertEquals("Hamburg", sut.getText(GeoTextInference.NAME));
+        Assert.assertEquals("1991-03-03T04:05:06Z", sut.getText(GeoTextInference.TIME));
+        Assert.assertEquals("N53.5", sut.getText(GeoTextInference.LAT_LON));
+        Assert.assertEquals("http://x", sut.getText(GeoTextInference.LINK));
+        Assert.assertEquals("y.png", sut.getText(GeoTextInference.SYMBOL));
+    }
+
+    @Test
+    public void shouldPreferFirstCandidate() throws Exception {
+        GeoTextInference sut = new GeoTextInference(ALL).scan(Arrays.asList(
+                "(first) 1,2", null, "(second) 3,4 href='link' href=\"unterminated", "src='symbol'"));
+
+        Assert.assertEquals("first", sut.getText(GeoTextInference.NAME));
+        Assert.assertEquals("1", sut.getText(GeoTextInference.LAT_LON));
+        Assert.assertEquals("link", sut.getText(GeoTextInference.LINK));
+        Assert.assertEquals("symbol", sut.getText(GeoTextInference.SYMBOL));
+        Assert.assertFalse(sut.isFound(GeoTextInference.TIME));
+
+        GeoPointDto result = new GeoPointDto().setName("keep");
+        sut.applyName(result);
+        sut.applyLatLon(result);
+        Assert.assertEquals("geo:1,2?q=(keep)", new GeoUri(GeoUri.OPT_DEFAULT).toUriString(result));
+    }
+
+    @Test
+    public void shouldIgnoreUnwantedFields() throws Exception {
+        GeoTextInference sut = new GeoTextInference(GeoTextInference.TIME).scan("(name) 1,2 2015-02-10T08:04:45");
+
+        Assert.assertFalse(sut.isFound(GeoTextInference.NAME));
+        Assert.assertFalse(sut.isFound(GeoTextInference.LAT_LON));
+        Assert.assertEquals("2015-02-10T08:04:45", sut.getText(GeoTextInference.TIME));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.k3b.geo.api.GeoPointDto;
+
+/**
+ * Checks that the regex free {@link GeoUriScanner} gives the same results as the
+ * regular expression based parser.
+ */
+public class GeoUriScannerTests {
+    private static final GeoUri formatter = new GeoUri(GeoUri.OPT_DEFAULT);
+
+    @Test
+    public void shouldParseAllParameters() throws Exception {
+        assertScan("geo:12.345,-56.7890123?q=(name)&z=5&z2=7&link=link&s=icon&d=description&id=id&t=1991-03-03T04:05:06Z",
+                "geo:12.345,-56.7890123?q=12.345,-56.7890123(name)&z=5&z2=7&link=link&s=icon&d=description&id=id&t=1991-03-03T04:05:06Z");
+    }
+
+    @Test
+    public void shouldPreferQueryAndFallbackToLatLonParam() throws Exception {
+        assertScan("geo:52.1,9.2?q=(theName)", "geo:1,2?q=52.1,9.2(theName)");
+        assertScan("geo:52.1,9.2?q=(theName)", "geo:?ll=52.1,9.2&n=theName");
+        assertScan("geo:-52.1,9.2", "geo:S52.1 , E9.2,100");
+    }
+
+    @Test
+    public void shouldDecodeEscapes() throws Exception {
+        GeoPointDto result = new GeoPointDto();
+        Assert.assertTrue(new GeoUriScanner("geo:?d=a+b%2C%C3%BC%F0%9F%98%80", 0, 31).parse(result));
+        Assert.assertEquals("a b,\u00FC\uD83D\uDE00", result.getDescription());
+    }
+
+    @Test
+    public void shouldInferTimeFromQuery() throws Exception {
+        assertScan("geo:?q=(x)&t=2015-02-10T08:04:45Z", "geo:?q=x 2015-02-10T08:04:45Z (x)");
+    }
+
+    @Test
+    public void shouldIgnoreParamsLikeSplit() throws Exception {
+        assertScan("geo:1,2?q=(a)&link=c", "geo:1,2?d&n=a&z=&id=a=b&link=c==");
+    }
+
+    @Test
+    public void shouldRejectMalformedEscapes() throws Exception {
+        GeoPointDto result = new GeoPointDto();
+        Assert.assertFalse(new GeoUriScanner("geo:1,2?d=%zz", 0, 13).parse(result));
+        Assert.assertFalse(new GeoUriScanner("geo:1,2?d=%C3", 0, 13).parse(result));
+        Assert.assertEquals("geo:", formatter.toUriString(result));
+    }
+
+    private void assertScan(String expected, String uri) {
+        GeoPointDto result = new GeoPointDto();
+        Assert.assertTrue(uri, new GeoUriScanner(uri, 0, uri.length()).parse(result));
+        Assert.assertEquals(uri, expected, formatter.toUriString(result));
+    }
+}
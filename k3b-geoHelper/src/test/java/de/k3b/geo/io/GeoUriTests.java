@@ -21,8 +21,13 @@ package de.k3b.geo.io;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.StringWriter;
+import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
+import de.k3b.geo.api.GeoPointBatch;
 import de.k3b.geo.api.GeoPointDto;
 import de.k3b.geo.api.IGeoPointInfo;
 
@@ -93,6 +98,178 @@ public class GeoUriTests {
         Assert.assertEquals("geo:53,10?q=(Hamburg)&t=1991-03-03T04:05:06Z", sut.toUriString(parsed));
     }
 
+    @Test
+    public void shouldParseWithRegisteredUrlRecognizer() throws Exception {
+        GeoUri sut = new GeoUri(GeoUri.OPT_DEFAULT);
+        String uri = "https://Maps.Example.org/lat/52.1/lon/9.2?z=14";
+
+        Assert.assertEquals("geo:?z=14", sut.toUriString(sut.fromUri(uri)));
+
+        GeoUrlRecognizerRegistry.register("example.org", new IGeoUrlRecognizer() {
+            @Override
+            public int parse(CharSequence uri, int pathStart, int end, GeoPointDto parseResult) {
+                String[] parts = uri.subSequence(pathStart, end).toString().split("[/?]");
+                return GeoUri.setLatLonZoom(parseResult, parts[2], parts[4], null);
+            }
+        });
+        try {
+            Assert.assertEquals("geo:52.1,9.2?z=14", sut.toUriString(sut.fromUri(uri)));
+        } finally {
+            GeoUrlRecognizerRegistry.unregister("example.org");
+        }
+    }
+
+    @Test
+    public void shouldPreferHostSuffixOverLabel() throws Exception {
+        IGeoUrlRecognizer byLabel = new IGeoUrlRecognizer() {
+            @Override
+            public int parse(CharSequence uri, int pathStart, int end, GeoPointDto parseResult) {
+                return GeoUri.STATUS_OK;
+            }
+        };
+        IGeoUrlRecognizer bySuffix = new IGeoUrlRecognizer() {
+            @Override
+            public int parse(CharSequence uri, int pathStart, int end, GeoPointDto parseResult) {
+                return GeoUri.STATUS_OK;
+            }
+        };
+        GeoUrlRecognizerRegistry.register("maps", byLabel);
+        GeoUrlRecognizerRegistry.register("example.org", bySuffix);
+        try {
+            Assert.assertSame(bySuffix, GeoUrlRecognizerRegistry.find("maps.example.org"));
+            Assert.assertSame(byLabel, GeoUrlRecognizerRegistry.find("maps.example.com"));
+        } finally {
+            GeoUrlRecognizerRegistry.unregister("maps");
+            GeoUrlRecognizerRegistry.unregister("example.org");
+        }
+    }
+
+    @Test
+    public void shouldAppendUri() throws Exception {
+        GeoUri sut = new GeoUri(GeoUri.OPT_FORMAT_REDUNDANT_LAT_LON);
+        GeoPointDto geo = createTestGeoPoint();
+
+        StringWriter writer = new StringWriter();
+        sut.appendUri(writer, geo);
+        Assert.assertEquals(sut.toUriString(geo), writer.toString());
+        Assert.assertEquals("prefix " + sut.toUriString(geo), sut.appendUri(new StringBuilder("prefix "), geo).toString());
+    }
+
+    @Test
+    public void shouldEncodeLikeUrlEncoder() throws Exception {
+        String[] values = {"a-zA-Z0-9.-*_", "with space+plus&amp=eq?(x)%",
+                "\u00FC\u20AC\uD83D\uDE00", "lone\uD83D", "lone\uDE00x", "\u007F\u0080\u07FF\u0800\uFFFF"};
+        for (String value : values) {
+            StringBuilder result = new StringBuilder();
+            GeoUri.appendEncoded(result, value);
+            Assert.assertEquals(value, URLEncoder.encode(value, "UTF-8"), result.toString());
+        }
+    }
+
+    @Test
+    public void shouldShareInstancesBetweenThreads() throws Exception {
+        final GeoUri sut = GeoUri.forOptions(GeoUri.OPT_FORMAT_REDUNDANT_LAT_LON);
+        Assert.assertSame(sut, GeoUri.forOptions(GeoUri.OPT_FORMAT_REDUNDANT_LAT_LON));
+        Assert.assertNotSame(sut, GeoUri.forOptions(GeoUri.OPT_DEFAULT));
+
+        final String expected = sut.toUriString(createTestGeoPoint());
+        final String[] errors = new String[1];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 500; i++) {
+                        String actual = sut.toUriString(sut.fromUri(expected));
+                        if (!expected.equals(actual)) errors[0] = actual;
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertNull(errors[0]);
+    }
+
+    @Test
+    public void shouldParseAllInOrder() throws Exception {
+        GeoUri sut = GeoUri.forOptions(GeoUri.OPT_DEFAULT);
+        List<String> uris = new ArrayList<String>();
+        for (int i = 0; i < 5000; i++) {
+            uris.add((i % 1000 == 7) ? "unknown:" + i : "geo:" + i + ",2?q=(n" + i + ")&z=5&t=2015-02-10T08:04:45Z");
+        }
+        uris.add(null);
+        uris.add("geo:1,2?d=%zz");
+
+        GeoPointBatch batch = sut.parseAll(uris, new GeoPointBatch(uris.size()));
+
+        Assert.assertEquals(5 + 2, batch.getFailedCount());
+        Assert.assertTrue(batch.isFailed(1007));
+        Assert.assertTrue(batch.isFailed(5001));
+        Assert.assertEquals(4321.0, batch.getLatitude(4321), 0.0);
+        Assert.assertEquals("n4321", batch.getName(4321));
+        Assert.assertEquals(5, batch.getZoomMin(4321));
+        Assert.assertEquals(uris.get(12), sut.toUriString(batch.get(12, new GeoPointDto())));
+    }
+
+    @Test
+    public void shouldParseFromCharSequenceRange() throws Exception {
+        GeoUri sut = new GeoUri(GeoUri.OPT_DEFAULT);
+
+        StringBuilder buffer = new StringBuilder("#comment\ngeo:52.1,9.2?q=(theName)&z=14\ngeo:1,2");
+        GeoPointDto parsed = sut.fromUri(buffer, 9, 38, new GeoPointDto());
+
+        Assert.assertEquals("geo:52.1,9.2?q=(theName)&z=14", sut.toUriString(parsed));
+    }
+
+    @Test
+    public void shouldReportParseStatus() throws Exception {
+        assertStatus(GeoUri.STATUS_OK, "geo:52.1,9.2?z=14");
+        assertStatus(GeoUri.STATUS_UNKNOWN_FORMAT, "ftp://example.org/52.1,9.2");
+        assertStatus(GeoUri.STATUS_MALFORMED_ESCAPE, "geo:52.1,9.2?d=%zz");
+        assertStatus(GeoUri.STATUS_MALFORMED_LAT_LON, "geo:+52.1,9.2");
+        assertStatus(GeoUri.STATUS_MALFORMED_ZOOM | GeoUri.STATUS_MALFORMED_TIME, "geo:52.1,9.2?z=x&t=yesterday");
+        assertStatus(GeoUri.STATUS_MALFORMED_LAT_LON, "https://www.openstreetmap.org/#map=14/abc/9.2");
+    }
+
+    @Test
+    public void shouldParseIgnoringMalformedValues() throws Exception {
+        GeoUri sut = new GeoUri(GeoUri.OPT_DEFAULT);
+        String uri = "geo:52.1,9.2?z=x&n=theName";
+        GeoPointDto parsed = new GeoPointDto();
+
+        Assert.assertEquals(GeoUri.STATUS_MALFORMED_ZOOM, sut.parse(uri, 0, uri.length(), parsed));
+        Assert.assertEquals("geo:52.1,9.2?q=(theName)", sut.toUriString(parsed));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromUriShouldThrowOnMalformedEscape() throws Exception {
+        new GeoUri(GeoUri.OPT_DEFAULT).fromUri("geo:52.1,9.2?d=%zz");
+    }
+
+    @Test
+    public void malformedEscapeMessageShouldOnlyContainTheParsedRange() throws Exception {
+        String src = "geo:1,2?id=before\ngeo:52.1,9.2?d=%zz\ngeo:3,4?id=after";
+        int start = src.indexOf('\n') + 1;
+        int end = src.lastIndexOf('\n');
+        try {
+            new GeoUri(GeoUri.OPT_DEFAULT).fromUri(src, start, end, new GeoPointDto());
+            Assert.fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            Assert.assertEquals("Malformed escape (%) pattern in geo:52.1,9.2?d=%zz", expected.getMessage());
+        }
+    }
+
+    private void assertStatus(int expected, String uri) {
+        for (int options : new int[] {GeoUri.OPT_DEFAULT, GeoUri.OPT_PARSE_INFER_MISSING}) {
+            GeoPointDto parsed = new GeoPointDto();
+            Assert.assertEquals(uri + " options " + options, expected,
+                    new GeoUri(options).parse(uri, 0, uri.length(), parsed));
+        }
+    }
+
     @Test
     public void clearedDtoShouldFormatEmpty() throws Exception {
         GeoUri formatter = new GeoUri(GeoUri.OPT_DEFAULT);
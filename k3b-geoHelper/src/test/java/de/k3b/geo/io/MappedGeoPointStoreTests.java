@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.io;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+
+import de.k3b.geo.api.AbstractGeoPointStore;
+import de.k3b.geo.api.GeoPointDto;
+import de.k3b.geo.api.GeoPointStore;
+import de.k3b.geo.api.IGeoPointInfo;
+
+/**
+ * Checks the off-heap {@link MappedGeoPointStore}.
+ */
+public class MappedGeoPointStoreTests {
+    private static final File OUTDIR = new File("./build/testresults/MappedGeoPointStoreTests");
+
+    @BeforeClass
+    public static void initDirectories() {
+        OUTDIR.mkdirs();
+    }
+
+    @Test
+    public void shouldReopenSavedStore() throws Exception {
+        GeoPointStore expected = new GeoPointStore();
+        MappedGeoPointStore sut = new MappedGeoPointStore(1);
+        for (int i = 0; i < 300; i++) {
+            GeoPointDto point = new GeoPointDto(i / 10.0, -i / 10.0, i % 3).setZoomMax(i % 7)
+                    .setTimeOfMeasurementMillis(i * 1000L).setId("" + i);
+            if ((i % 10) == 0) point.setName("M\u00FCnchen " + i).setDescription("\u20AC").setSymbol("s");
+            if (i == 5) point.setTimeOfMeasurementMillis(IGeoPointInfo.NO_TIME).setLink("");
+            expected.add(point);
+            sut.add(point);
+        }
+        assertEquals(expected, sut);
+
+        File file = new File(OUTDIR, "shouldReopenSavedStore.k3gs");
+        sut.save(file);
+        MappedGeoPointStore reopened = MappedGeoPointStore.open(file);
+
+        assertEquals(expected, reopened);
+        Assert.assertEquals("", reopened.getLink(5));
+        Assert.assertNull(reopened.getLink(6));
+    }
+
+    @Test
+    public void shouldIterateWithCursor() throws Exception {
+        MappedGeoPointStore sut = new MappedGeoPointStore();
+        new GeoFileRepository<IGeoPointInfo>(null).load(sut,
+                new StringReader("geo:1,2?id=1&n=a\ngeo:3,4?id=2\ngeo:5,6?id=3&n=c\n"));
+
+        StringBuilder names = new StringBuilder();
+        double latitudes = 0;
+        for (AbstractGeoPointStore.Cursor point = sut.cursor(); point.next();) {
+            names.append(point.getName()).append(';');
+            latitudes += point.getLatitude();
+        }
+        Assert.assertEquals("a;null;c;", names.toString());
+        Assert.assertEquals(9.0, latitudes, 0.0);
+    }
+
+    @Test
+    public void shouldStartWithMagicText() throws Exception {
+        MappedGeoPointStore sut = new MappedGeoPointStore();
+        sut.add(new GeoPointDto(1, 2, 3));
+        File file = new File(OUTDIR, "shouldStartWithMagicText.k3gs");
+        sut.save(file);
+
+        byte[] magic = new byte[4];
+        FileInputStream in = new FileInputStream(file);
+        try {
+            Assert.assertEquals(4, in.read(magic));
+        } finally {
+            in.close();
+        }
+        Assert.assertEquals("K3GS", new String(magic, "US-ASCII"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotAddToOpenedStore() throws Exception {
+        MappedGeoPointStore sut = new MappedGeoPointStore();
+        sut.add(new GeoPointDto(1, 2, 3));
+        File file = new File(OUTDIR, "shouldNotAddToOpenedStore.k3gs");
+        sut.save(file);
+
+        MappedGeoPointStore.open(file).add(new GeoPointDto(1, 2, 3));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectOtherFile() throws Exception {
+        File file = new File(OUTDIR, "shouldRejectOtherFile.txt");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("geo:1,2?id=1 and some more text\n".getBytes("UTF-8"));
+        out.close();
+
+        MappedGeoPointStore.open(file);
+    }
+
+    private static void assertEquals(AbstractGeoPointStore expected, AbstractGeoPointStore actual) {
+        Assert.assertEquals("size", expected.size(), actual.size());
+        GeoUri formatter = new GeoUri(GeoUri.OPT_DEFAULT);
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals("#" + i, formatter.toUriString(expected.get(i)), formatter.toUriString(actual.get(i)));
+            Assert.assertEquals("#" + i + " time", expected.getTime(i), actual.getTime(i));
+            Assert.assertEquals("#" + i + " zoomMax", expected.getZoomMax(i), actual.getZoomMax(i));
+        }
+        Assert.assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.geo.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Checks that {@link Utf8CharSequence} decodes the same way as the jdk.
+ */
+public class Utf8CharSequenceTests {
+    @Test
+    public void shouldDecodeLikeJdk() throws Exception {
+        assertDecode(new byte[] {'a', (byte) 0xC3, (byte) 0xBC, (byte) 0xE2, (byte) 0x82, (byte) 0xAC});
+    }
+
+    @Test
+    public void shouldReplaceMalformedLikeJdk() throws Exception {
+        // truncated 3 and 4 byte sequences, lone continuation, overlong, surrogate
+        assertDecode(new byte[] {(byte) 0xE2, (byte) 0x82, 'a'});
+        assertDecode(new byte[] {(byte) 0xF0, (byte) 0x9F, (byte) 0x98});
+        assertDecode(new byte[] {(byte) 0x80, (byte) 0xBF, 'b'});
+        assertDecode(new byte[] {(byte) 0xC0, (byte) 0xAF});
+        assertDecode(new byte[] {(byte) 0xED, (byte) 0xA0, (byte) 0x80});
+    }
+
+    @Test
+    public void shouldReplaceRandomBytesLikeJdk() throws Exception {
+        Random random = new Random(4711);
+        byte[] data = new byte[16];
+        for (int i = 0; i < 2000; i++) {
+            random.nextBytes(data);
+            assertDecode(data);
+        }
+    }
+
+    private static void assertDecode(byte[] data) throws Exception {
+        String expected = new String(data, "UTF-8");
+        Assert.assertEquals(expected, new Utf8CharSequence(ByteBuffer.wrap(data), 0, data.length).toString());
+    }
+}
@@ -100,6 +100,33 @@ public class GpxReaderTest {
         Assert.assertEquals(xmlMinimal_gpx_v11, formatted);
     }
 
+    @Test
+    public void parseKmlCoordinatesDelimitedByBlank() throws IOException {
+        GpxReader reader = new GpxReader(new GeoPointDto());
+        GeoPointDto location = (GeoPointDto) reader.getTracks(new InputSource(new StringReader(
+                "<Placemark><Point><coordinates>8.7178206 53.1099972 0</coordinates></Point></Placemark>"))).get(0);
+
+        Assert.assertEquals(53.1099972, location.getLatitude(), 0.0);
+        Assert.assertEquals(8.7178206, location.getLongitude(), 0.0);
+    }
+
+    @Test
+    public void parseKmlCoordinatesLikeParseDouble() throws IOException {
+        GpxReader reader = new GpxReader(new GeoPointDto());
+        GeoPointDto location = (GeoPointDto) reader.getTracks(new InputSource(new StringReader(
+                "<Placemark><Point><coordinates>Infinity,-1.5e1,0</coordinates></Point></Placemark>"))).get(0);
+
+        Assert.assertEquals(-15.0, location.getLatitude(), 0.0);
+        Assert.assertEquals(Double.POSITIVE_INFINITY, location.getLongitude(), 0.0);
+    }
+
+    @Test(expected = IOException.class)
+    public void parseKmlCoordinatesShouldRejectHemispherePrefix() throws IOException {
+        GpxReader reader = new GpxReader(new GeoPointDto());
+        reader.getTracks(new InputSource(new StringReader(
+                "<Placemark><Point><coordinates>E8.7,N53.1,0</coordinates></Point></Placemark>")));
+    }
+
     // used to test files that do not work
     // @Test
     public void parseFormatFileTest() throws IOException {
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Checks that {@link IsoDateTimeFormatter} gives the same result as {@link SimpleDateFormat}.
+ */
+public class IsoDateTimeFormatterTests {
+    private static final long TIME = IsoDateTimeParser.toDate(2001,12,24,12,34,56,789, TimeZone.getTimeZone("GMT")).getTime();
+
+    @Test
+    public void shouldFormatUtc() throws Exception {
+        Assert.assertEquals("2001-12-24T12:34:56Z", IsoDateTimeFormatter.format(TIME));
+        Assert.assertEquals("x2001-12-24T12:34:56.789Z",
+                IsoDateTimeFormatter.append(new StringBuilder("x"), TIME, true).toString());
+    }
+
+    @Test
+    public void shouldFormatConsecutiveDays() throws Exception {
+        // same day (cached prefix), next day, before 1970, leap day
+        Assert.assertEquals("2001-12-24T23:59:59Z", IsoDateTimeFormatter.format(TIME + 41103210));
+        Assert.assertEquals("2001-12-25T00:00:00Z", IsoDateTimeFormatter.format(TIME + 41103211));
+        Assert.assertEquals("1969-12-31T23:59:59.999Z",
+                IsoDateTimeFormatter.append(new StringBuilder(), -1, true).toString());
+        Assert.assertEquals("2000-02-29T00:00:00Z", IsoDateTimeFormatter.format(951782400000L));
+    }
+
+    @Test
+    public void shouldFormatLikeSimpleDateFormat() throws Exception {
+        SimpleDateFormat expected = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        expected.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        // includes years before 1583 where SimpleDateFormat uses the julian calendar
+        for (long time = -15000000000000L; time < 300000000000000L; time += 987654321987L) {
+            Assert.assertEquals(expected.format(new Date(time)), IsoDateTimeFormatter.format(time));
+        }
+    }
+}
@@ -26,6 +26,8 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.TimeZone;
 
+import de.k3b.geo.api.ILocation;
+
 /**
  * Created by k3b on 12.02.2015.
  */
@@ -72,6 +74,21 @@ public class IsoDateTimeParserTests {
         assertEquals(EXPECTED_WITHOUT_MILLISECS, "2001-12-24T12:34:56.789+00:00");
     }
 
+    @Test
+    public void shoudParseMillisFromRange() throws Exception {
+        String text = "time=2001-12-24T13:34:56+01:00;";
+        Assert.assertEquals(EXPECTED_WITHOUT_MILLISECS.getTime(), IsoDateTimeParser.parseMillis(text, 5, 30));
+        Assert.assertEquals(ILocation.NO_TIME, IsoDateTimeParser.parseMillis(text, 5, 31));
+        Assert.assertEquals(ILocation.NO_TIME, IsoDateTimeParser.parseMillis(text, 0, 30));
+    }
+
+    @Test
+    public void shoudParseLikeLenientCalendar() throws Exception {
+        // month 13 and hour 24 are rolled over. Invalid timezone +24:00 is treated as utc.
+        assertEquals(EXPECTED_WITHOUT_MILLISECS, "2000-24-24T12:34:56Z");
+        assertEquals(EXPECTED_WITHOUT_MILLISECS, "2001-12-23T36:34:56+24:00");
+    }
+
     static public void assertEquals(Date expected,
                                     String actualString) {
         Date actual = IsoDateTimeParser.parse(actualString);
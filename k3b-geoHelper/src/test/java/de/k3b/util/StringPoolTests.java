@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2015-2016 by k3b.
+ *
+ * This file is part of k3b-geoHelper library.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.k3b.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks {@link StringPool}.
+ */
+public class StringPoolTests {
+    @Test
+    public void shouldReturnPooledInstanceForRange() throws Exception {
+        StringPool sut = new StringPool(10);
+        String first = sut.get("s=icon.png;", 2, 10);
+        String second = sut.get(new StringBuilder("icon.png"), 0, 8);
+
+        Assert.assertEquals("icon.png", first);
+        Assert.assertSame(first, second);
+        Assert.assertSame(first, sut.get(new String("icon.png")));
+        Assert.assertEquals(2, sut.getHitCount());
+        Assert.assertEquals(2 * (StringPool.STRING_OVERHEAD_BYTES + 16), sut.getSavedBytes());
+    }
+
+    @Test
+    public void shouldNotGrowBeyondMaxSize() throws Exception {
+        StringPool sut = new StringPool(2);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("v" + i, sut.get("v" + i));
+        }
+
+        Assert.assertEquals(2, sut.size());
+        Assert.assertSame(sut.get("v1"), sut.get(new String("v1")));
+        Assert.assertEquals(null, sut.get(null));
+    }
+}